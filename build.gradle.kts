@@ -115,6 +115,25 @@ dependencies {
     testImplementation("org.testcontainers:postgresql")
 }
 
+// Micro-benchmark JMH: ./gradlew jmh (chỉ build/chạy khi gọi, không nằm trong test)
+val jmh: SourceSet by sourceSets.creating {
+    compileClasspath += sourceSets.main.get().output
+    runtimeClasspath += sourceSets.main.get().output
+}
+
+dependencies {
+    "jmhImplementation"("org.openjdk.jmh:jmh-core:1.37")
+    "jmhAnnotationProcessor"("org.openjdk.jmh:jmh-generator-annprocess:1.37")
+}
+
+tasks.register<JavaExec>("jmh") {
+    group = "benchmark"
+    description = "Runs the JMH micro-benchmarks in src/jmh"
+    classpath = jmh.runtimeClasspath
+    mainClass.set("org.openjdk.jmh.Main")
+    args(project.findProperty("jmhArgs")?.toString()?.split(" ") ?: listOf<String>())
+}
+
 tasks.withType<JavaCompile> {
     options.encoding = "UTF-8"
 }
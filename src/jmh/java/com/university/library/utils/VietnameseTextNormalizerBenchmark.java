@@ -0,0 +1,62 @@
+package com.university.library.utils;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * So sánh bảng tra char[] của VietnameseTextNormalizer với chuỗi 14 lần replaceAll cũ trong BookCopyServiceImpl
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class VietnameseTextNormalizerBenchmark {
+
+    @Param({
+            "Lập trình Java",
+            "Giáo trình Cấu trúc dữ liệu và Giải thuật - Đại học Quốc gia Thành phố Hồ Chí Minh",
+            "Clean Code: A Handbook of Agile Software Craftsmanship"
+    })
+    public String text;
+
+    @Benchmark
+    public String tableToAscii() {
+        return VietnameseTextNormalizer.toAscii(text);
+    }
+
+    @Benchmark
+    public String tableNormalize() {
+        return VietnameseTextNormalizer.normalize(text);
+    }
+
+    @Benchmark
+    public String regexChain() {
+        return text
+                .replaceAll("[àáạảãâầấậẩẫăằắặẳẵ]", "a")
+                .replaceAll("[ÀÁẠẢÃÂẦẤẬẨẪĂẰẮẶẲẴ]", "A")
+                .replaceAll("[èéẹẻẽêềếệểễ]", "e")
+                .replaceAll("[ÈÉẸẺẼÊỀẾỆỂỄ]", "E")
+                .replaceAll("[ìíịỉĩ]", "i")
+                .replaceAll("[ÌÍỊỈĨ]", "I")
+                .replaceAll("[òóọỏõôồốộổỗơờớợởỡ]", "o")
+                .replaceAll("[ÒÓỌỎÕÔỒỐỘỔỖƠỜỚỢỞỠ]", "O")
+                .replaceAll("[ùúụủũưừứựửữ]", "u")
+                .replaceAll("[ÙÚỤỦŨƯỪỨỰỬỮ]", "U")
+                .replaceAll("[ỳýỵỷỹ]", "y")
+                .replaceAll("[ỲÝỴỶỸ]", "Y")
+                .replaceAll("[đ]", "d")
+                .replaceAll("[Đ]", "D");
+    }
+}
@@ -4,11 +4,11 @@ package com.university.library;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.cache.annotation.EnableCaching;
-//import org.springframework.scheduling.annotation.EnableScheduling;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication
 @EnableCaching
-//@EnableScheduling
+@EnableScheduling
 public class LibraryManagementApplication {
 
     public static void main(String[] args) {
@@ -0,0 +1,25 @@
+package com.university.library.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+@Configuration
+public class CirculationStatsConfig {
+
+    /**
+     * Pool cho các khoảng ngày của lượt dựng lại thống kê; mỗi luồng giữ một kết nối nên giữ nhỏ hơn pool DB
+     */
+    @Bean(name = "circulationBackfillExecutor")
+    public ThreadPoolTaskExecutor circulationBackfillExecutor(
+            @Value("${app.circulation-stats.backfill.parallelism:4}") int parallelism) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(parallelism);
+        executor.setMaxPoolSize(parallelism);
+        executor.setThreadNamePrefix("circulation-backfill-");
+        executor.setWaitForTasksToCompleteOnShutdown(false);
+        executor.initialize();
+        return executor;
+    }
+}
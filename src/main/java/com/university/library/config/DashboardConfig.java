@@ -0,0 +1,19 @@
+package com.university.library.config;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+@Configuration
+public class DashboardConfig {
+
+    /**
+     * Virtual thread cho các truy vấn tổng hợp của dashboard, được shutdown cùng context
+     */
+    @Bean(name = "dashboardAggregateExecutor", destroyMethod = "shutdown")
+    public ExecutorService dashboardAggregateExecutor() {
+        return Executors.newVirtualThreadPerTaskExecutor();
+    }
+}
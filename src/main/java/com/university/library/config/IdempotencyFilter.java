@@ -0,0 +1,237 @@
+package com.university.library.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.university.library.base.StandardResponse;
+import com.university.library.dto.response.idempotency.IdempotentResponse;
+import com.university.library.service.IdempotencyStore;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ReadListener;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletInputStream;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletRequestWrapper;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.ContentCachingResponseWrapper;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.concurrent.ScheduledFuture;
+
+/**
+ * Idempotency-Key cho các endpoint mượn/trả/quyên góp: máy quét thử lại cùng key sẽ nhận lại đúng
+ * response đã lưu mà không mở transaction. Chỉ lưu response 2xx, lỗi thì bỏ giữ key để được thử lại.
+ * Chạy sau Spring Security nên key được tách theo người gọi; các endpoint permitAll đều là "anonymous"
+ * nên key đi kèm fingerprint (method, URI, query string, body): dùng lại key với request khác trả 422
+ * thay vì phát lại response của request khác. Khoá đang xử lý được gia hạn định kỳ cho tới khi request xong
+ */
+@Slf4j
+@Component
+public class IdempotencyFilter extends OncePerRequestFilter {
+
+    public static final String HEADER = "Idempotency-Key";
+    public static final String REPLAYED_HEADER = "Idempotent-Replayed";
+    private static final int MAX_KEY_LENGTH = 255;
+
+    private final IdempotencyStore idempotencyStore;
+    private final ObjectMapper objectMapper;
+    private final TaskScheduler taskScheduler;
+    private final List<String> paths;
+    private final Duration renewInterval;
+
+    public IdempotencyFilter(IdempotencyStore idempotencyStore,
+                             ObjectMapper objectMapper,
+                             TaskScheduler taskScheduler,
+                             @Value("${app.idempotency.paths}") List<String> paths,
+                             @Value("${app.idempotency.lock-seconds:60}") long lockSeconds) {
+        this.idempotencyStore = idempotencyStore;
+        this.objectMapper = objectMapper;
+        this.taskScheduler = taskScheduler;
+        this.paths = paths;
+        // Gia hạn ba lần trong mỗi chu kỳ khoá để một lần trễ lịch không làm khoá hết hạn
+        this.renewInterval = Duration.ofMillis(Math.max(Duration.ofSeconds(lockSeconds).toMillis() / 3, 1000));
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        String method = request.getMethod();
+        return !("POST".equals(method) || "PUT".equals(method))
+                || request.getHeader(HEADER) == null
+                || !paths.contains(request.getRequestURI());
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request,
+                                    HttpServletResponse response,
+                                    FilterChain filterChain) throws ServletException, IOException {
+        String idempotencyKey = request.getHeader(HEADER).trim();
+        if (idempotencyKey.isEmpty() || idempotencyKey.length() > MAX_KEY_LENGTH) {
+            writeError(response, HttpStatus.BAD_REQUEST, "Invalid " + HEADER + " header");
+            return;
+        }
+
+        HttpServletRequest cachedRequest = isFormContent(request) ? request : new CachedBodyRequest(request);
+        String fingerprint = fingerprint(cachedRequest);
+        String key = request.getMethod() + " " + request.getRequestURI() + " " + caller() + " " + idempotencyKey;
+        Optional<IdempotentResponse> stored = idempotencyStore.reserve(key, fingerprint);
+        if (stored.isPresent()) {
+            if (!stored.get().matches(fingerprint)) {
+                writeError(response, HttpStatus.UNPROCESSABLE_ENTITY,
+                        HEADER + " was already used with a different request");
+            } else if (stored.get().isInProgress()) {
+                writeError(response, HttpStatus.CONFLICT, "Request with this " + HEADER + " is still being processed");
+            } else {
+                replay(response, stored.get());
+            }
+            return;
+        }
+
+        ContentCachingResponseWrapper wrapper = new ContentCachingResponseWrapper(response);
+        ScheduledFuture<?> renewal = taskScheduler.scheduleAtFixedRate(
+                () -> idempotencyStore.renew(key, fingerprint), Instant.now().plus(renewInterval), renewInterval);
+        boolean completed = false;
+        try {
+            filterChain.doFilter(cachedRequest, wrapper);
+            if (HttpStatus.valueOf(wrapper.getStatus()).is2xxSuccessful()) {
+                idempotencyStore.complete(key, IdempotentResponse.builder()
+                        .status(wrapper.getStatus())
+                        .contentType(wrapper.getContentType())
+                        .body(wrapper.getContentAsByteArray())
+                        .fingerprint(fingerprint)
+                        .build());
+                completed = true;
+            }
+        } finally {
+            renewal.cancel(false);
+            if (!completed) {
+                idempotencyStore.release(key);
+            }
+            wrapper.copyBodyToResponse();
+        }
+    }
+
+    /**
+     * SHA-256 của method, URI, query string và body. Form/multipart dùng parameter map đã sắp xếp
+     * vì đọc thẳng body sẽ làm container không parse được tham số nữa
+     */
+    private String fingerprint(HttpServletRequest request) {
+        MessageDigest digest = sha256();
+        digest.update((request.getMethod() + " " + request.getRequestURI() + "\n").getBytes(StandardCharsets.UTF_8));
+        if (request instanceof CachedBodyRequest cached) {
+            digest.update(String.valueOf(request.getQueryString()).getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) '\n');
+            digest.update(cached.body);
+        } else {
+            new TreeMap<>(request.getParameterMap()).forEach((name, values) ->
+                    digest.update((name + "=" + String.join(",", values) + "\n").getBytes(StandardCharsets.UTF_8)));
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    private static boolean isFormContent(HttpServletRequest request) {
+        String contentType = request.getContentType();
+        return contentType != null && (contentType.startsWith(MediaType.APPLICATION_FORM_URLENCODED_VALUE)
+                || contentType.startsWith("multipart/"));
+    }
+
+    private String caller() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        return authentication != null ? authentication.getName() : "anonymous";
+    }
+
+    private void replay(HttpServletResponse response, IdempotentResponse stored) throws IOException {
+        log.debug("Replaying stored response for {} {}", HEADER, stored.getStatus());
+        response.setStatus(stored.getStatus());
+        if (stored.getContentType() != null) {
+            response.setContentType(stored.getContentType());
+        }
+        response.setHeader(REPLAYED_HEADER, "true");
+        if (stored.getBody() != null) {
+            response.getOutputStream().write(stored.getBody());
+        }
+    }
+
+    private void writeError(HttpServletResponse response, HttpStatus status, String message) throws IOException {
+        response.setStatus(status.value());
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        objectMapper.writeValue(response.getOutputStream(), StandardResponse.error(message));
+    }
+
+    /**
+     * Đọc hết body một lần để vừa tính fingerprint vừa cho controller đọc lại
+     */
+    private static final class CachedBodyRequest extends HttpServletRequestWrapper {
+        private final byte[] body;
+
+        private CachedBodyRequest(HttpServletRequest request) throws IOException {
+            super(request);
+            this.body = request.getInputStream().readAllBytes();
+        }
+
+        @Override
+        public ServletInputStream getInputStream() {
+            ByteArrayInputStream in = new ByteArrayInputStream(body);
+            return new ServletInputStream() {
+                @Override
+                public int read() {
+                    return in.read();
+                }
+
+                @Override
+                public int read(byte[] b, int off, int len) {
+                    return in.read(b, off, len);
+                }
+
+                @Override
+                public boolean isFinished() {
+                    return in.available() == 0;
+                }
+
+                @Override
+                public boolean isReady() {
+                    return true;
+                }
+
+                @Override
+                public void setReadListener(ReadListener listener) {
+                    throw new UnsupportedOperationException("Async read is not supported");
+                }
+            };
+        }
+
+        @Override
+        public BufferedReader getReader() {
+            String encoding = getCharacterEncoding();
+            Charset charset = encoding != null ? Charset.forName(encoding) : StandardCharsets.UTF_8;
+            return new BufferedReader(new InputStreamReader(getInputStream(), charset));
+        }
+    }
+}
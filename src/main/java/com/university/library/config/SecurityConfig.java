@@ -78,7 +78,8 @@ public class SecurityConfig {
                                 "/swagger-ui/**",
                                 "/swagger-resources/**",
                                 "/webjars/**",
-                                "api/v1/public/**"
+                                "api/v1/public/**",
+                                "/c/{code}"
                         ).permitAll()
 
                         .requestMatchers(
@@ -90,9 +91,14 @@ public class SecurityConfig {
 
                         .requestMatchers("/api/auth/login").permitAll()
 
+                        .requestMatchers(HttpMethod.GET, "/api/v1/book-copies/qr-labels").hasRole("ADMIN")
+                        .requestMatchers(HttpMethod.POST, "/api/v1/book-copies/qr-labels/print-runs/{printRunId}/confirm").hasRole("ADMIN")
+                        .requestMatchers("/api/v1/jobs/**").hasRole("ADMIN")
+
                         .requestMatchers(HttpMethod.GET,
                                 "/api/v1/book-copies/{bookCopyId}",
                                 "/api/v1/book-copies/search",
+                                "/api/v1/book-copies/code/{shortCode}",
                                 "/api/v1/book-copies/generate-qr/{bookCopyId}",
                                 "/api/v1/book-copies/generate-all-qr-codes",
                                 "/api/v1/book-copies/book/{bookId}",
@@ -143,10 +149,17 @@ public class SecurityConfig {
 
                         .requestMatchers(HttpMethod.POST, "/api/v1/borrowings/borrow").permitAll()
                         .requestMatchers(HttpMethod.PUT, "/api/v1/borrowings/return").permitAll()
+                        .requestMatchers(HttpMethod.POST, "/api/v1/borrowings/borrow-batch").permitAll()
+                        .requestMatchers(HttpMethod.POST, "/api/v1/borrowings/borrow-any").permitAll()
+                        .requestMatchers(HttpMethod.PUT, "/api/v1/borrowings/return-batch").permitAll()
                         .requestMatchers(HttpMethod.PUT, "/api/v1/borrowings/lost").hasRole("ADMIN")
 
                         .requestMatchers(HttpMethod.POST, "/api/v1/loyalty-point/update").permitAll()
                                 .requestMatchers(HttpMethod.GET,"/api/v1/top-5-loyalty-users-by-month").hasRole("ADMIN")
+                        .requestMatchers(HttpMethod.GET, "/api/v1/loyalty/leaderboard/**").hasRole("ADMIN")
+                        .requestMatchers(HttpMethod.POST, "/api/v1/loyalty/reconcile").hasRole("ADMIN")
+                        .requestMatchers(HttpMethod.POST, "/api/v1/loyalty/retention").hasRole("ADMIN")
+                        .requestMatchers(HttpMethod.POST, "/api/v1/loyalty/monthly-totals/backfill").hasRole("ADMIN")
                         .requestMatchers(HttpMethod.POST,"/api/v1/book-copies/import-donation-book").hasRole("ADMIN")
 
                         .requestMatchers(HttpMethod.GET,  "/api/v1/accounts/get-info").hasAnyRole("READER","ADMIN")
@@ -2,19 +2,35 @@ package com.university.library.controller;
 
 import com.university.library.base.StandardResponse;
 import com.university.library.dto.response.dashboard.DashBoardResponse;
+import com.university.library.dto.response.dashboard.DashboardCounters;
 import com.university.library.service.AdminDashBoardService;
+import com.university.library.service.CirculationStatsService;
+import com.university.library.service.DashboardLiveService;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.http.codec.ServerSentEvent;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import reactor.core.publisher.Flux;
+
+import java.time.LocalDate;
 
 @RestController
 @RequestMapping("/api/v1/admin")
 public class AdminDashBoardController {
     @Autowired
     private AdminDashBoardService adminDashBoardService;
+    @Autowired
+    private CirculationStatsService circulationStatsService;
+    @Autowired
+    private DashboardLiveService dashboardLiveService;
+
     @GetMapping("/dashboard")
     public ResponseEntity<StandardResponse<DashBoardResponse>> dashboard(
             @RequestParam(defaultValue = "0") int month, @RequestParam( defaultValue = "0") int year
@@ -23,4 +39,27 @@ public class AdminDashBoardController {
         return ResponseEntity.ok(StandardResponse.
                 success(adminDashBoardService.getAdminDashBoard(month, year)));
     }
+
+    /**
+     * Bộ đếm hôm nay (mượn, trả, đang mượn, quá hạn) qua Server-Sent Events thay cho việc poll /dashboard.
+     * Trình duyệt tự gửi Last-Event-ID khi kết nối lại để nhận tiếp các delta đã lỡ
+     */
+    @GetMapping(value = "/dashboard/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public Flux<ServerSentEvent<DashboardCounters>> streamDashboard(
+            @RequestHeader(value = "Last-Event-ID", required = false) String lastEventId
+    ) {
+        return dashboardLiveService.stream(lastEventId);
+    }
+
+    /**
+     * Dựng lại daily_circulation_stats cho khoảng ngày (yyyy-MM-dd), mặc định tới hôm nay
+     */
+    @PostMapping("/dashboard/circulation-stats/backfill")
+    public ResponseEntity<StandardResponse<Integer>> backfillCirculationStats(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to
+    ) {
+        int written = circulationStatsService.backfill(from, to != null ? to : LocalDate.now());
+        return ResponseEntity.ok(StandardResponse.success("Backfill circulation stats successfully", written));
+    }
 }
@@ -8,6 +8,7 @@ import com.university.library.dto.request.bookCopy.BookCopySearchParams;
 import com.university.library.dto.request.bookCopy.CreateBookCopyCommand;
 import com.university.library.dto.request.bookCopy.CreateBookCopyFromBookCommand;
 import com.university.library.entity.BookCopy;
+import com.university.library.exception.exceptions.BadRequestException;
 import com.university.library.service.BookCopyService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
@@ -23,6 +24,7 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.util.List;
 import java.util.UUID;
@@ -34,6 +36,8 @@ import java.util.UUID;
 @Tag(name = "Book Copy Management", description = "APIs for managing book copies in the library system")
 public class BookCopyController {
 
+    private static final String PRINT_RUN_ID_HEADER = "X-Print-Run-Id";
+
     private final BookCopyService bookCopyService;
 
     // ==================== QUERY ENDPOINTS ====================
@@ -60,6 +64,50 @@ public class BookCopyController {
     }
 
 
+    @GetMapping(value = "/qr-labels", produces = MediaType.APPLICATION_PDF_VALUE)
+    @Operation(summary = "Generate PDF with QR labels not printed yet",
+            description = "Only book copies outside every confirmed print run (or created after the given ISO date-time) are printed. "
+                    + "The print run id is returned in the X-Print-Run-Id header and must be confirmed once the labels are printed")
+    public ResponseEntity<byte[]> generateQRLabelsPDF(
+            @Parameter(description = "'lastRun' or ISO date-time, e.g. 2025-01-31T00:00:00")
+            @RequestParam(defaultValue = "lastRun") String since,
+            @RequestParam(required = false) UUID campusId,
+            @RequestParam(required = false) UUID bookId) {
+        log.info("Generating QR labels since {} for campus {} and book {}", since, campusId, bookId);
+
+        try {
+            ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+            UUID printRunId = bookCopyService.writeQRLabelsPDF(since, campusId, bookId, outputStream);
+            if (printRunId == null) {
+                return ResponseEntity.noContent().build();
+            }
+            byte[] pdfBytes = outputStream.toByteArray();
+
+            return ResponseEntity.ok()
+                    .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=book-qr-labels.pdf")
+                    .header(PRINT_RUN_ID_HEADER, printRunId.toString())
+                    .contentType(MediaType.APPLICATION_PDF)
+                    .body(pdfBytes);
+        } catch (BadRequestException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .body(e.getMessage().getBytes());
+        } catch (Exception e) {
+            log.error("Error generating QR labels PDF: {}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(("Failed to generate PDF: " + e.getMessage()).getBytes());
+        }
+    }
+
+    /**
+     * Đánh dấu các nhãn của lần in đã được in thật, chỉ sau bước này chúng mới không xuất hiện ở lần in sau
+     */
+    @PostMapping("/qr-labels/print-runs/{printRunId}/confirm")
+    @Operation(summary = "Confirm a QR label print run", description = "Mark the labels of the print run as printed")
+    public ResponseEntity<StandardResponse<Void>> confirmQRPrintRun(@PathVariable UUID printRunId) {
+        bookCopyService.confirmQRPrintRun(printRunId);
+        return ResponseEntity.ok(StandardResponse.success("Print run confirmed successfully", null));
+    }
+
     @GetMapping(value = "/generate-qr/{bookCopyid}", produces = MediaType.IMAGE_PNG_VALUE)
     @Operation(summary = "Generate QR code image for booking")
     public ResponseEntity<byte[]> generateQRCode(@PathVariable UUID bookCopyid) {
@@ -94,6 +142,22 @@ public class BookCopyController {
 
 
 
+    @GetMapping("/code/{shortCode}")
+    @Operation(summary = "Get book copy by QR short code", description = "Resolve the short code printed on a QR label")
+    public ResponseEntity<StandardResponse<BookCopyResponse>> getBookCopyByShortCode(
+            @Parameter(description = "QR short code", required = true)
+            @PathVariable String shortCode) {
+
+        try {
+            BookCopyResponse bookCopy = bookCopyService.getBookCopyByShortCode(shortCode);
+            return ResponseEntity.ok(StandardResponse.success("Book copy retrieved successfully", bookCopy));
+        } catch (Exception e) {
+            log.error("Error getting book copy by code {}: {}", shortCode, e.getMessage());
+            return ResponseEntity.status(HttpStatus.NOT_FOUND)
+                .body(StandardResponse.error("Book copy not found"));
+        }
+    }
+
     @GetMapping("/search")
     @Operation(summary = "Search book copies", description = "Search book copies with pagination and filters")
     public ResponseEntity<StandardResponse<PagedResponse<BookCopyResponse>>> searchBookCopies(
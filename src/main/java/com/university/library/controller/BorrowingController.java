@@ -2,12 +2,15 @@ package com.university.library.controller;
 
 import com.university.library.base.PagedResponse;
 import com.university.library.base.StandardResponse;
+import com.university.library.dto.request.borrowing.BatchBorrowRequest;
 import com.university.library.dto.request.borrowing.BorrowRequest;
+import com.university.library.dto.response.borrowing.BatchBorrowingResponse;
 import com.university.library.dto.response.borrowing.BorrowingHistoryResponse;
 import com.university.library.dto.response.borrowing.BorrowingResponse;
 import com.university.library.dto.response.borrowing.BorrowingStateResponse;
 import com.university.library.entity.User;
 import com.university.library.entity.Borrowing;
+import com.university.library.exception.exceptions.ConflictException;
 import com.university.library.repository.BorrowingRepository;
 import com.university.library.repository.UserRepository;
 import com.university.library.service.BorrowingService;
@@ -16,6 +19,7 @@ import io.swagger.v3.oas.annotations.Operation;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
@@ -84,6 +88,10 @@ public class BorrowingController {
             return ResponseEntity.ok(StandardResponse.success(
                     borrowing
             ));
+        } catch (ConflictException e) {
+            log.warn("Conflict: {}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.CONFLICT)
+                    .body(StandardResponse.error("Cannot execute: " + e.getMessage()));
         } catch (Exception e) {
             log.error("Error in scan and borrow: {}", e.getMessage(), e);
             return ResponseEntity.badRequest()
@@ -112,6 +120,10 @@ public class BorrowingController {
             }
 
             return ResponseEntity.ok(StandardResponse.success(message, borrowing));
+        } catch (ConflictException e) {
+            log.warn("Conflict: {}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.CONFLICT)
+                    .body(StandardResponse.error("Không thể trả sách: " + e.getMessage()));
         } catch (Exception e) {
             log.error("Error returning book: {}", e.getMessage(), e);
             return ResponseEntity.badRequest()
@@ -120,6 +132,67 @@ public class BorrowingController {
     }
 
 
+    /**
+     * Mượn theo đầu sách, hệ thống tự chọn bản sao còn trống (ưu tiên campus của người mượn)
+     */
+    @PostMapping("/borrow-any")
+    @Operation(summary = "Borrow any available copy of a book, preferring the given or the borrower's campus")
+    public ResponseEntity<StandardResponse<BorrowingResponse>> borrowAnyCopy(
+            @RequestParam UUID bookId,
+            @RequestParam(required = false) UUID campusId,
+            @RequestParam String companyAccount) {
+        try {
+            BorrowingResponse borrowing = borrowingService.borrowAnyCopy(bookId, campusId, companyAccount);
+            return ResponseEntity.ok(StandardResponse.success(borrowing));
+        } catch (ConflictException e) {
+            log.warn("Conflict: {}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.CONFLICT)
+                    .body(StandardResponse.error("Cannot execute: " + e.getMessage()));
+        } catch (Exception e) {
+            log.error("Error in borrow any copy: {}", e.getMessage(), e);
+            return ResponseEntity.badRequest()
+                    .body(StandardResponse.error("Cannot execute: " + e.getMessage()));
+        }
+    }
+
+    /**
+     * Mượn nhiều sách trong một lần gọi, kết quả trả về theo từng bản sao
+     */
+    @PostMapping("/borrow-batch")
+    @Operation(summary = "Borrow many book copies in one call (partial success allowed)")
+    public ResponseEntity<StandardResponse<BatchBorrowingResponse>> borrowBatch(
+            @RequestBody BatchBorrowRequest request) {
+        try {
+            BatchBorrowingResponse response = borrowingService.borrowBooks(
+                    request.getBookCopyIds(), request.getCompanyAccount());
+            return ResponseEntity.ok(StandardResponse.success(
+                    "Mượn thành công " + response.getSucceeded() + "/" + response.getRequested() + " sách", response));
+        } catch (Exception e) {
+            log.error("Error in batch borrow: {}", e.getMessage(), e);
+            return ResponseEntity.badRequest()
+                    .body(StandardResponse.error("Cannot execute: " + e.getMessage()));
+        }
+    }
+
+    /**
+     * Trả nhiều sách trong một lần gọi, kết quả trả về theo từng bản sao
+     */
+    @PutMapping("/return-batch")
+    @Operation(summary = "Return many book copies in one call (partial success allowed)")
+    public ResponseEntity<StandardResponse<BatchBorrowingResponse>> returnBatch(
+            @RequestBody BatchBorrowRequest request) {
+        try {
+            BatchBorrowingResponse response = borrowingService.returnBooks(
+                    request.getBookCopyIds(), request.getCompanyAccount());
+            return ResponseEntity.ok(StandardResponse.success(
+                    "Trả thành công " + response.getSucceeded() + "/" + response.getRequested() + " sách", response));
+        } catch (Exception e) {
+            log.error("Error in batch return: {}", e.getMessage(), e);
+            return ResponseEntity.badRequest()
+                    .body(StandardResponse.error("Không thể trả sách: " + e.getMessage()));
+        }
+    }
+
     /**
      * Báo mất sách
      */
@@ -132,6 +205,10 @@ public class BorrowingController {
 
             return ResponseEntity.ok(StandardResponse.success(
                     "Đã báo mất sách. Phí phạt: " + borrowing.getFineAmount() + " VND", borrowing));
+        } catch (ConflictException e) {
+            log.warn("Conflict: {}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.CONFLICT)
+                    .body(StandardResponse.error("Không thể báo mất sách: " + e.getMessage()));
         } catch (Exception e) {
             log.error("Error reporting lost book: {}", e.getMessage(), e);
             return ResponseEntity.badRequest()
@@ -165,17 +242,18 @@ public class BorrowingController {
     }
 
     /**
-     * Lấy borrowings của một người dùng
+     * Lấy borrowings của một người dùng, allTime=true gộp cả lịch sử đã lưu trữ
      */
     @GetMapping("/user/{userId}")
     public ResponseEntity<StandardResponse<List<BorrowingResponse>>> getBorrowingsByUser(
             @PathVariable String companyAccount,
             @RequestParam(defaultValue = "0") int page,
-            @RequestParam(defaultValue = "10") int size) {
+            @RequestParam(defaultValue = "10") int size,
+            @RequestParam(defaultValue = "false") boolean allTime) {
         try {
             log.info("Getting borrowings for user: {} with pagination: page={}, size={}", companyAccount, page, size);
 
-            var response = borrowingService.getBorrowingsByUser(companyAccount, page, size);
+            var response = borrowingService.getBorrowingsByUser(companyAccount, page, size, allTime);
 
             return ResponseEntity.ok(StandardResponse.success("Get list of borrowing successfully", response.getContent()));
         } catch (Exception e) {
@@ -233,14 +311,15 @@ public class BorrowingController {
     }
 
     /**
-     * Lấy danh sách lịch sử bookCopy
+     * Lấy danh sách lịch sử bookCopy, allTime=true gộp cả lịch sử đã lưu trữ
      */
     @GetMapping("/{bookCopyId}/history")
     public ResponseEntity<StandardResponse<PagedResponse<BorrowingHistoryResponse>>> getBookCopyHistory(
             @PathVariable UUID bookCopyId,
             @RequestParam(defaultValue = "1") int page,
-            @RequestParam(defaultValue = "10") int size) {
-        PagedResponse<BorrowingHistoryResponse> borrowingHistoryResponses = borrowingService.findBorrowingByBookCopy_BookCopyId(page, size,bookCopyId);
+            @RequestParam(defaultValue = "10") int size,
+            @RequestParam(defaultValue = "false") boolean allTime) {
+        PagedResponse<BorrowingHistoryResponse> borrowingHistoryResponses = borrowingService.findBorrowingByBookCopy_BookCopyId(page, size, bookCopyId, allTime);
         return ResponseEntity.ok(StandardResponse.success(borrowingHistoryResponses));
     }
 
@@ -0,0 +1,100 @@
+package com.university.library.controller;
+
+import com.university.library.base.StandardResponse;
+import com.university.library.dto.response.job.ExportJobResponse;
+import com.university.library.service.ExportJobService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.io.Resource;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.MediaTypeFactory;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.UUID;
+import java.util.function.Supplier;
+
+@Slf4j
+@RestController
+@RequestMapping("/api/v1/jobs")
+@RequiredArgsConstructor
+@Tag(name = "Export Jobs", description = "Asynchronous PDF/Excel generation with download by job ID")
+public class ExportJobController {
+
+    private final ExportJobService exportJobService;
+
+    // ==================== COMMAND ENDPOINTS ====================
+
+    @PostMapping("/qr-codes")
+    @Operation(summary = "Queue PDF generation with all QR codes")
+    public ResponseEntity<StandardResponse<ExportJobResponse>> submitAllQRCodesPDF() {
+        return accept(exportJobService::submitAllQRCodesPDF);
+    }
+
+    @PostMapping("/qr-labels")
+    @Operation(summary = "Queue PDF generation with QR labels created since the last print run")
+    public ResponseEntity<StandardResponse<ExportJobResponse>> submitQRLabelsPDF(
+            @Parameter(description = "'lastRun' or ISO date-time, e.g. 2025-01-31T00:00:00")
+            @RequestParam(defaultValue = "lastRun") String since,
+            @RequestParam(required = false) UUID campusId,
+            @RequestParam(required = false) UUID bookId) {
+        return accept(() -> exportJobService.submitQRLabelsPDF(since, campusId, bookId));
+    }
+
+    @PostMapping("/books-export")
+    @Operation(summary = "Queue Excel export of all books")
+    public ResponseEntity<StandardResponse<ExportJobResponse>> submitBookExcel() {
+        return accept(exportJobService::submitBookExcel);
+    }
+
+    // ==================== QUERY ENDPOINTS ====================
+
+    @GetMapping("/{jobId}")
+    @Operation(summary = "Get export job status")
+    public ResponseEntity<StandardResponse<ExportJobResponse>> getJob(@PathVariable UUID jobId) {
+        try {
+            return ResponseEntity.ok(StandardResponse.success("Job retrieved successfully", exportJobService.getJob(jobId)));
+        } catch (Exception e) {
+            log.error("Error getting export job {}: {}", jobId, e.getMessage());
+            return ResponseEntity.status(HttpStatus.NOT_FOUND)
+                    .body(StandardResponse.error(e.getMessage()));
+        }
+    }
+
+    @GetMapping("/{jobId}/download")
+    @Operation(summary = "Download the generated file", description = "Supports HTTP Range requests so interrupted downloads can be resumed")
+    public ResponseEntity<Resource> download(@PathVariable UUID jobId) {
+        try {
+            ExportJobResponse job = exportJobService.getJob(jobId);
+            Resource file = exportJobService.getJobFile(jobId);
+            return ResponseEntity.ok()
+                    .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=" + job.getFileName())
+                    .contentType(MediaTypeFactory.getMediaType(job.getFileName())
+                            .orElse(MediaType.APPLICATION_OCTET_STREAM))
+                    .body(file);
+        } catch (Exception e) {
+            log.error("Error downloading export job {}: {}", jobId, e.getMessage());
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).build();
+        }
+    }
+
+    private ResponseEntity<StandardResponse<ExportJobResponse>> accept(Supplier<ExportJobResponse> submit) {
+        try {
+            ExportJobResponse job = submit.get();
+            return ResponseEntity.status(HttpStatus.ACCEPTED)
+                    .header(HttpHeaders.LOCATION, "/api/v1/jobs/" + job.getJobId())
+                    .body(StandardResponse.success("Job accepted", job));
+        } catch (TaskRejectedException e) {
+            log.warn("Export job queue is full: {}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .header(HttpHeaders.RETRY_AFTER, "30")
+                    .body(StandardResponse.error("Export queue is full, please retry later"));
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package com.university.library.controller;
+
+import com.university.library.base.StandardResponse;
+import com.university.library.dto.response.hold.HoldResponse;
+import com.university.library.entity.User;
+import com.university.library.exception.exceptions.ConflictException;
+import com.university.library.service.HoldService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.util.List;
+import java.util.UUID;
+
+@Slf4j
+@RestController
+@RequestMapping("/api/v1/holds")
+@RequiredArgsConstructor
+@Tag(name = "Holds", description = "Hold queue: reserve a title and get notified when a copy is ready")
+public class HoldController {
+
+    private final HoldService holdService;
+
+    /**
+     * Đặt giữ chỗ theo đầu sách
+     */
+    @PostMapping
+    @Operation(summary = "Place a hold on a book")
+    public ResponseEntity<StandardResponse<HoldResponse>> placeHold(
+            @RequestParam UUID bookId,
+            @AuthenticationPrincipal User user) {
+        try {
+            HoldResponse hold = holdService.placeHold(bookId, user.getCompanyAccount());
+            String message = hold.getBookCopyId() != null ?
+                    "Sách đã được giữ cho bạn đến " + hold.getExpiresAt() :
+                    "Đã đặt giữ chỗ, vị trí trong hàng đợi: " + hold.getPosition();
+            return ResponseEntity.ok(StandardResponse.success(message, hold));
+        } catch (ConflictException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT)
+                    .body(StandardResponse.error(e.getMessage()));
+        } catch (Exception e) {
+            log.error("Error placing hold: {}", e.getMessage(), e);
+            return ResponseEntity.badRequest()
+                    .body(StandardResponse.error("Không thể đặt giữ chỗ: " + e.getMessage()));
+        }
+    }
+
+    /**
+     * Hủy giữ chỗ
+     */
+    @DeleteMapping("/{holdId}")
+    @Operation(summary = "Cancel a hold")
+    public ResponseEntity<StandardResponse<HoldResponse>> cancelHold(
+            @PathVariable UUID holdId,
+            @AuthenticationPrincipal User user) {
+        try {
+            return ResponseEntity.ok(StandardResponse.success("Đã hủy giữ chỗ",
+                    holdService.cancelHold(holdId, user.getCompanyAccount())));
+        } catch (ConflictException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT)
+                    .body(StandardResponse.error(e.getMessage()));
+        } catch (Exception e) {
+            log.error("Error cancelling hold {}: {}", holdId, e.getMessage(), e);
+            return ResponseEntity.badRequest()
+                    .body(StandardResponse.error("Không thể hủy giữ chỗ: " + e.getMessage()));
+        }
+    }
+
+    /**
+     * Danh sách giữ chỗ đang chờ/sẵn sàng của người dùng đang đăng nhập
+     */
+    @GetMapping("/me")
+    @Operation(summary = "Get active holds of the current user")
+    public ResponseEntity<StandardResponse<List<HoldResponse>>> getActiveHolds(@AuthenticationPrincipal User user) {
+        try {
+            return ResponseEntity.ok(StandardResponse.success(holdService.getActiveHolds(user.getCompanyAccount())));
+        } catch (Exception e) {
+            log.error("Error getting holds for {}: {}", user.getCompanyAccount(), e.getMessage(), e);
+            return ResponseEntity.badRequest()
+                    .body(StandardResponse.error("Không thể lấy danh sách giữ chỗ: " + e.getMessage()));
+        }
+    }
+
+    /**
+     * Nhận sự kiện "hold-ready" khi bản sao đã được giữ, thay cho việc poll bản sao còn trống
+     */
+    @GetMapping(value = "/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @Operation(summary = "Subscribe to hold-ready notifications (Server-Sent Events)")
+    public SseEmitter subscribe(@AuthenticationPrincipal User user) {
+        return holdService.subscribe(user.getCompanyAccount());
+    }
+}
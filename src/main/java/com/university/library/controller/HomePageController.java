@@ -2,22 +2,47 @@ package com.university.library.controller;
 
 import com.university.library.base.StandardResponse;
 import com.university.library.dto.response.dashboard.DashBoardResponse;
-import com.university.library.service.AdminDashBoardService;
+import com.university.library.dto.response.dashboard.HomePageStatsSnapshot;
+import com.university.library.service.HomePageStatsService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
+import java.time.Duration;
+
 @RestController
 @RequestMapping("/api/v1/public")
 public class HomePageController {
     @Autowired
-    private AdminDashBoardService adminDashBoardService;
+    private HomePageStatsService homePageStatsService;
+
+    @Value("${app.homepage-stats.refresh-interval-ms:30000}")
+    private long refreshIntervalMs;
 
     @GetMapping("/homepage-stats")
-    public ResponseEntity<StandardResponse<DashBoardResponse>> getHomePageStats() {
-        // Get current month stats for homepage
-        return ResponseEntity.ok(StandardResponse.success(adminDashBoardService.getAdminDashBoard(0, 0)));
+    public ResponseEntity<StandardResponse<DashBoardResponse>> getHomePageStats(
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        // Get current month stats for homepage, served from the background-refreshed snapshot
+        HomePageStatsSnapshot snapshot = homePageStatsService.getSnapshot();
+        Duration maxAge = Duration.ofMillis(refreshIntervalMs);
+        CacheControl cacheControl = CacheControl.maxAge(maxAge).cachePublic().staleWhileRevalidate(maxAge);
+
+        if (ifNoneMatch != null && (ifNoneMatch.contains(snapshot.getETag()) || ifNoneMatch.trim().equals("*"))) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                    .eTag(snapshot.getETag())
+                    .cacheControl(cacheControl)
+                    .build();
+        }
+        return ResponseEntity.ok()
+                .eTag(snapshot.getETag())
+                .cacheControl(cacheControl)
+                .body(StandardResponse.success(snapshot.getStats()));
     }
 }
@@ -3,19 +3,30 @@ package com.university.library.controller;
 import com.university.library.base.StandardResponse;
 import com.university.library.dto.request.loyalty.LoyaltyRequest;
 import com.university.library.dto.response.loyalty.LoyaltyHistoryResponse;
+import com.university.library.dto.response.loyalty.LoyaltyReconcileResponse;
+import com.university.library.dto.response.loyalty.LoyaltyRetentionResponse;
 
 import com.university.library.dto.response.loyalty.LoyaltyTopResponse;
+import com.university.library.service.LoyaltyLeaderboardService;
+import com.university.library.service.LoyaltyReconcileService;
+import com.university.library.service.LoyaltyRetentionService;
+import com.university.library.service.LoyaltyRollupService;
 import com.university.library.service.LoyaltyService;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.format.DateTimeParseException;
 import java.util.List;
+import java.util.UUID;
 
 @Slf4j
 @RestController
@@ -24,6 +35,10 @@ import java.util.List;
 @Tag(name = "Loyalty Controller", description = "APIs for managing loyalty with actions in the library system")
 public class LoyaltyController {
    private final LoyaltyService loyaltyService;
+   private final LoyaltyReconcileService loyaltyReconcileService;
+   private final LoyaltyRollupService loyaltyRollupService;
+   private final LoyaltyLeaderboardService loyaltyLeaderboardService;
+   private final LoyaltyRetentionService loyaltyRetentionService;
 
     @PostMapping("/loyalty-point/update")
     public ResponseEntity<StandardResponse<LoyaltyHistoryResponse>> addLoyaltyPoint(@Valid @RequestBody LoyaltyRequest request) {
@@ -35,14 +50,69 @@ public class LoyaltyController {
     @GetMapping("/top-5-loyalty-users-by-month")
     public ResponseEntity<StandardResponse<List<LoyaltyTopResponse>>> getTop5LoyaltyUsersByMonth(
             @RequestParam(required = false) Integer month,
-            @RequestParam(required = false) Integer year) {
+            @RequestParam(required = false) Integer year,
+            @RequestParam(required = false) UUID campusId,
+            @RequestParam(required = false) String department) {
 
         int selectedMonth = month != null ? month : LocalDate.now().getMonthValue();
         int selectedYear = year != null ? year : LocalDate.now().getYear();
 
-        List<LoyaltyTopResponse> top5users = loyaltyService.getTop5LoyaltyUsersByMonth(selectedMonth, selectedYear);
+        List<LoyaltyTopResponse> top5users = loyaltyService.getTop5LoyaltyUsersByMonth(selectedMonth, selectedYear, campusId, department);
 
         return ResponseEntity.ok(StandardResponse.success("Get top 5 users highest points by months successfully", top5users));
     }
 
+    /**
+     * Bảng xếp hạng tháng hiện tại lấy từ bộ nhớ, không truy vấn DB
+     */
+    @GetMapping("/loyalty/leaderboard")
+    public ResponseEntity<StandardResponse<List<LoyaltyTopResponse>>> getLeaderboard() {
+        return ResponseEntity.ok(StandardResponse.success("Get loyalty leaderboard successfully",
+                loyaltyLeaderboardService.getLeaderboard()));
+    }
+
+    /**
+     * Nhận sự kiện "leaderboard" mỗi khi top-K của tháng hiện tại thay đổi, thay cho việc poll top 5
+     */
+    @GetMapping(value = "/loyalty/leaderboard/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter subscribeLeaderboard() {
+        return loyaltyLeaderboardService.subscribe();
+    }
+
+    /**
+     * Dựng lại bảng tổng loyalty theo tháng cho khoảng tháng (yyyy-MM) từ loyalty_history
+     */
+    @PostMapping("/loyalty/monthly-totals/backfill")
+    public ResponseEntity<StandardResponse<Integer>> backfillMonthlyTotals(
+            @RequestParam String from,
+            @RequestParam(required = false) String to) {
+        try {
+            YearMonth fromMonth = YearMonth.parse(from);
+            YearMonth toMonth = to != null ? YearMonth.parse(to) : YearMonth.now();
+            int written = loyaltyRollupService.backfill(fromMonth, toMonth);
+            return ResponseEntity.ok(StandardResponse.success("Backfill monthly loyalty totals successfully", written));
+        } catch (DateTimeParseException e) {
+            return ResponseEntity.badRequest()
+                    .body(StandardResponse.error("Month must be in yyyy-MM format: " + e.getParsedString()));
+        }
+    }
+
+    /**
+     * Đối soát số dư loyalty với loyalty_history theo yêu cầu, trả về báo cáo lệch
+     */
+    @PostMapping("/loyalty/reconcile")
+    public ResponseEntity<StandardResponse<LoyaltyReconcileResponse>> reconcileLoyaltyBalances() {
+        LoyaltyReconcileResponse report = loyaltyReconcileService.reconcile();
+        return ResponseEntity.ok(StandardResponse.success("Reconcile loyalty balances successfully", report));
+    }
+
+    /**
+     * Chạy retention loyalty_history ngay, trả về số dòng đã xoá và tốc độ xoá
+     */
+    @PostMapping("/loyalty/retention")
+    public ResponseEntity<StandardResponse<LoyaltyRetentionResponse>> purgeExpiredLoyaltyHistory() {
+        LoyaltyRetentionResponse report = loyaltyRetentionService.purgeExpiredHistory();
+        return ResponseEntity.ok(StandardResponse.success("Purge expired loyalty history successfully", report));
+    }
+
 }
@@ -0,0 +1,47 @@
+package com.university.library.controller;
+
+import com.university.library.service.BookCopyShortCodeService;
+import com.university.library.utils.BookCopyLinks;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.UUID;
+
+/**
+ * QR in URL {app.public-base-url}/c/{code}; nginx của frontend chuyển /c/ về backend, resolver chuyển hướng
+ * tới trang bản sao trên frontend
+ */
+@Slf4j
+@RestController
+@Tag(name = "QR Short Code", description = "Resolve short codes printed on book copy QR labels")
+public class ShortCodeController {
+    private final BookCopyShortCodeService bookCopyShortCodeService;
+    private final String frontendUrl;
+
+    public ShortCodeController(BookCopyShortCodeService bookCopyShortCodeService,
+                               @Value("${app.frontend-url:http://localhost:8081}") String frontendUrl) {
+        this.bookCopyShortCodeService = bookCopyShortCodeService;
+        this.frontendUrl = frontendUrl;
+    }
+
+    @GetMapping("/c/{code}")
+    @Operation(summary = "Resolve QR short code", description = "Redirect a scanned short code to the book copy page")
+    public ResponseEntity<Void> resolve(@PathVariable String code) {
+        UUID bookCopyId = bookCopyShortCodeService.resolve(code);
+        if (bookCopyId == null) {
+            log.warn("Unknown short code scanned: {}", code);
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).build();
+        }
+        return ResponseEntity.status(HttpStatus.FOUND)
+                .header(HttpHeaders.LOCATION, BookCopyLinks.frontendUrl(frontendUrl, bookCopyId))
+                .build();
+    }
+}
@@ -0,0 +1,12 @@
+package com.university.library.dto.request.borrowing;
+
+import lombok.Data;
+
+import java.util.List;
+import java.util.UUID;
+
+@Data
+public class BatchBorrowRequest {
+    private List<UUID> bookCopyIds;
+    private String companyAccount;
+}
@@ -21,6 +21,7 @@ public class BookCopyResponse {
     private CampusResponse campus;
     private BookStatus status;
     private String shelfLocation;
+    private String shortCode;
     private Long borrowingCount;
     private LocalDateTime createdAt;
     private LocalDateTime updatedAt;
@@ -36,6 +37,7 @@ public class BookCopyResponse {
             .campus(bookCopy.getCampus() != null ? CampusResponse.fromEntitySimple(bookCopy.getCampus()) : null)
             .status(convertBookStatus(bookCopy.getStatus()))
             .shelfLocation(bookCopy.getShelfLocation())
+            .shortCode(bookCopy.getShortCode())
             .borrowingCount(0L) // Avoid lazy loading of borrowings
             .createdAt(bookCopy.getCreatedAt())
             .updatedAt(bookCopy.getUpdatedAt())
@@ -0,0 +1,41 @@
+package com.university.library.dto.response.borrowing;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+import java.util.UUID;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BatchBorrowingResponse {
+    private int requested;
+    private int succeeded;
+    private int failed;
+    private List<ItemResult> results;
+
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class ItemResult {
+        private UUID bookCopyId;
+        private boolean success;
+        private String message;
+        private BorrowingResponse borrowing;
+    }
+
+    public static BatchBorrowingResponse of(List<ItemResult> results) {
+        int succeeded = (int) results.stream().filter(ItemResult::isSuccess).count();
+        return BatchBorrowingResponse.builder()
+                .requested(results.size())
+                .succeeded(succeeded)
+                .failed(results.size() - succeeded)
+                .results(results)
+                .build();
+    }
+}
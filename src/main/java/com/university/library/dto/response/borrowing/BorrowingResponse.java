@@ -48,7 +48,7 @@ public class BorrowingResponse {
             .notes(borrowing.getNotes())
             .isOverdue(borrowing.isOverdue())
             .overdueDays(borrowing.getOverdueDays())
-            .calculatedFine(borrowing.calculateFine())
+            .calculatedFine(borrowing.getAccruedFine())
             .createdAt(borrowing.getCreatedAt())
             .updatedAt(borrowing.getUpdatedAt())
             .build();
@@ -0,0 +1,32 @@
+package com.university.library.dto.response.borrowing;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.UUID;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class DueDateReminder {
+    private UUID borrowingId;
+    private String companyAccount;
+    private String bookTitle;
+    private LocalDateTime dueDate;
+    /**
+     * Nhắc trước hạn bao nhiêu ngày (3, 1...)
+     */
+    private int daysBefore;
+    private int attempts;
+    /**
+     * Các kênh đã gửi xong, lần thử lại chỉ gửi qua các kênh còn thiếu
+     */
+    @Builder.Default
+    private Set<String> deliveredChannels = new HashSet<>();
+}
@@ -14,6 +14,12 @@ public class DashBoardResponse {
     private long totalUsers;
     private long totalBorrow;
     private List<StatisticResponse> statisticResponse;
+    /**
+     * true khi có chỉ số quá thời gian hoặc lỗi, giá trị của chúng trong response là rỗng/0
+     */
+    private boolean partial;
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private List<String> failedMetrics;
 
 
     @Data
@@ -22,6 +28,9 @@ public class DashBoardResponse {
     public static class StatisticResponse {
         private int numberBorrows;
         private int numberReturns;
+        private int numberOverdue;
+        private int numberLost;
+        private double totalFines;
         private LocalDate date;
         private Integer month;
     }
@@ -0,0 +1,29 @@
+package com.university.library.dto.response.dashboard;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+
+/**
+ * Bộ đếm dashboard trực tiếp. Sự kiện "snapshot" mang giá trị tuyệt đối, sự kiện "delta" mang phần thay đổi
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class DashboardCounters {
+    private LocalDate date;
+    private long borrowsToday;
+    private long returnsToday;
+    private long activeLoans;
+    private long overdue;
+
+    @JsonIgnore
+    public boolean isEmpty() {
+        return borrowsToday == 0 && returnsToday == 0 && activeLoans == 0 && overdue == 0;
+    }
+}
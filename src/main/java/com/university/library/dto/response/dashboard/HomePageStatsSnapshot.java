@@ -0,0 +1,17 @@
+package com.university.library.dto.response.dashboard;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.time.Instant;
+
+/**
+ * Bản chụp thống kê trang chủ dùng chung cho mọi request; eTag là hash nội dung stats
+ */
+@Data
+@AllArgsConstructor
+public class HomePageStatsSnapshot {
+    private DashBoardResponse stats;
+    private String eTag;
+    private Instant computedAt;
+}
@@ -0,0 +1,44 @@
+package com.university.library.dto.response.event;
+
+import com.university.library.entity.LoyaltyHistory;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Sự kiện nghiệp vụ được ghi vào outbox cùng transaction với thay đổi gốc, relay phát lại cho các consumer
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class DomainEvent {
+    private UUID eventId;
+    private EventType type;
+    /**
+     * Tài khoản người mượn; consumer tự tra userId nếu userId trống
+     */
+    private String companyAccount;
+    private UUID userId;
+    private UUID bookId;
+    private UUID bookCopyId;
+    private UUID borrowingId;
+    /**
+     * Điểm loyalty cần cộng/trừ cho sự kiện này, null nếu không đổi điểm (vd. quá hạn đã bị trừ khi quét)
+     */
+    private LoyaltyHistory.LoyaltyAction loyaltyAction;
+    private LocalDateTime occurredAt;
+
+    public enum EventType {
+        BOOK_BORROWED,
+        BOOK_RETURNED,
+        BOOK_LOST,
+        BOOK_OVERDUE,
+        BOOK_REVIEWED,
+        BOOK_DONATED
+    }
+}
@@ -0,0 +1,50 @@
+package com.university.library.dto.response.hold;
+
+import com.university.library.entity.Hold;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class HoldResponse {
+    private UUID holdId;
+    private UUID bookId;
+    private String bookTitle;
+    private String companyAccount;
+    private UUID bookCopyId;
+    private String shortCode;
+    private Hold.HoldStatus status;
+    /**
+     * Vị trí trong hàng đợi (1 là đầu hàng), null nếu không còn chờ
+     */
+    private Integer position;
+    private LocalDateTime readyAt;
+    private LocalDateTime expiresAt;
+    private LocalDateTime createdAt;
+
+    public static HoldResponse fromEntity(Hold hold) {
+        if (hold == null) {
+            return null;
+        }
+
+        return HoldResponse.builder()
+            .holdId(hold.getHoldId())
+            .bookId(hold.getBook() != null ? hold.getBook().getBookId() : null)
+            .bookTitle(hold.getBook() != null ? hold.getBook().getTitle() : null)
+            .companyAccount(hold.getCompanyAccount())
+            .bookCopyId(hold.getBookCopy() != null ? hold.getBookCopy().getBookCopyId() : null)
+            .shortCode(hold.getBookCopy() != null ? hold.getBookCopy().getShortCode() : null)
+            .status(hold.getStatus())
+            .readyAt(hold.getReadyAt())
+            .expiresAt(hold.getExpiresAt())
+            .createdAt(hold.getCreatedAt())
+            .build();
+    }
+}
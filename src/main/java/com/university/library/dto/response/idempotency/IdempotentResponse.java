@@ -0,0 +1,38 @@
+package com.university.library.dto.response.idempotency;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Response đã lưu cho một Idempotency-Key, status = 0 nghĩa là request gốc vẫn đang xử lý.
+ * fingerprint là hash của method, URI, query string và body của request gốc
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class IdempotentResponse {
+    private int status;
+    private String contentType;
+    private byte[] body;
+    private String fingerprint;
+
+    public static IdempotentResponse inProgress(String fingerprint) {
+        return IdempotentResponse.builder().fingerprint(fingerprint).build();
+    }
+
+    @JsonIgnore
+    public boolean isInProgress() {
+        return status == 0;
+    }
+
+    /**
+     * Bản ghi cũ chưa có fingerprint được coi là khớp
+     */
+    public boolean matches(String otherFingerprint) {
+        return fingerprint == null || fingerprint.equals(otherFingerprint);
+    }
+}
@@ -0,0 +1,43 @@
+package com.university.library.dto.response.job;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ExportJobResponse {
+    private UUID jobId;
+    private JobType type;
+    private JobStatus status;
+    private String fileName;
+    private Long fileSize;
+    private String error;
+    /**
+     * Lần in nhãn QR cần xác nhận sau khi in (chỉ với QR_LABELS_PDF)
+     */
+    private UUID printRunId;
+    private String downloadUrl;
+    private LocalDateTime createdAt;
+    private LocalDateTime finishedAt;
+
+    public enum JobType {
+        ALL_QR_CODES_PDF,
+        QR_LABELS_PDF,
+        BOOK_EXCEL
+    }
+
+    public enum JobStatus {
+        QUEUED,
+        RUNNING,
+        DONE,
+        EMPTY,
+        FAILED
+    }
+}
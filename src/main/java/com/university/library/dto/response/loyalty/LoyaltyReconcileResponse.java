@@ -0,0 +1,33 @@
+package com.university.library.dto.response.loyalty;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+import java.util.UUID;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class LoyaltyReconcileResponse {
+    private int usersChecked;
+    private int driftedUsers;
+    /**
+     * Tổng |số dư - tổng ledger| của các user bị lệch
+     */
+    private long totalDrift;
+    private int corrected;
+    private List<Drift> samples;
+
+    @Data
+    @AllArgsConstructor
+    @NoArgsConstructor
+    public static class Drift {
+        private UUID userId;
+        private int balance;
+        private int ledger;
+    }
+}
@@ -0,0 +1,25 @@
+package com.university.library.dto.response.loyalty;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class LoyaltyRetentionResponse {
+    private LocalDateTime cutoff;
+    private int rolledUpTotals;
+    private long deletedRows;
+    private int chunks;
+    private long elapsedMs;
+    private double rowsPerSecond;
+    /**
+     * false khi dừng vì hết thời gian cho phép, lần chạy sau sẽ xoá tiếp
+     */
+    private boolean completed;
+}
@@ -0,0 +1,34 @@
+package com.university.library.entity;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Số lượt mượn đang mở của mỗi companyAccount, tăng/giảm nguyên tử cùng transaction mượn/trả
+ * và được đối soát lại với bảng borrowings hằng đêm
+ */
+@Entity
+@Table(name = "active_loans")
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ActiveLoan {
+    @Id
+    @Column(name = "company_account")
+    private String companyAccount;
+
+    @Column(name = "active_count", nullable = false)
+    private Integer activeCount;
+
+    @Column(name = "updated_at", nullable = false)
+    private LocalDateTime updatedAt;
+}
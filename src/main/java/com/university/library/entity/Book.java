@@ -1,6 +1,7 @@
 package com.university.library.entity;
 
 import com.university.library.base.BaseEntity;
+import com.university.library.utils.VietnameseTextNormalizer;
 import jakarta.persistence.*;
 import java.util.ArrayList;
 import java.util.List;
@@ -13,7 +14,9 @@ import lombok.experimental.SuperBuilder;
 import lombok.Builder;
 
 @Entity
-@Table(name = "books")
+@Table(name = "books", indexes = {
+        @Index(name = "idx_books_normalized_title", columnList = "normalized_title")
+})
 @Data
 @SuperBuilder
 @NoArgsConstructor
@@ -51,8 +54,43 @@ public class Book extends BaseEntity {
     @JoinColumn(name = "category_id")
     private Category category;
 
+    /**
+     * Tiêu đề đã bỏ dấu/chữ thường, dùng để khử trùng lặp khi import và donate
+     */
+    @Column(name = "normalized_title")
+    private String normalizedTitle;
+
+    /**
+     * title + author + publisher đã chuẩn hoá, dùng cho tìm kiếm không dấu
+     */
+    @Column(name = "search_text", columnDefinition = "TEXT")
+    private String searchText;
+
     @OneToMany(mappedBy = "book", cascade = CascadeType.ALL, fetch = FetchType.LAZY)
     private List<BookCopy> bookCopies = new ArrayList<>();
     @OneToMany(mappedBy = "book", cascade = CascadeType.ALL,fetch = FetchType.LAZY)
     private List<Comment> comments = new ArrayList<>();
+
+    @Override
+    @PrePersist
+    protected void onCreate() {
+        super.onCreate();
+        refreshNormalizedFields();
+    }
+
+    @Override
+    @PreUpdate
+    protected void onUpdate() {
+        super.onUpdate();
+        refreshNormalizedFields();
+    }
+
+    public void refreshNormalizedFields() {
+        normalizedTitle = VietnameseTextNormalizer.normalize(title);
+        searchText = VietnameseTextNormalizer.normalize(
+                String.join(" ",
+                        title != null ? title : "",
+                        author != null ? author : "",
+                        publisher != null ? publisher : ""));
+    }
 }
\ No newline at end of file
@@ -3,6 +3,7 @@ package com.university.library.entity;
 import com.fasterxml.jackson.annotation.JsonCreator;
 import com.fasterxml.jackson.annotation.JsonValue;
 import com.university.library.base.BaseEntity;
+import com.university.library.utils.ShortCodeGenerator;
 import jakarta.persistence.*;
 import java.time.Instant;
 import java.util.ArrayList;
@@ -15,7 +16,12 @@ import lombok.NoArgsConstructor;
 import lombok.experimental.SuperBuilder;
 
 @Entity
-@Table(name = "book_copies")
+@Table(name = "book_copies", indexes = {
+        @Index(name = "idx_book_copies_created_at_id", columnList = "created_at, book_copy_id"),
+        @Index(name = "idx_book_copies_short_code", columnList = "short_code", unique = true),
+        @Index(name = "idx_book_copies_book_status", columnList = "book_id, status"),
+        @Index(name = "idx_book_copies_qr_print_run", columnList = "qr_print_run_id")
+})
 @Data
 @SuperBuilder
 @NoArgsConstructor
@@ -41,11 +47,33 @@ public class BookCopy extends BaseEntity {
     @Column(name = "shelf_location", length = 100)
     private String shelfLocation;
 
+    /**
+     * Mã ngắn base-62 in trên QR thay cho URL đầy đủ + UUID
+     */
+    @Column(name = "short_code", length = 16)
+    private String shortCode;
+
+    /**
+     * Lần in nhãn QR gần nhất chứa bản sao này, chỉ tính là đã in khi lần in đó đã được xác nhận
+     */
+    @Column(name = "qr_print_run_id")
+    private UUID qrPrintRunId;
+
 //    @Column(name = "qr_code_data", length = 100)
 //    private String qrCodeData;
     
     @OneToMany(mappedBy = "bookCopy", cascade = CascadeType.ALL, fetch = FetchType.LAZY)
     private List<Borrowing> borrowings = new ArrayList<>();
+
+    @Override
+    @PrePersist
+    protected void onCreate() {
+        super.onCreate();
+        if (shortCode == null) {
+            shortCode = ShortCodeGenerator.generate();
+        }
+    }
+
     public enum BookStatus {
         AVAILABLE, BORROWED, RESERVED, PENDING, LOST, DAMAGED
     }
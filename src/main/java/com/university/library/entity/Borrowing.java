@@ -7,12 +7,22 @@ import java.time.LocalDateTime;
 import java.time.temporal.ChronoUnit;
 import java.util.UUID;
 import lombok.AllArgsConstructor;
+import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import lombok.experimental.SuperBuilder;
 
+/**
+ * Bảng borrowings được phân vùng theo tháng của borrowed_date (xem BorrowingPartitionServiceImpl),
+ * truy vấn nên lọc/sắp theo borrowedDate để PostgreSQL loại bỏ được partition không liên quan.
+ */
 @Entity
-@Table(name = "borrowings")
+@Table(name = "borrowings", indexes = {
+        @Index(name = "idx_borrowings_status_due_date", columnList = "status, due_date, borrowing_id"),
+        @Index(name = "idx_borrowings_borrowed_date", columnList = "borrowed_date"),
+        @Index(name = "idx_borrowings_returned_date", columnList = "returned_date"),
+        @Index(name = "idx_borrowings_book_copy_status", columnList = "book_copy_id, status")
+})
 @Data
 @SuperBuilder
 @NoArgsConstructor
@@ -49,6 +59,16 @@ public class Borrowing extends BaseEntity {
     @Column(name = "notes", columnDefinition = "TEXT")
     private String notes;
 
+    /**
+     * Cờ quá hạn do job quét overdue ghi lại, fine_amount lúc đó là tiền phạt đã cộng dồn
+     */
+    @Column(name = "is_overdue")
+    @Builder.Default
+    private Boolean overdue = false;
+
+    public static final double DAILY_FINE = 10000.0; // 10,000 VND per day
+    public static final long MAX_FINE_DAYS = 30; // Tối đa tính phí 30 ngày
+
     public enum BorrowingStatus {
         BORROWED,           // Đang mượn
         RETURNED,           // Đã trả
@@ -57,9 +77,26 @@ public class Borrowing extends BaseEntity {
     }
 
     /**
-     * Kiểm tra xem có quá hạn không
+     * Kiểm tra xem có quá hạn không. Đang mượn thì đọc cờ đã lưu thay vì so với thời gian hiện tại
      */
     public boolean isOverdue() {
+        if (status == BorrowingStatus.BORROWED) {
+            return Boolean.TRUE.equals(overdue);
+        }
+        return isPastDue();
+    }
+
+    /**
+     * Tiền phạt hiển thị: đang mượn thì lấy giá trị job quét đã cộng dồn, còn lại tính theo ngày trả
+     */
+    public double getAccruedFine() {
+        if (status == BorrowingStatus.BORROWED) {
+            return fineAmount != null ? fineAmount : 0.0;
+        }
+        return calculateFine();
+    }
+
+    private boolean isPastDue() {
         if (status == BorrowingStatus.RETURNED || status == BorrowingStatus.OVERDUE) {
             // Đã trả rồi thì kiểm tra ngày trả
             return returnedDate != null && returnedDate.isAfter(dueDate);
@@ -74,7 +111,7 @@ public class Borrowing extends BaseEntity {
      * Tính số ngày quá hạn
      */
     public long getOverdueDays() {
-        if (!isOverdue()) {
+        if (!isPastDue()) {
             return 0;
         }
 
@@ -99,9 +136,6 @@ public class Borrowing extends BaseEntity {
             return 0.0;
         }
 
-        final double DAILY_FINE = 10000.0; // 10,000 VND per day
-        final long MAX_FINE_DAYS = 30; // Tối đa tính phí 30 ngày
-
         long chargingDays = Math.min(overdueDays, MAX_FINE_DAYS);
         return chargingDays * DAILY_FINE;
     }
@@ -0,0 +1,84 @@
+package com.university.library.entity;
+
+import com.university.library.base.BaseEntity;
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.experimental.SuperBuilder;
+import org.hibernate.annotations.Immutable;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Kho lạnh của borrowings: các lượt mượn đã đóng (RETURNED/OVERDUE/LOST) quá hạn lưu trữ được
+ * BorrowingArchiveServiceImpl chuyển sang đây. Chỉ đọc, book_copy_id không giữ FK để xóa bản sao vẫn được.
+ */
+@Entity
+@Immutable
+@Table(name = "borrowings_archive", indexes = {
+        @Index(name = "idx_borrowings_archive_company_account", columnList = "company_account, borrowed_date"),
+        @Index(name = "idx_borrowings_archive_book_copy", columnList = "book_copy_id, borrowed_date")
+})
+@Data
+@SuperBuilder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BorrowingArchive extends BaseEntity {
+    @Id
+    @Column(name = "borrowing_id")
+    private UUID borrowingId;
+
+    @Column(name = "book_copy_id", nullable = false)
+    private UUID bookCopyId;
+
+    @Column(name = "company_account")
+    private String companyAccount;
+
+    @Column(name = "borrowed_date", nullable = false)
+    private LocalDateTime borrowedDate;
+
+    @Column(name = "due_date", nullable = false)
+    private LocalDateTime dueDate;
+
+    @Column(name = "returned_date")
+    private LocalDateTime returnedDate;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "status", nullable = false, length = 50)
+    private Borrowing.BorrowingStatus status;
+
+    @Column(name = "fine_amount")
+    private Double fineAmount;
+
+    @Column(name = "notes", columnDefinition = "TEXT")
+    private String notes;
+
+    @Column(name = "is_overdue")
+    private Boolean overdue;
+
+    @Column(name = "archived_at", nullable = false)
+    private LocalDateTime archivedAt;
+
+    /**
+     * Dựng lại Borrowing (không được quản lý bởi JPA) để dùng chung mapper response với dữ liệu nóng
+     */
+    public Borrowing toBorrowing(BookCopy bookCopy) {
+        return Borrowing.builder()
+                .borrowingId(borrowingId)
+                .bookCopy(bookCopy)
+                .companyAccount(companyAccount)
+                .borrowedDate(borrowedDate)
+                .dueDate(dueDate)
+                .returnedDate(returnedDate)
+                .status(status)
+                .fineAmount(fineAmount)
+                .notes(notes)
+                .overdue(overdue)
+                .isDeleted(getIsDeleted())
+                .createdAt(getCreatedAt())
+                .updatedAt(getUpdatedAt())
+                .build();
+    }
+}
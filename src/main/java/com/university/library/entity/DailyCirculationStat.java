@@ -0,0 +1,61 @@
+package com.university.library.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Số lượt lưu thông theo ngày và campus của bản sao, cộng dồn bởi outbox consumer và dựng lại được bằng backfill.
+ * borrows theo borrowed_date, returns/fines theo ngày trả (hoặc ngày báo mất, tức updated_at của dòng LOST), overdue theo due_date
+ */
+@Entity
+@IdClass(DailyCirculationStat.Key.class)
+@Table(name = "daily_circulation_stats")
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class DailyCirculationStat {
+    @Id
+    @Column(name = "stat_date")
+    private LocalDate statDate;
+
+    @Id
+    @Column(name = "campus_id")
+    private UUID campusId;
+
+    @Column(name = "borrows", nullable = false)
+    private Integer borrows;
+
+    @Column(name = "returns", nullable = false)
+    private Integer returns;
+
+    @Column(name = "overdue", nullable = false)
+    private Integer overdue;
+
+    @Column(name = "lost", nullable = false)
+    private Integer lost;
+
+    @Column(name = "fines", nullable = false)
+    private Double fines;
+
+    @Column(name = "updated_at", nullable = false)
+    private LocalDateTime updatedAt;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Key implements Serializable {
+        private static final long serialVersionUID = 1L;
+
+        private LocalDate statDate;
+        private UUID campusId;
+    }
+}
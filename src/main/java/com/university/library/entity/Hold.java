@@ -0,0 +1,64 @@
+package com.university.library.entity;
+
+import com.university.library.base.BaseEntity;
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+import java.util.UUID;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.experimental.SuperBuilder;
+
+/**
+ * Lượt giữ chỗ theo đầu sách. Khi có bản sao được trả, hold đứng đầu hàng đợi (FIFO theo created_at)
+ * nhận bản sao đó ở trạng thái READY cho đến expires_at.
+ */
+@Entity
+@Table(name = "holds", indexes = {
+        @Index(name = "idx_holds_book_status_created", columnList = "book_id, status, created_at"),
+        @Index(name = "idx_holds_status_expires", columnList = "status, expires_at"),
+        @Index(name = "idx_holds_account_status", columnList = "company_account, status"),
+        @Index(name = "idx_holds_book_copy_status", columnList = "book_copy_id, status")
+})
+@Data
+@SuperBuilder
+@NoArgsConstructor
+@AllArgsConstructor
+public class Hold extends BaseEntity {
+    @Id
+    @GeneratedValue(strategy = GenerationType.UUID)
+    @Column(name = "hold_id")
+    private UUID holdId;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "book_id", nullable = false)
+    private Book book;
+
+    @Column(name = "company_account", nullable = false)
+    private String companyAccount;
+
+    /**
+     * Bản sao được giữ cho người đặt, chỉ có khi status = READY/FULFILLED
+     */
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "book_copy_id")
+    private BookCopy bookCopy;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "status", nullable = false, length = 20)
+    private HoldStatus status;
+
+    @Column(name = "ready_at")
+    private LocalDateTime readyAt;
+
+    @Column(name = "expires_at")
+    private LocalDateTime expiresAt;
+
+    public enum HoldStatus {
+        WAITING,
+        READY,
+        FULFILLED,
+        EXPIRED,
+        CANCELLED
+    }
+}
@@ -0,0 +1,38 @@
+package com.university.library.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Tổng điểm của các dòng loyalty_history đã bị xoá theo retention, ghi cùng câu lệnh xoá.
+ * Số dư theo ledger = points + tổng loyalty_history còn lại; archived_through là created_at lớn nhất đã xoá
+ */
+@Entity
+@Table(name = "loyalty_carried_balances")
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class LoyaltyCarriedBalance {
+    @Id
+    @Column(name = "user_id")
+    private UUID userId;
+
+    @Column(name = "points", nullable = false)
+    private Long points;
+
+    @Column(name = "archived_rows", nullable = false)
+    private Long archivedRows;
+
+    @Column(name = "archived_through", nullable = false)
+    private LocalDateTime archivedThrough;
+
+    @Column(name = "updated_at", nullable = false)
+    private LocalDateTime updatedAt;
+}
@@ -9,7 +9,10 @@ import lombok.experimental.SuperBuilder;
 import java.util.UUID;
 
 @Entity
-@Table(name = "loyalty_history")
+@Table(name = "loyalty_history", indexes = {
+        @Index(name = "idx_loyalty_history_created_at", columnList = "created_at"),
+        @Index(name = "idx_loyalty_history_created_at_id", columnList = "created_at, loyalty_history_id")
+})
 @Getter
 @Setter
 @SuperBuilder
@@ -0,0 +1,75 @@
+package com.university.library.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Tổng điểm loyalty theo user và tháng (yearMonth dạng yyyyMM), cộng dồn cùng transaction ghi loyalty_history.
+ * points chỉ tính điểm dương như bảng xếp hạng; campus_id/department chép từ user để lọc top theo index
+ */
+@Entity
+@IdClass(LoyaltyMonthlyTotal.Key.class)
+@Table(name = "loyalty_monthly_totals", indexes = {
+        @Index(name = "idx_loyalty_monthly_totals_month_points", columnList = "year_month, points"),
+        @Index(name = "idx_loyalty_monthly_totals_campus_points", columnList = "year_month, campus_id, points"),
+        @Index(name = "idx_loyalty_monthly_totals_department_points", columnList = "year_month, department, points")
+})
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class LoyaltyMonthlyTotal {
+    @Id
+    @Column(name = "user_id")
+    private UUID userId;
+
+    @Id
+    @Column(name = "year_month")
+    private Integer yearMonth;
+
+    @Column(name = "campus_id")
+    private UUID campusId;
+
+    @Column(name = "department", length = 255)
+    private String department;
+
+    @Column(name = "points", nullable = false)
+    private Integer points;
+
+    @Column(name = "borrow_count", nullable = false)
+    private Integer borrowCount;
+
+    @Column(name = "return_count", nullable = false)
+    private Integer returnCount;
+
+    @Column(name = "donation_count", nullable = false)
+    private Integer donationCount;
+
+    @Column(name = "updated_at", nullable = false)
+    private LocalDateTime updatedAt;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Key implements Serializable {
+        private static final long serialVersionUID = 1L;
+
+        private UUID userId;
+        private Integer yearMonth;
+    }
+
+    public static int yearMonthOf(int year, int month) {
+        return year * 100 + month;
+    }
+
+    public static int yearMonthOf(LocalDateTime time) {
+        return yearMonthOf(time.getYear(), time.getMonthValue());
+    }
+}
@@ -0,0 +1,41 @@
+package com.university.library.entity;
+
+import com.university.library.base.BaseEntity;
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+import java.util.UUID;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.experimental.SuperBuilder;
+
+/**
+ * Một lần in nhãn QR. Các bản sao trong lần in được gắn qr_print_run_id; chỉ khi người in xác nhận
+ * (confirmed_at) chúng mới được coi là đã in, lần in chưa xác nhận thì bản sao vẫn xuất hiện ở lần in sau.
+ */
+@Entity
+@Table(name = "qr_print_runs", indexes = {
+        @Index(name = "idx_qr_print_runs_scope", columnList = "campus_id, book_id, created_at")
+})
+@Data
+@SuperBuilder
+@NoArgsConstructor
+@AllArgsConstructor
+public class QrPrintRun extends BaseEntity {
+    @Id
+    @GeneratedValue(strategy = GenerationType.UUID)
+    @Column(name = "print_run_id")
+    private UUID printRunId;
+
+    @Column(name = "campus_id")
+    private UUID campusId;
+
+    @Column(name = "book_id")
+    private UUID bookId;
+
+    @Column(name = "label_count", nullable = false)
+    private int labelCount;
+
+    @Column(name = "confirmed_at")
+    private LocalDateTime confirmedAt;
+}
@@ -0,0 +1,58 @@
+package com.university.library.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Quyền gửi một mốc nhắc (borrowing, số ngày trước hạn) qua một kênh. Mỗi instance đều dựng timing wheel riêng,
+ * instance nào giành được dòng này mới gửi; sent_at null và claimed_at quá hạn thuê thì instance khác giành lại được
+ */
+@Entity
+@IdClass(ReminderDelivery.Key.class)
+@Table(name = "reminder_deliveries", indexes = {
+        @Index(name = "idx_reminder_deliveries_claim_token", columnList = "claim_token")
+})
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ReminderDelivery {
+    @Id
+    @Column(name = "borrowing_id")
+    private UUID borrowingId;
+
+    @Id
+    @Column(name = "days_before")
+    private Integer daysBefore;
+
+    @Id
+    @Column(name = "channel", length = 50)
+    private String channel;
+
+    @Column(name = "claim_token", nullable = false)
+    private UUID claimToken;
+
+    @Column(name = "claimed_at", nullable = false)
+    private LocalDateTime claimedAt;
+
+    @Column(name = "sent_at")
+    private LocalDateTime sentAt;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Key implements Serializable {
+        private static final long serialVersionUID = 1L;
+
+        private UUID borrowingId;
+        private Integer daysBefore;
+        private String channel;
+    }
+}
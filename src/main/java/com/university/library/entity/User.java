@@ -9,10 +9,16 @@ import java.util.stream.Collectors;
 
 import lombok.*;
 import lombok.experimental.SuperBuilder;
+import org.hibernate.annotations.DynamicUpdate;
 import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
 
+/**
+ * loyalty_points chỉ được cộng bằng UPDATE ... + delta (UserRepository.addLoyaltyPoints), @DynamicUpdate để
+ * việc lưu các thay đổi khác của User không ghi đè số dư bằng giá trị cũ đã nạp
+ */
 @Entity
+@DynamicUpdate
 @Table(name = "accounts")
 @Getter
 @Setter
@@ -0,0 +1,92 @@
+package com.university.library.repository;
+
+import com.university.library.entity.ActiveLoan;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+/**
+ * Các câu lệnh ghi dùng RETURNING nên khai báo như query thường (không @Modifying),
+ * luôn được gọi bên trong transaction ghi của service
+ */
+@Repository
+public interface ActiveLoanRepository extends JpaRepository<ActiveLoan, String> {
+
+    /**
+     * Tăng bộ đếm thêm :count nếu không vượt :limit, tạo dòng nếu chưa có.
+     * Rỗng nghĩa là đã chạm giới hạn, không cần đọc COUNT trước
+     */
+    @Query(value = """
+            INSERT INTO active_loans (company_account, active_count, updated_at)
+            SELECT :companyAccount, :count, :now WHERE :count <= :limit
+            ON CONFLICT (company_account) DO UPDATE
+                SET active_count = active_loans.active_count + EXCLUDED.active_count,
+                    updated_at = EXCLUDED.updated_at
+                WHERE active_loans.active_count + EXCLUDED.active_count <= :limit
+            RETURNING active_count
+            """, nativeQuery = true)
+    Optional<Integer> tryIncrement(@Param("companyAccount") String companyAccount,
+                                   @Param("count") int count,
+                                   @Param("limit") int limit,
+                                   @Param("now") LocalDateTime now);
+
+    /**
+     * Khóa dòng đếm của người mượn tới hết transaction và trả về giá trị hiện tại, dùng cho mượn theo lô
+     */
+    @Query(value = """
+            INSERT INTO active_loans (company_account, active_count, updated_at)
+            VALUES (:companyAccount, 0, :now)
+            ON CONFLICT (company_account) DO UPDATE SET updated_at = EXCLUDED.updated_at
+            RETURNING active_count
+            """, nativeQuery = true)
+    Integer lockCount(@Param("companyAccount") String companyAccount, @Param("now") LocalDateTime now);
+
+    @Query(value = """
+            UPDATE active_loans
+            SET active_count = GREATEST(active_count - :count, 0), updated_at = :now
+            WHERE company_account = :companyAccount
+            RETURNING active_count
+            """, nativeQuery = true)
+    Optional<Integer> decrement(@Param("companyAccount") String companyAccount,
+                                @Param("count") int count,
+                                @Param("now") LocalDateTime now);
+
+    /**
+     * Chặn ghi đồng thời vào active_loans (kể cả tạo dòng mới) tới hết transaction đối soát; đọc vẫn chạy bình thường
+     */
+    @Modifying
+    @Query(value = "LOCK TABLE active_loans IN SHARE ROW EXCLUSIVE MODE", nativeQuery = true)
+    void lockForReconcile();
+
+    /**
+     * Đặt lại bộ đếm theo số borrowing BORROWED thực tế, chỉ ghi các dòng bị lệch.
+     * Trả về số tài khoản đã được sửa
+     */
+    @Query(value = """
+            WITH actual AS (
+                SELECT company_account, COUNT(*) AS n
+                FROM borrowings
+                WHERE status = 'BORROWED' AND company_account IS NOT NULL
+                GROUP BY company_account
+            ), fixed AS (
+                INSERT INTO active_loans (company_account, active_count, updated_at)
+                SELECT company_account, n, :now FROM actual
+                ON CONFLICT (company_account) DO UPDATE
+                    SET active_count = EXCLUDED.active_count, updated_at = EXCLUDED.updated_at
+                    WHERE active_loans.active_count <> EXCLUDED.active_count
+                RETURNING 1
+            ), zeroed AS (
+                UPDATE active_loans SET active_count = 0, updated_at = :now
+                WHERE active_count <> 0
+                  AND company_account NOT IN (SELECT company_account FROM actual)
+                RETURNING 1
+            )
+            SELECT (SELECT COUNT(*) FROM fixed) + (SELECT COUNT(*) FROM zeroed)
+            """, nativeQuery = true)
+    long reconcile(@Param("now") LocalDateTime now);
+}
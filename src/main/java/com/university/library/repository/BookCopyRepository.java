@@ -2,10 +2,15 @@ package com.university.library.repository;
 
 import com.university.library.entity.Book;
 import com.university.library.entity.BookCopy;
+import jakarta.persistence.LockModeType;
 import org.springframework.data.jpa.repository.*;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 import java.util.UUID;
 
 @Repository
@@ -18,6 +23,54 @@ public interface BookCopyRepository extends JpaRepository<BookCopy, UUID>, JpaSp
 
 
     BookCopy findByBookCopyId(UUID bookCopyId);
+
+    /**
+     * Lấy bản sao kèm book, category, campus trong một truy vấn để dựng response
+     */
+    @EntityGraph(attributePaths = {"book", "book.category", "campus"})
+    Optional<BookCopy> findWithBookAndCampusByBookCopyId(UUID bookCopyId);
+
+    /**
+     * Khóa các bản sao của một lượt mượn/trả theo lô, sắp theo id để hai lô không khóa chéo nhau
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT bc FROM BookCopy bc WHERE bc.bookCopyId IN :bookCopyIds ORDER BY bc.bookCopyId")
+    List<BookCopy> findAllForUpdateByBookCopyIdIn(@Param("bookCopyIds") Collection<UUID> bookCopyIds);
+
+    @EntityGraph(attributePaths = {"book", "book.category", "campus"})
+    List<BookCopy> findWithBookAndCampusByBookCopyIdIn(Collection<UUID> bookCopyIds);
+
+    /**
+     * Khóa một bản sao AVAILABLE của đầu sách, ưu tiên campus được chỉ định.
+     * SKIP LOCKED bỏ qua các dòng request khác đang giữ nên không phải chờ hay thử lại
+     */
+    @Query(value = """
+            SELECT bc.book_copy_id FROM book_copies bc
+            WHERE bc.book_id = :bookId
+              AND bc.status = 'AVAILABLE'
+              AND (bc.is_deleted IS NULL OR bc.is_deleted = false)
+            ORDER BY CASE WHEN bc.campus_id = CAST(:campusId AS uuid) THEN 0 ELSE 1 END, bc.created_at
+            LIMIT 1
+            FOR UPDATE SKIP LOCKED
+            """, nativeQuery = true)
+    Optional<UUID> lockAvailableCopyForBook(@Param("bookId") UUID bookId, @Param("campusId") UUID campusId);
+
+    @Query("SELECT bc.status FROM BookCopy bc WHERE bc.bookCopyId = :bookCopyId")
+    Optional<BookCopy.BookStatus> findStatusByBookCopyId(@Param("bookCopyId") UUID bookCopyId);
+
+    /**
+     * Chuyển trạng thái có điều kiện: chỉ cập nhật khi trạng thái hiện tại là expectedStatus.
+     * Trả về 0 nếu request khác đã chuyển trạng thái trước (hoặc bản sao không tồn tại)
+     */
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("""
+            UPDATE BookCopy bc SET bc.status = :newStatus, bc.updatedAt = :now
+            WHERE bc.bookCopyId = :bookCopyId AND bc.status = :expectedStatus
+            """)
+    int compareAndSetStatus(@Param("bookCopyId") UUID bookCopyId,
+                            @Param("expectedStatus") BookCopy.BookStatus expectedStatus,
+                            @Param("newStatus") BookCopy.BookStatus newStatus,
+                            @Param("now") LocalDateTime now);
     /**
      * Tìm bản sao sách có thể mượn theo sách
      */
@@ -32,6 +85,60 @@ public interface BookCopyRepository extends JpaRepository<BookCopy, UUID>, JpaSp
     @Query("SELECT bc FROM BookCopy bc")
     List<BookCopy> findAllBookCopiesWithBook();
 
+    /**
+     * Các bản sao chưa nằm trong lần in nào đã xác nhận. Lọc theo cờ thay vì mốc created_at nên bản sao
+     * của transaction commit muộn hơn lần in trước vẫn được in ở lần sau
+     */
+    @EntityGraph(attributePaths = {"book"})
+    @Query("""
+            SELECT bc FROM BookCopy bc
+            WHERE (:campusId IS NULL OR bc.campus.campusId = :campusId)
+              AND (:bookId IS NULL OR bc.book.bookId = :bookId)
+              AND NOT EXISTS (SELECT 1 FROM QrPrintRun r
+                              WHERE r.printRunId = bc.qrPrintRunId AND r.confirmedAt IS NOT NULL)
+            ORDER BY bc.createdAt ASC, bc.bookCopyId ASC
+            """)
+    List<BookCopy> findUnprinted(@Param("campusId") UUID campusId,
+                                 @Param("bookId") UUID bookId);
+
+    /**
+     * In lại theo mốc thời gian: mọi bản sao tạo từ since, kể cả đã in
+     */
+    @EntityGraph(attributePaths = {"book"})
+    @Query("""
+            SELECT bc FROM BookCopy bc
+            WHERE (:campusId IS NULL OR bc.campus.campusId = :campusId)
+              AND (:bookId IS NULL OR bc.book.bookId = :bookId)
+              AND bc.createdAt > :since
+            ORDER BY bc.createdAt ASC, bc.bookCopyId ASC
+            """)
+    List<BookCopy> findCreatedSince(@Param("campusId") UUID campusId,
+                                    @Param("bookId") UUID bookId,
+                                    @Param("since") LocalDateTime since);
+
+    /**
+     * Gắn các bản sao chưa in xong vào lần in mới; bản sao đã thuộc lần in đã xác nhận giữ nguyên
+     */
+    @Modifying
+    @Query("""
+            UPDATE BookCopy bc SET bc.qrPrintRunId = :printRunId
+            WHERE bc.bookCopyId IN :bookCopyIds
+              AND NOT EXISTS (SELECT 1 FROM QrPrintRun r
+                              WHERE r.printRunId = bc.qrPrintRunId AND r.confirmedAt IS NOT NULL)
+            """)
+    int assignPrintRun(@Param("bookCopyIds") Collection<UUID> bookCopyIds, @Param("printRunId") UUID printRunId);
+
+    /**
+     * Cặp (shortCode, bookCopyId) để nạp map giải mã QR, chỉ lấy 2 cột
+     */
+    @Query("SELECT bc.shortCode, bc.bookCopyId FROM BookCopy bc WHERE bc.shortCode IS NOT NULL")
+    List<Object[]> findAllShortCodes();
+
+    @Query("SELECT bc.bookCopyId FROM BookCopy bc WHERE bc.shortCode = :shortCode")
+    Optional<UUID> findBookCopyIdByShortCode(@Param("shortCode") String shortCode);
+
+    List<BookCopy> findTop500ByShortCodeIsNull();
+
     List<BookCopy> findByBook_Category_CategoryId(UUID bookCategoryCategoryId);
 
     List<BookCopy> findByBook_(Book book);
@@ -28,5 +28,14 @@ public interface BookRepository extends JpaRepository<Book, UUID>, JpaSpecificat
     Optional<Book> findByTitleAndAuthorAndPublisher(String title, String author, String publisher);
 
     Page<Book> findAll(Pageable pageable);
+
+    /**
+     * Khử trùng lặp theo tiêu đề đã chuẩn hoá (VietnameseTextNormalizer)
+     */
+    List<Book> findByNormalizedTitle(String normalizedTitle);
+
+    Optional<Book> findFirstByNormalizedTitle(String normalizedTitle);
+
+    List<Book> findTop500ByNormalizedTitleIsNull();
 }
 
@@ -0,0 +1,72 @@
+package com.university.library.repository;
+
+import com.university.library.entity.BorrowingArchive;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.UUID;
+
+@Repository
+public interface BorrowingArchiveRepository extends JpaRepository<BorrowingArchive, UUID> {
+
+    Page<BorrowingArchive> findByCompanyAccount(String companyAccount, Pageable pageable);
+
+    Page<BorrowingArchive> findByBookCopyId(UUID bookCopyId, Pageable pageable);
+
+    /**
+     * Chuyển tối đa :limit borrowing đã đóng và mượn trước :cutoff sang borrowings_archive trong một câu lệnh
+     * (DELETE ... RETURNING rồi INSERT). Lọc borrowed_date ở cả hai tầng để PostgreSQL chỉ quét partition cũ,
+     * SKIP LOCKED để không chờ các giao dịch trả sách/ghi phạt đang chạy.
+     * Dòng đã có trong archive được ghi đè bằng bản mới nhất vừa xoá khỏi borrowings nên không mất dữ liệu.
+     * Trả về số dòng đã xoá khỏi borrowings; ghi bằng CTE nên khai báo như query thường,
+     * luôn gọi trong transaction ghi
+     */
+    @Query(value = """
+            WITH moved AS (
+                DELETE FROM borrowings
+                WHERE borrowed_date < :cutoff
+                  AND borrowing_id IN (
+                      SELECT borrowing_id FROM borrowings
+                      WHERE borrowed_date < :cutoff
+                        AND status IN (:statuses)
+                      ORDER BY borrowed_date
+                      LIMIT :limit
+                      FOR UPDATE SKIP LOCKED)
+                RETURNING borrowing_id, book_copy_id, company_account, borrowed_date, due_date, returned_date,
+                          status, fine_amount, notes, is_overdue, is_deleted, created_at, updated_at
+            ), stored AS (
+                INSERT INTO borrowings_archive (borrowing_id, book_copy_id, company_account, borrowed_date, due_date,
+                                                returned_date, status, fine_amount, notes, is_overdue, is_deleted,
+                                                created_at, updated_at, archived_at)
+                SELECT borrowing_id, book_copy_id, company_account, borrowed_date, due_date, returned_date,
+                       status, fine_amount, notes, is_overdue, is_deleted, created_at, updated_at, :now
+                FROM moved
+                ON CONFLICT (borrowing_id) DO UPDATE
+                    SET book_copy_id = EXCLUDED.book_copy_id,
+                        company_account = EXCLUDED.company_account,
+                        borrowed_date = EXCLUDED.borrowed_date,
+                        due_date = EXCLUDED.due_date,
+                        returned_date = EXCLUDED.returned_date,
+                        status = EXCLUDED.status,
+                        fine_amount = EXCLUDED.fine_amount,
+                        notes = EXCLUDED.notes,
+                        is_overdue = EXCLUDED.is_overdue,
+                        is_deleted = EXCLUDED.is_deleted,
+                        created_at = EXCLUDED.created_at,
+                        updated_at = EXCLUDED.updated_at,
+                        archived_at = EXCLUDED.archived_at
+                RETURNING 1
+            )
+            SELECT COUNT(*) FROM moved
+            """, nativeQuery = true)
+    long archiveClosedBorrowings(@Param("cutoff") LocalDateTime cutoff,
+                                 @Param("statuses") Collection<String> statuses,
+                                 @Param("limit") int limit,
+                                 @Param("now") LocalDateTime now);
+}
@@ -5,14 +5,16 @@ import com.university.library.entity.BookCopy;
 import com.university.library.entity.Borrowing;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
-import java.time.Instant;
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
@@ -45,8 +47,67 @@ public interface BorrowingRepository extends JpaRepository<Borrowing, UUID>, Jpa
     /**
      * Find overdue borrowings
      */
-    @Query("SELECT b FROM Borrowing b WHERE b.status = 'BORROWED' AND b.dueDate < :now")
-    List<Borrowing> findOverdueBorrowings(@Param("now") Instant now);
+    @EntityGraph(attributePaths = {"bookCopy", "bookCopy.book", "bookCopy.campus"})
+    @Query("SELECT b FROM Borrowing b WHERE b.status = 'BORROWED' AND b.dueDate < :now AND b.overdue = true " +
+           "ORDER BY b.dueDate")
+    List<Borrowing> findOverdueBorrowings(@Param("now") LocalDateTime now);
+
+    /**
+     * (borrowingId, companyAccount, dueDate, title) của các borrowing còn hạn, dùng dựng lại lịch nhắc
+     */
+    @Query("""
+            SELECT b.borrowingId, b.companyAccount, b.dueDate, bk.title
+            FROM Borrowing b JOIN b.bookCopy bc JOIN bc.book bk
+            WHERE b.status = :status AND b.dueDate > :from
+            """)
+    List<Object[]> findUpcomingDueDates(@Param("status") Borrowing.BorrowingStatus status,
+                                        @Param("from") LocalDateTime from);
+
+    /**
+     * Đánh dấu tối đa :limit borrowing mới quá hạn trong một câu UPDATE có điều kiện, trả về
+     * (borrowing_id, company_account, book_copy_id) của đúng các dòng vừa chuyển cờ. Dòng đã được trả
+     * hoặc đã đánh dấu bởi instance khác không khớp điều kiện nên không bị phạt lần hai;
+     * SKIP LOCKED bỏ qua dòng đang bị giao dịch trả sách giữ, lần quét sau sẽ xử lý.
+     * Ghi bằng RETURNING nên khai báo như query thường, luôn gọi trong transaction ghi
+     */
+    @Query(value = """
+            WITH picked AS (
+                SELECT borrowing_id FROM borrowings
+                WHERE status = 'BORROWED' AND (is_overdue IS NULL OR is_overdue = false) AND due_date < :now
+                ORDER BY due_date, borrowing_id
+                LIMIT :limit
+                FOR UPDATE SKIP LOCKED
+            )
+            UPDATE borrowings b
+            SET is_overdue = true,
+                fine_amount = LEAST(EXTRACT(DAY FROM (CAST(:now AS timestamp) - b.due_date)), :maxDays) * :dailyFine,
+                updated_at = :now
+            FROM picked
+            WHERE b.borrowing_id = picked.borrowing_id
+              AND b.status = 'BORROWED' AND (b.is_overdue IS NULL OR b.is_overdue = false)
+            RETURNING b.borrowing_id, b.company_account, b.book_copy_id
+            """, nativeQuery = true)
+    List<Object[]> flagNewlyOverdue(@Param("now") LocalDateTime now,
+                                    @Param("dailyFine") double dailyFine,
+                                    @Param("maxDays") long maxDays,
+                                    @Param("limit") int limit);
+
+    /**
+     * Cộng dồn tiền phạt cho các borrowing đã đánh dấu quá hạn bằng một câu UPDATE,
+     * bỏ qua dòng có tiền phạt không đổi (đã chạm trần hoặc chưa sang ngày mới) để tránh ghi thừa
+     */
+    @Modifying
+    @Query(value = """
+            UPDATE borrowings
+            SET fine_amount = LEAST(EXTRACT(DAY FROM (CAST(:now AS timestamp) - due_date)), :maxDays) * :dailyFine,
+                updated_at = :now
+            WHERE status = 'BORROWED' AND is_overdue = true AND due_date < :now
+              AND fine_amount IS DISTINCT FROM
+                  LEAST(EXTRACT(DAY FROM (CAST(:now AS timestamp) - due_date)), :maxDays) * :dailyFine
+            """, nativeQuery = true)
+    int accrueOverdueFines(@Param("now") LocalDateTime now,
+                           @Param("dailyFine") double dailyFine,
+                           @Param("maxDays") long maxDays);
     
 
     /**
@@ -67,6 +128,23 @@ public interface BorrowingRepository extends JpaRepository<Borrowing, UUID>, Jpa
      */
     Page<Borrowing> findAll(Pageable pageable);
 
+    /**
+     * Borrowing đang mở của một bản sao cùng bản sao, đầu sách và campus trong một truy vấn,
+     * dùng cho luồng trả/báo mất để không phải đọc lại bản sao và borrowing riêng lẻ
+     */
+    @Query("""
+            SELECT b FROM Borrowing b
+            JOIN FETCH b.bookCopy bc
+            LEFT JOIN FETCH bc.book bk
+            LEFT JOIN FETCH bk.category
+            LEFT JOIN FETCH bc.campus
+            WHERE bc.bookCopyId = :bookCopyId AND b.status = :status
+            ORDER BY b.createdAt DESC
+            """)
+    List<Borrowing> findWithBookCopyByBookCopyIdAndStatus(@Param("bookCopyId") UUID bookCopyId,
+                                                          @Param("status") Borrowing.BorrowingStatus status,
+                                                          Pageable pageable);
+
     /**
       Tìm Borrowing mới nhất dựa theo bookCopy và Status
      */
@@ -75,6 +153,14 @@ public interface BorrowingRepository extends JpaRepository<Borrowing, UUID>, Jpa
             Borrowing.BorrowingStatus status
     );
 
+    /**
+     * Lấy các borrowing đang mở của nhiều bản sao trong một truy vấn (trả sách theo lô)
+     */
+    @Query("SELECT b FROM Borrowing b WHERE b.bookCopy.bookCopyId IN :bookCopyIds AND b.status = :status " +
+           "ORDER BY b.createdAt DESC")
+    List<Borrowing> findByBookCopyIdsAndStatus(@Param("bookCopyIds") Collection<UUID> bookCopyIds,
+                                               @Param("status") Borrowing.BorrowingStatus status);
+
     boolean existsByCompanyAccountAndBookCopyBookCopyIdAndStatus(
             String companyAccount,
             UUID bookCopyId,
@@ -96,7 +182,7 @@ public interface BorrowingRepository extends JpaRepository<Borrowing, UUID>, Jpa
     //lay lich su ai da muon sach
     Page<Borrowing> findBorrowingByBookCopy_BookCopyId(UUID bookCopyId, Pageable pageable);
 
-    int countByBorrowedDateIsBetween(LocalDateTime borrowedDateAfter, LocalDateTime borrowedDateBefore);
+    long countByStatus(Borrowing.BorrowingStatus status);
 
-    int countByReturnedDateIsBetween(LocalDateTime returnedDateAfter, LocalDateTime returnedDateBefore);
-}
\ No newline at end of file
+    long countByStatusAndOverdueTrue(Borrowing.BorrowingStatus status);
+}
@@ -0,0 +1,93 @@
+package com.university.library.repository;
+
+import com.university.library.entity.DailyCirculationStat;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface DailyCirculationStatRepository extends JpaRepository<DailyCirculationStat, DailyCirculationStat.Key> {
+
+    /**
+     * Tổng các chỉ số theo mốc date_trunc(:unit) ('day' | 'month') trong [from, to), cộng gộp mọi campus:
+     * (bucket, borrows, returns, overdue, lost, fines)
+     */
+    @Query(value = """
+            SELECT CAST(date_trunc(:unit, stat_date) AS date) AS bucket,
+                   SUM(borrows), SUM(returns), SUM(overdue), SUM(lost), SUM(fines)
+            FROM daily_circulation_stats
+            WHERE stat_date >= :from AND stat_date < :to
+            GROUP BY 1
+            """, nativeQuery = true)
+    List<Object[]> sumGroupedBy(@Param("unit") String unit,
+                                @Param("from") LocalDate from,
+                                @Param("to") LocalDate to);
+
+    @Query("SELECT COALESCE(SUM(s.borrows), 0) FROM DailyCirculationStat s")
+    long sumBorrows();
+
+    @Query("SELECT COALESCE(SUM(s.borrows), 0) FROM DailyCirculationStat s WHERE s.statDate = :date")
+    long sumBorrowsOn(@Param("date") LocalDate date);
+
+    @Query("SELECT COALESCE(SUM(s.returns), 0) FROM DailyCirculationStat s WHERE s.statDate = :date")
+    long sumReturnsOn(@Param("date") LocalDate date);
+
+    @Modifying
+    @Query("DELETE FROM DailyCirculationStat s WHERE s.statDate >= :from AND s.statDate < :to")
+    int deleteByRange(@Param("from") LocalDate from, @Param("to") LocalDate to);
+
+    /**
+     * Dựng lại các ngày trong [from, to) từ borrowings và borrowings_archive. Mỗi lượt mượn sinh tối đa
+     * ba "sự kiện" (mượn, quá hạn, trả/mất) được lọc theo cột ngày riêng nên dùng được index của từng cột.
+     * Ngày báo mất không được lưu riêng, lấy theo updated_at của dòng LOST
+     */
+    @Modifying
+    @Query(value = """
+            WITH circulation AS NOT MATERIALIZED (
+                SELECT book_copy_id, borrowed_date, due_date, returned_date, status, fine_amount, is_overdue, updated_at
+                FROM borrowings
+                UNION ALL
+                SELECT book_copy_id, borrowed_date, due_date, returned_date, status, fine_amount, is_overdue, updated_at
+                FROM borrowings_archive
+            ), events AS (
+                SELECT CAST(borrowed_date AS date) AS stat_date, book_copy_id,
+                       1 AS borrows, 0 AS returns, 0 AS overdue, 0 AS lost, 0.0 AS fines
+                FROM circulation
+                WHERE borrowed_date >= :start AND borrowed_date < :end
+                UNION ALL
+                SELECT CAST(returned_date AS date), book_copy_id, 0, 1, 0, 0, COALESCE(fine_amount, 0)
+                FROM circulation
+                WHERE status IN ('RETURNED', 'OVERDUE') AND returned_date >= :start AND returned_date < :end
+                UNION ALL
+                SELECT CAST(updated_at AS date), book_copy_id, 0, 0, 0, 1, COALESCE(fine_amount, 0)
+                FROM circulation
+                WHERE status = 'LOST' AND updated_at >= :start AND updated_at < :end
+                UNION ALL
+                SELECT CAST(due_date AS date), book_copy_id, 0, 0, 1, 0, 0.0
+                FROM circulation
+                WHERE (is_overdue OR returned_date > due_date) AND due_date >= :start AND due_date < :end
+            )
+            INSERT INTO daily_circulation_stats (stat_date, campus_id, borrows, returns, overdue, lost, fines, updated_at)
+            SELECT e.stat_date, bc.campus_id, SUM(e.borrows), SUM(e.returns), SUM(e.overdue), SUM(e.lost),
+                   SUM(e.fines), :now
+            FROM events e
+            JOIN book_copies bc ON bc.book_copy_id = e.book_copy_id
+            GROUP BY e.stat_date, bc.campus_id
+            ON CONFLICT (stat_date, campus_id) DO UPDATE SET
+                borrows = EXCLUDED.borrows,
+                returns = EXCLUDED.returns,
+                overdue = EXCLUDED.overdue,
+                lost = EXCLUDED.lost,
+                fines = EXCLUDED.fines,
+                updated_at = EXCLUDED.updated_at
+            """, nativeQuery = true)
+    int rebuildRange(@Param("start") LocalDateTime start,
+                     @Param("end") LocalDateTime end,
+                     @Param("now") LocalDateTime now);
+}
@@ -0,0 +1,101 @@
+package com.university.library.repository;
+
+import com.university.library.entity.BookCopy;
+import com.university.library.entity.Hold;
+import org.springframework.data.jpa.repository.EntityGraph;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+@Repository
+public interface HoldRepository extends JpaRepository<Hold, UUID> {
+
+    /**
+     * Khoá hold WAITING đứng đầu hàng đợi (FIFO theo created_at) của đầu sách; hold đang bị transaction khác
+     * giữ sẽ bị bỏ qua thay vì chờ, nên hai lượt trả sách đồng thời không giao cùng một hold
+     */
+    @Query(value = """
+            SELECT h.hold_id FROM holds h
+            WHERE h.book_id = :bookId AND h.status = 'WAITING'
+            ORDER BY h.created_at, h.hold_id
+            LIMIT 1
+            FOR UPDATE SKIP LOCKED
+            """, nativeQuery = true)
+    Optional<UUID> lockNextWaitingHold(@Param("bookId") UUID bookId);
+
+    /**
+     * Số hold đang chờ đứng trước thời điểm đặt, dùng để tính vị trí trong hàng đợi
+     */
+    @Query("""
+            SELECT COUNT(h) FROM Hold h
+            WHERE h.book.bookId = :bookId AND h.status = :status AND h.createdAt < :createdAt
+            """)
+    long countWaitingBefore(@Param("bookId") UUID bookId,
+                            @Param("status") Hold.HoldStatus status,
+                            @Param("createdAt") LocalDateTime createdAt);
+
+    @Query("SELECT h.companyAccount FROM Hold h WHERE h.holdId = :holdId")
+    String findCompanyAccountByHoldId(@Param("holdId") UUID holdId);
+
+    boolean existsByBookBookIdAndCompanyAccountAndStatusIn(UUID bookId, String companyAccount,
+                                                           Collection<Hold.HoldStatus> statuses);
+
+    @EntityGraph(attributePaths = {"book", "bookCopy"})
+    List<Hold> findByCompanyAccountAndStatusInOrderByCreatedAtAsc(String companyAccount,
+                                                                  Collection<Hold.HoldStatus> statuses);
+
+    @EntityGraph(attributePaths = {"book", "bookCopy"})
+    List<Hold> findTop100ByStatusAndExpiresAtBeforeOrderByExpiresAtAsc(Hold.HoldStatus status, LocalDateTime time);
+
+    /**
+     * Giao bản sao cho hold đang chờ, 0 nghĩa là hold đã được giao/hủy bởi request khác
+     */
+    @Modifying
+    @Query("""
+            UPDATE Hold h SET h.status = :newStatus, h.bookCopy = :bookCopy,
+                h.readyAt = :now, h.expiresAt = :expiresAt, h.updatedAt = :now
+            WHERE h.holdId = :holdId AND h.status = :expectedStatus
+            """)
+    int assignCopy(@Param("holdId") UUID holdId,
+                   @Param("expectedStatus") Hold.HoldStatus expectedStatus,
+                   @Param("newStatus") Hold.HoldStatus newStatus,
+                   @Param("bookCopy") BookCopy bookCopy,
+                   @Param("now") LocalDateTime now,
+                   @Param("expiresAt") LocalDateTime expiresAt);
+
+    /**
+     * Người giữ chỗ đến mượn bản sao đã giữ cho mình
+     */
+    @Modifying
+    @Query("""
+            UPDATE Hold h SET h.status = :newStatus, h.updatedAt = :now
+            WHERE h.bookCopy.bookCopyId = :bookCopyId AND h.companyAccount = :companyAccount
+              AND h.status = :expectedStatus
+            """)
+    int fulfill(@Param("bookCopyId") UUID bookCopyId,
+                @Param("companyAccount") String companyAccount,
+                @Param("expectedStatus") Hold.HoldStatus expectedStatus,
+                @Param("newStatus") Hold.HoldStatus newStatus,
+                @Param("now") LocalDateTime now);
+
+    /**
+     * Chuyển trạng thái có điều kiện (hủy/hết hạn)
+     */
+    @Modifying
+    @Query("""
+            UPDATE Hold h SET h.status = :newStatus, h.updatedAt = :now
+            WHERE h.holdId = :holdId AND h.status = :expectedStatus
+            """)
+    int compareAndSetStatus(@Param("holdId") UUID holdId,
+                            @Param("expectedStatus") Hold.HoldStatus expectedStatus,
+                            @Param("newStatus") Hold.HoldStatus newStatus,
+                            @Param("now") LocalDateTime now);
+}
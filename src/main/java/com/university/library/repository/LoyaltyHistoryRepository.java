@@ -5,22 +5,14 @@ import com.university.library.entity.LoyaltyHistory;
 import io.lettuce.core.dynamic.annotation.Param;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
-import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
-import org.springframework.transaction.annotation.Transactional;
 
-import java.time.LocalDateTime;
 import java.util.List;
 import java.util.UUID;
 
 @Repository
 public interface LoyaltyHistoryRepository extends JpaRepository<LoyaltyHistory, UUID>, JpaSpecificationExecutor<LoyaltyHistory> {
-    @Modifying
-    @Transactional
-    @Query("DELETE FROM LoyaltyHistory lh WHERE lh.createdAt < :time")
-    int deleteByCreatedAtBefore(@Param("time") LocalDateTime time);
-
     @Query(value = """
                 SELECT 
                     lh.user_id,
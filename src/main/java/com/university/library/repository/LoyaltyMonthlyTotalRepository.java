@@ -0,0 +1,99 @@
+package com.university.library.repository;
+
+import com.university.library.entity.LoyaltyMonthlyTotal;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Các truy vấn top trả về cùng thứ tự cột với LoyaltyHistoryRepository.findTopUsersByMonth
+ * (user_id, email, full_name, points, borrow_count, return_count, donation_count)
+ */
+@Repository
+public interface LoyaltyMonthlyTotalRepository extends JpaRepository<LoyaltyMonthlyTotal, LoyaltyMonthlyTotal.Key> {
+
+    @Query(value = """
+            SELECT t.user_id, u.email, u.full_name, t.points, t.borrow_count, t.return_count, t.donation_count
+            FROM loyalty_monthly_totals t
+            JOIN accounts u ON u.user_id = t.user_id
+            WHERE t.year_month = :yearMonth AND t.points > 0
+            ORDER BY t.points DESC
+            LIMIT :limit
+            """, nativeQuery = true)
+    List<Object[]> findTopByMonth(@Param("yearMonth") int yearMonth, @Param("limit") int limit);
+
+    @Query(value = """
+            SELECT t.user_id, u.email, u.full_name, t.points, t.borrow_count, t.return_count, t.donation_count
+            FROM loyalty_monthly_totals t
+            JOIN accounts u ON u.user_id = t.user_id
+            WHERE t.year_month = :yearMonth AND t.campus_id = :campusId AND t.points > 0
+            ORDER BY t.points DESC
+            LIMIT :limit
+            """, nativeQuery = true)
+    List<Object[]> findTopByMonthAndCampus(@Param("yearMonth") int yearMonth,
+                                           @Param("campusId") UUID campusId,
+                                           @Param("limit") int limit);
+
+    @Query(value = """
+            SELECT t.user_id, u.email, u.full_name, t.points, t.borrow_count, t.return_count, t.donation_count
+            FROM loyalty_monthly_totals t
+            JOIN accounts u ON u.user_id = t.user_id
+            WHERE t.year_month = :yearMonth AND t.department = :department AND t.points > 0
+            ORDER BY t.points DESC
+            LIMIT :limit
+            """, nativeQuery = true)
+    List<Object[]> findTopByMonthAndDepartment(@Param("yearMonth") int yearMonth,
+                                               @Param("department") String department,
+                                               @Param("limit") int limit);
+
+    @Query(value = """
+            SELECT t.user_id, u.email, u.full_name, t.points, t.borrow_count, t.return_count, t.donation_count
+            FROM loyalty_monthly_totals t
+            JOIN accounts u ON u.user_id = t.user_id
+            WHERE t.year_month = :yearMonth AND t.user_id IN (:userIds)
+            """, nativeQuery = true)
+    List<Object[]> findByMonthAndUserIdIn(@Param("yearMonth") int yearMonth,
+                                          @Param("userIds") Collection<UUID> userIds);
+
+    @Modifying
+    @Query("DELETE FROM LoyaltyMonthlyTotal t WHERE t.yearMonth = :yearMonth")
+    int deleteByYearMonth(@Param("yearMonth") int yearMonth);
+
+    /**
+     * Dựng lại tổng của một tháng từ loyalty_history, lọc created_at theo khoảng để dùng được index
+     */
+    @Modifying
+    @Query(value = """
+            INSERT INTO loyalty_monthly_totals (user_id, year_month, campus_id, department, points,
+                                                borrow_count, return_count, donation_count, updated_at)
+            SELECT lh.user_id, :yearMonth, u.campus_id, u.department,
+                   COALESCE(SUM(lh.loyalty_point) FILTER (WHERE lh.loyalty_point > 0), 0),
+                   COUNT(*) FILTER (WHERE lh.action = 'BORROWED'),
+                   COUNT(*) FILTER (WHERE lh.action = 'RETURNED'),
+                   COUNT(*) FILTER (WHERE lh.action = 'DONATE_BOOK'),
+                   :now
+            FROM loyalty_history lh
+            JOIN accounts u ON u.user_id = lh.user_id
+            WHERE lh.created_at >= :start AND lh.created_at < :end
+            GROUP BY lh.user_id, u.campus_id, u.department
+            ON CONFLICT (user_id, year_month) DO UPDATE SET
+                campus_id = EXCLUDED.campus_id,
+                department = EXCLUDED.department,
+                points = EXCLUDED.points,
+                borrow_count = EXCLUDED.borrow_count,
+                return_count = EXCLUDED.return_count,
+                donation_count = EXCLUDED.donation_count,
+                updated_at = EXCLUDED.updated_at
+            """, nativeQuery = true)
+    int rebuildMonth(@Param("yearMonth") int yearMonth,
+                     @Param("start") LocalDateTime start,
+                     @Param("end") LocalDateTime end,
+                     @Param("now") LocalDateTime now);
+}
@@ -0,0 +1,57 @@
+package com.university.library.repository;
+
+import com.university.library.dto.response.event.DomainEvent;
+import com.university.library.entity.OutboxEvent;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+
+@Repository
+public interface OutboxEventRepository extends JpaRepository<OutboxEvent, UUID> {
+
+    /**
+     * Khóa một lô sự kiện chưa xử lý theo thứ tự ghi, SKIP LOCKED để nhiều instance relay không xử lý trùng
+     */
+    @Query(value = """
+            SELECT * FROM outbox_events
+            WHERE processed_at IS NULL AND attempts < :maxAttempts
+            ORDER BY created_at, event_id
+            LIMIT :limit
+            FOR UPDATE SKIP LOCKED
+            """, nativeQuery = true)
+    List<OutboxEvent> lockPending(@Param("limit") int limit, @Param("maxAttempts") int maxAttempts);
+
+    @Query(value = """
+            SELECT * FROM outbox_events
+            WHERE event_id = :eventId AND processed_at IS NULL
+            FOR UPDATE SKIP LOCKED
+            """, nativeQuery = true)
+    List<OutboxEvent> lockPendingById(@Param("eventId") UUID eventId);
+
+    @Query("""
+            SELECT e FROM OutboxEvent e
+            WHERE e.processedAt IS NULL AND e.attempts < :maxAttempts AND e.eventType IN :types
+            ORDER BY e.createdAt
+            """)
+    List<OutboxEvent> findPending(@Param("types") Collection<DomainEvent.EventType> types,
+                                  @Param("maxAttempts") int maxAttempts);
+
+    @Modifying
+    @Query("UPDATE OutboxEvent e SET e.processedAt = :now WHERE e.eventId IN :eventIds")
+    int markProcessed(@Param("eventIds") Collection<UUID> eventIds, @Param("now") LocalDateTime now);
+
+    @Modifying
+    @Query("UPDATE OutboxEvent e SET e.attempts = e.attempts + 1, e.lastError = :error WHERE e.eventId = :eventId")
+    int recordFailure(@Param("eventId") UUID eventId, @Param("error") String error);
+
+    @Modifying
+    @Query("DELETE FROM OutboxEvent e WHERE e.processedAt < :time")
+    int deleteProcessedBefore(@Param("time") LocalDateTime time);
+}
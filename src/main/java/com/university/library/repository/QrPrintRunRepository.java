@@ -0,0 +1,22 @@
+package com.university.library.repository;
+
+import com.university.library.entity.QrPrintRun;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+@Repository
+public interface QrPrintRunRepository extends JpaRepository<QrPrintRun, UUID> {
+
+    /**
+     * Xác nhận một lần in, gọi lại nhiều lần chỉ ghi lần đầu
+     */
+    @Modifying
+    @Query("UPDATE QrPrintRun r SET r.confirmedAt = :now WHERE r.printRunId = :printRunId AND r.confirmedAt IS NULL")
+    int confirm(@Param("printRunId") UUID printRunId, @Param("now") LocalDateTime now);
+}
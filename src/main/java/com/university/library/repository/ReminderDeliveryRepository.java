@@ -0,0 +1,48 @@
+package com.university.library.repository;
+
+import com.university.library.entity.ReminderDelivery;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+import java.util.UUID;
+
+@Repository
+public interface ReminderDeliveryRepository extends JpaRepository<ReminderDelivery, ReminderDelivery.Key> {
+
+    /**
+     * Giành quyền gửi nhắc qua kênh. Rỗng khi borrowing không còn BORROWED (đã trả/mất ở instance khác),
+     * khi nhắc đã gửi, hoặc khi instance khác đang giữ quyền chưa quá staleBefore
+     */
+    @Query(value = """
+            INSERT INTO reminder_deliveries (borrowing_id, days_before, channel, claim_token, claimed_at)
+            SELECT :borrowingId, :daysBefore, :channel, :token, :now
+            WHERE EXISTS (SELECT 1 FROM borrowings WHERE borrowing_id = :borrowingId AND status = 'BORROWED')
+            ON CONFLICT (borrowing_id, days_before, channel) DO UPDATE SET
+                claim_token = EXCLUDED.claim_token,
+                claimed_at = EXCLUDED.claimed_at
+            WHERE reminder_deliveries.sent_at IS NULL AND reminder_deliveries.claimed_at < :staleBefore
+            RETURNING borrowing_id
+            """, nativeQuery = true)
+    Optional<UUID> claim(@Param("borrowingId") UUID borrowingId,
+                         @Param("daysBefore") int daysBefore,
+                         @Param("channel") String channel,
+                         @Param("token") UUID token,
+                         @Param("now") LocalDateTime now,
+                         @Param("staleBefore") LocalDateTime staleBefore);
+
+    @Modifying
+    @Query("UPDATE ReminderDelivery d SET d.sentAt = :now WHERE d.claimToken = :token")
+    int markSent(@Param("token") UUID token, @Param("now") LocalDateTime now);
+
+    /**
+     * Trả lại quyền gửi khi kênh lỗi để lần thử sau (ở bất kỳ instance nào) giành lại ngay
+     */
+    @Modifying
+    @Query("DELETE FROM ReminderDelivery d WHERE d.claimToken = :token AND d.sentAt IS NULL")
+    int release(@Param("token") UUID token);
+}
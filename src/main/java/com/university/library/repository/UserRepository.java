@@ -8,10 +8,13 @@ import jakarta.validation.constraints.Size;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
 
@@ -23,6 +26,15 @@ public interface UserRepository extends JpaRepository<User, UUID> {
     Optional<User> findByEmail(String username);
     Optional<User> findByCompanyAccount(String companyAccount);
 
+    List<User> findByCompanyAccountIn(Collection<String> companyAccounts);
+
+    /**
+     * Cộng điểm nguyên tử trong DB, không đọc-sửa-ghi cả entity nên không mất cập nhật khi chạy đồng thời
+     */
+    @Modifying
+    @Query("UPDATE User u SET u.totalLoyaltyPoints = COALESCE(u.totalLoyaltyPoints, 0) + :delta WHERE u.userId = :userId")
+    int addLoyaltyPoints(@Param("userId") UUID userId, @Param("delta") int delta);
+
 
     long countByIsActive(Boolean isActive);
 }
@@ -0,0 +1,27 @@
+package com.university.library.scheduler;
+
+import com.university.library.service.ActiveLoanService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class ActiveLoanReconcileScheduler {
+
+    private final ActiveLoanService activeLoanService;
+
+    /**
+     * Mặc định chạy 3h30 sáng hằng ngày, sửa bộ đếm lệch so với borrowings
+     */
+    @Scheduled(cron = "${app.borrowings.active-loans-reconcile-cron:0 30 3 * * *}")
+    public void reconcileActiveLoans() {
+        try {
+            activeLoanService.reconcile();
+        } catch (Exception e) {
+            log.error("Active loan reconcile failed: {}", e.getMessage(), e);
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package com.university.library.scheduler;
+
+import com.university.library.service.BorrowingArchiveService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class BorrowingArchiveScheduler {
+
+    private final BorrowingArchiveService borrowingArchiveService;
+
+    /**
+     * Mặc định chạy 3h sáng hằng ngày, sau bước bảo trì partition
+     */
+    @Scheduled(cron = "${app.borrowings.archive.cron:0 0 3 * * *}")
+    public void archiveClosedBorrowings() {
+        try {
+            borrowingArchiveService.archiveClosedBorrowings();
+        } catch (Exception e) {
+            log.error("Borrowing archive failed: {}", e.getMessage(), e);
+        }
+    }
+}
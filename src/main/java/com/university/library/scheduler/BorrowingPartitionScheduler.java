@@ -0,0 +1,28 @@
+package com.university.library.scheduler;
+
+import com.university.library.service.BorrowingPartitionService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class BorrowingPartitionScheduler {
+
+    private final BorrowingPartitionService borrowingPartitionService;
+
+    /**
+     * Hằng ngày: đảm bảo đã có partition cho các tháng tới và tách các partition quá hạn giữ lại
+     */
+    @Scheduled(cron = "${app.borrowings.partitions.maintenance-cron:0 30 2 * * *}")
+    public void maintainPartitions() {
+        try {
+            borrowingPartitionService.createFuturePartitions();
+            borrowingPartitionService.detachOldPartitions();
+        } catch (Exception e) {
+            log.error("Borrowings partition maintenance failed: {}", e.getMessage(), e);
+        }
+    }
+}
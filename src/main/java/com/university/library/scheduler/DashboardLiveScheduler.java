@@ -0,0 +1,28 @@
+package com.university.library.scheduler;
+
+import com.university.library.service.DashboardLiveService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class DashboardLiveScheduler {
+
+    private final DashboardLiveService dashboardLiveService;
+
+    /**
+     * Đối chiếu bộ đếm dashboard trực tiếp với DB, chỉ phát "snapshot" khi có lệch. Chạy dày vì delta chỉ
+     * tới instance đã relay lô sự kiện, admin kết nối vào instance khác bắt kịp qua lần đối chiếu này
+     */
+    @Scheduled(fixedDelayString = "${app.dashboard.live.resync-interval-ms:15000}")
+    public void resyncLiveDashboard() {
+        try {
+            dashboardLiveService.resync();
+        } catch (Exception e) {
+            log.error("Live dashboard resync failed: {}", e.getMessage(), e);
+        }
+    }
+}
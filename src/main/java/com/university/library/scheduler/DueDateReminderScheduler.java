@@ -0,0 +1,34 @@
+package com.university.library.scheduler;
+
+import com.university.library.service.DueDateReminderService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class DueDateReminderScheduler {
+
+    private final DueDateReminderService dueDateReminderService;
+
+    /**
+     * Mỗi phút tiến timing wheel một tick, không truy vấn DB
+     */
+    @Scheduled(fixedRate = 60000)
+    public void fireDueReminders() {
+        int fired = dueDateReminderService.fireDueReminders();
+        if (fired > 0) {
+            log.info("{} due-date reminders fired", fired);
+        }
+    }
+
+    /**
+     * Gửi tối đa app.reminders.batch-size nhắc mỗi lần, giới hạn tốc độ theo dispatch-interval-ms
+     */
+    @Scheduled(fixedDelayString = "${app.reminders.dispatch-interval-ms:5000}")
+    public void dispatchReminders() {
+        dueDateReminderService.dispatchPending();
+    }
+}
@@ -0,0 +1,30 @@
+package com.university.library.scheduler;
+
+import com.university.library.service.ExportJobService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class ExportJobPurgeScheduler {
+
+    private final ExportJobService exportJobService;
+
+    /**
+     * Dọn job/file export hết hạn kể cả khi không có job mới được submit
+     */
+    @Scheduled(fixedDelayString = "${app.export-jobs.purge-interval-ms:300000}")
+    public void purgeExpiredJobs() {
+        try {
+            int purged = exportJobService.purgeExpired();
+            if (purged > 0) {
+                log.info("Purged {} expired export jobs", purged);
+            }
+        } catch (Exception e) {
+            log.error("Export job purge failed: {}", e.getMessage(), e);
+        }
+    }
+}
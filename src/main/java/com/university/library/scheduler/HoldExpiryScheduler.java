@@ -0,0 +1,33 @@
+package com.university.library.scheduler;
+
+import com.university.library.service.HoldService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class HoldExpiryScheduler {
+
+    private static final int BATCH_SIZE = 100;
+
+    private final HoldService holdService;
+
+    /**
+     * Giải phóng hold hết hạn theo từng lô, mỗi lô một transaction
+     */
+    @Scheduled(fixedDelayString = "${app.holds.expiry-sweep-ms:60000}")
+    public void releaseExpiredHolds() {
+        int released;
+        int total = 0;
+        do {
+            released = holdService.releaseExpiredHolds();
+            total += released;
+        } while (released == BATCH_SIZE);
+        if (total > 0) {
+            log.info("Hold expiry sweep released {} holds", total);
+        }
+    }
+}
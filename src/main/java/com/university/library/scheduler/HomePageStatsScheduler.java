@@ -0,0 +1,27 @@
+package com.university.library.scheduler;
+
+import com.university.library.service.HomePageStatsService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class HomePageStatsScheduler {
+
+    private final HomePageStatsService homePageStatsService;
+
+    /**
+     * Làm mới bản chụp thống kê trang chủ ở nền để request không phải chờ truy vấn
+     */
+    @Scheduled(fixedDelayString = "${app.homepage-stats.refresh-interval-ms:30000}")
+    public void refreshHomePageStats() {
+        try {
+            homePageStatsService.refresh();
+        } catch (Exception e) {
+            log.error("Homepage stats refresh failed: {}", e.getMessage(), e);
+        }
+    }
+}
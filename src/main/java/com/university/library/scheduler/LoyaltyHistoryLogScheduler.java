@@ -1,6 +1,6 @@
 package com.university.library.scheduler;
 
-import com.university.library.service.LoyaltyService;
+import com.university.library.service.LoyaltyRetentionService;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 
@@ -10,12 +10,17 @@ import org.springframework.stereotype.Component;
 @Component
 public class LoyaltyHistoryLogScheduler {
     @Autowired
-    private LoyaltyService loyaltyService;
+    private LoyaltyRetentionService loyaltyRetentionService;
 
-
-//    @Scheduled(cron = "0 0 0 * * *")
-//    public void cleanOldLogs() {
-//        loyaltyService.deleteOldLoyaltyHistories();
-//        log.info("Old loyalty history logs cleaned up.");
-//    }
+    /**
+     * Mặc định 3h15 sáng mỗi ngày: gộp và xoá loyalty_history quá hạn theo từng chunk
+     */
+    @Scheduled(cron = "${app.loyalty.retention.cron:0 15 3 * * *}")
+    public void cleanOldLogs() {
+        try {
+            loyaltyRetentionService.purgeExpiredHistory();
+        } catch (Exception e) {
+            log.error("Loyalty history retention failed: {}", e.getMessage(), e);
+        }
+    }
 }
@@ -0,0 +1,27 @@
+package com.university.library.scheduler;
+
+import com.university.library.service.LoyaltyLeaderboardService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class LoyaltyLeaderboardScheduler {
+
+    private final LoyaltyLeaderboardService loyaltyLeaderboardService;
+
+    /**
+     * Gom các thay đổi trong khoảng thời gian thành một lần đẩy tới màn hình sảnh
+     */
+    @Scheduled(fixedDelayString = "${app.loyalty.leaderboard.push-interval-ms:3000}")
+    public void publishLeaderboard() {
+        try {
+            loyaltyLeaderboardService.publishChanges();
+        } catch (Exception e) {
+            log.error("Loyalty leaderboard publish failed: {}", e.getMessage(), e);
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package com.university.library.scheduler;
+
+import com.university.library.service.LoyaltyReconcileService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class LoyaltyReconcileScheduler {
+
+    private final LoyaltyReconcileService loyaltyReconcileService;
+
+    /**
+     * Mặc định 4h30 sáng Chủ nhật: đối soát số dư loyalty với ledger
+     */
+    @Scheduled(cron = "${app.loyalty.reconcile.cron:0 30 4 * * SUN}")
+    public void reconcileLoyaltyBalances() {
+        try {
+            loyaltyReconcileService.reconcile();
+        } catch (Exception e) {
+            log.error("Loyalty reconcile failed: {}", e.getMessage(), e);
+        }
+    }
+}
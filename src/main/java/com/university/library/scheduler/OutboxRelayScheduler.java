@@ -0,0 +1,36 @@
+package com.university.library.scheduler;
+
+import com.university.library.service.OutboxService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class OutboxRelayScheduler {
+
+    private final OutboxService outboxService;
+
+    @Scheduled(fixedDelayString = "${app.outbox.relay-interval-ms:1000}")
+    public void relayOutbox() {
+        try {
+            outboxService.relay();
+        } catch (Exception e) {
+            log.error("Outbox relay failed: {}", e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Mặc định 4h sáng hằng ngày dọn các sự kiện đã xử lý
+     */
+    @Scheduled(cron = "${app.outbox.purge-cron:0 0 4 * * *}")
+    public void purgeOutbox() {
+        try {
+            outboxService.purgeProcessed();
+        } catch (Exception e) {
+            log.error("Outbox purge failed: {}", e.getMessage(), e);
+        }
+    }
+}
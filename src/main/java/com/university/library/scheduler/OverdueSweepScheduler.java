@@ -0,0 +1,27 @@
+package com.university.library.scheduler;
+
+import com.university.library.service.OverdueSweepService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class OverdueSweepScheduler {
+
+    private final OverdueSweepService overdueSweepService;
+
+    /**
+     * Mặc định chạy phút thứ 5 mỗi giờ: đánh dấu quá hạn và cộng dồn tiền phạt
+     */
+    @Scheduled(cron = "${app.overdue.sweep-cron:0 5 * * * *}")
+    public void sweepOverdueBorrowings() {
+        try {
+            overdueSweepService.sweep();
+        } catch (Exception e) {
+            log.error("Overdue sweep failed: {}", e.getMessage(), e);
+        }
+    }
+}
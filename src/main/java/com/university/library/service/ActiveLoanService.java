@@ -0,0 +1,28 @@
+package com.university.library.service;
+
+public interface ActiveLoanService {
+    /**
+     * Giữ một suất mượn cho người mượn trong transaction hiện tại, ném BadRequestException nếu đã đủ giới hạn
+     */
+    void acquire(String companyAccount);
+
+    /**
+     * Khóa bộ đếm của người mượn tới hết transaction và trả về số suất còn lại (dùng cho mượn theo lô)
+     */
+    int lockRemaining(String companyAccount);
+
+    /**
+     * Cộng số suất đã dùng sau lockRemaining
+     */
+    void add(String companyAccount, int count);
+
+    /**
+     * Trả lại suất khi borrowing rời trạng thái BORROWED (trả sách, báo mất)
+     */
+    void release(String companyAccount, int count);
+
+    /**
+     * Đối soát bộ đếm với bảng borrowings, trả về số tài khoản bị lệch
+     */
+    long reconcile();
+}
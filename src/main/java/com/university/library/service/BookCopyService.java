@@ -12,6 +12,7 @@ import org.springframework.data.jpa.domain.Specification;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
+import java.io.OutputStream;
 import java.util.List;
 import java.util.UUID;
 
@@ -20,10 +21,14 @@ public interface BookCopyService {
      * Query
      */
      BookCopyResponse getBookCopyById(UUID bookCopyId) ;
+     BookCopyResponse getBookCopyByShortCode(String shortCode);
      PagedResponse<BookCopyResponse> searchBookCopies(BookCopySearchParams params);
      List<BookCopyResponse> getBookCopiesByBookId(UUID bookId);
      List<BookCopyResponse> getAvailableBookCopiesByBookId(UUID bookId);
      byte[] generateAllQRCodesPDF() throws Exception;
+     void writeAllQRCodesPDF(OutputStream outputStream) throws Exception;
+     UUID writeQRLabelsPDF(String since, UUID campusId, UUID bookId, OutputStream outputStream) throws Exception;
+     void confirmQRPrintRun(UUID printRunId);
      byte[] generateQRCodeImage(UUID bookCopyID) throws Exception;
 
     List<BookCopyResponse> findByCategory(UUID category);
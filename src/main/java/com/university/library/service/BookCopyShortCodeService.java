@@ -0,0 +1,12 @@
+package com.university.library.service;
+
+import java.util.UUID;
+
+public interface BookCopyShortCodeService {
+    /**
+     * Giải mã short code trên QR thành bookCopyId, null nếu không tồn tại
+     */
+    UUID resolve(String shortCode);
+
+    void evict(String shortCode);
+}
@@ -11,6 +11,7 @@ import org.springframework.web.multipart.MultipartFile;
 import org.springframework.data.domain.Pageable;
 
 import java.io.IOException;
+import java.io.OutputStream;
 import java.util.List;
 import java.util.UUID;
 
@@ -31,5 +32,6 @@ public interface BookService {
     BookImportResponse importBooksFromExcel(MultipartFile file);
     BookResponse updateBookCoverUrl(UUID bookId,String file);
     byte[] exportExcel(List<String[]> list ) throws IOException;
+    void exportExcel(List<String[]> list, OutputStream out) throws IOException;
     List<String[]> getDataBookToExport();
 }
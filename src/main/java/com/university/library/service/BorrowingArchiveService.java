@@ -0,0 +1,16 @@
+package com.university.library.service;
+
+import java.time.LocalDateTime;
+
+public interface BorrowingArchiveService {
+    /**
+     * Chuyển các borrowing đã đóng (RETURNED/OVERDUE/LOST) mượn trước mốc lưu trữ sang borrowings_archive.
+     * Trả về số bản ghi đã chuyển
+     */
+    int archiveClosedBorrowings();
+
+    /**
+     * Như trên nhưng với mốc borrowed_date tùy ý, dùng để dọn sạch một partition trước khi tách
+     */
+    int archiveClosedBorrowingsBefore(LocalDateTime cutoff);
+}
@@ -0,0 +1,21 @@
+package com.university.library.service;
+
+import java.util.List;
+
+public interface BorrowingPartitionService {
+    /**
+     * Chuyển bảng borrowings thường (do Hibernate tạo) sang bảng phân vùng theo tháng của borrowed_date
+     */
+    void ensurePartitioned();
+
+    /**
+     * Tạo trước partition cho tháng hiện tại và các tháng tới, trả về tên các partition vừa tạo
+     */
+    List<String> createFuturePartitions();
+
+    /**
+     * Archive các borrowing đã đóng của partition cũ hơn số tháng giữ lại, rồi tách và xoá partition đã rỗng.
+     * Partition còn khoản mượn đang mở được giữ lại. Trả về tên các partition đã tách
+     */
+    List<String> detachOldPartitions();
+}
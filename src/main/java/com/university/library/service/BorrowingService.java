@@ -1,6 +1,7 @@
 package com.university.library.service;
 
 import com.university.library.base.PagedResponse;
+import com.university.library.dto.response.borrowing.BatchBorrowingResponse;
 import com.university.library.dto.response.borrowing.BorrowingHistoryResponse;
 import com.university.library.dto.response.borrowing.BorrowingResponse;
 import com.university.library.dto.response.borrowing.BorrowingStateResponse;
@@ -14,18 +15,21 @@ public interface BorrowingService {
      * BorrowingQuery
      */
     PagedResponse<BorrowingResponse> getAllBorrowings(int page, int size, String status, String query);
-    PagedResponse<BorrowingResponse> getBorrowingsByUser(String companyAccount, int page, int size);
+    PagedResponse<BorrowingResponse> getBorrowingsByUser(String companyAccount, int page, int size, boolean allTime);
     List<BorrowingResponse> getOverdueBorrowings();
     BorrowingResponse getBorrowingById(UUID borrowingId);
     /**
      BorrowingCommand
      */
     BorrowingResponse borrowBook(UUID bookCopyId, String companyAccount);
+    BorrowingResponse borrowAnyCopy(UUID bookId, UUID campusId, String companyAccount);
     BorrowingResponse returnBook(UUID bookCopyId, String companyAccount);
     BorrowingResponse reportLost(UUID bookCopyId);
+    BatchBorrowingResponse borrowBooks(List<UUID> bookCopyIds, String companyAccount);
+    BatchBorrowingResponse returnBooks(List<UUID> bookCopyIds, String companyAccount);
 
     List<BorrowingStateResponse> getMostBorrowStats(int limit);
 
-    PagedResponse<BorrowingHistoryResponse> findBorrowingByBookCopy_BookCopyId(int page, int size, UUID bookCopyId);
+    PagedResponse<BorrowingHistoryResponse> findBorrowingByBookCopy_BookCopyId(int page, int size, UUID bookCopyId, boolean allTime);
 
 }
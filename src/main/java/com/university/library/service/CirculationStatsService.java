@@ -0,0 +1,11 @@
+package com.university.library.service;
+
+import java.time.LocalDate;
+
+public interface CirculationStatsService {
+    /**
+     * Dựng lại daily_circulation_stats cho các ngày trong [from, to] từ borrowings và borrowings_archive,
+     * chia thành các khoảng ngày chạy song song, mỗi khoảng một transaction. Trả về số dòng thống kê đã ghi
+     */
+    int backfill(LocalDate from, LocalDate to);
+}
@@ -0,0 +1,23 @@
+package com.university.library.service;
+
+import com.university.library.dto.response.dashboard.DashboardCounters;
+import org.springframework.http.codec.ServerSentEvent;
+import reactor.core.publisher.Flux;
+
+public interface DashboardLiveService {
+    /**
+     * Luồng SSE cho một admin: phát lại các delta sau lastEventId nếu còn trong bộ đệm,
+     * nếu không thì gửi "snapshot" trước rồi các "delta" tiếp theo, xen kẽ heartbeat
+     */
+    Flux<ServerSentEvent<DashboardCounters>> stream(String lastEventId);
+
+    /**
+     * Cộng delta vào bộ đếm trong bộ nhớ và phát tới mọi admin đang kết nối
+     */
+    void publish(DashboardCounters delta);
+
+    /**
+     * Đọc lại bộ đếm từ DB (sửa lệch, sang ngày mới, delta relay ở instance khác) và phát "snapshot"
+     */
+    void resync();
+}
@@ -0,0 +1,27 @@
+package com.university.library.service;
+
+import com.university.library.entity.Borrowing;
+
+import java.util.UUID;
+
+public interface DueDateReminderService {
+    /**
+     * Đặt các mốc nhắc trước hạn cho borrowing vừa tạo (áp dụng sau khi commit)
+     */
+    void scheduleReminders(Borrowing borrowing);
+
+    /**
+     * Hủy các mốc nhắc khi sách đã trả/báo mất (áp dụng sau khi commit)
+     */
+    void cancelReminders(UUID borrowingId);
+
+    /**
+     * Tiến timing wheel tới thời điểm hiện tại, đưa các nhắc đến hạn vào hàng chờ gửi
+     */
+    int fireDueReminders();
+
+    /**
+     * Gửi một lô nhắc từ hàng chờ, số lượng mỗi lô bị giới hạn để không dội kênh gửi
+     */
+    int dispatchPending();
+}
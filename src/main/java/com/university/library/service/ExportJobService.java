@@ -0,0 +1,26 @@
+package com.university.library.service;
+
+import com.university.library.dto.response.job.ExportJobResponse;
+import org.springframework.core.io.Resource;
+
+import java.util.UUID;
+
+public interface ExportJobService {
+    /**
+     * Command: trả về job đang chạy/đã xong nếu cùng tham số, ngược lại đưa vào hàng đợi
+     */
+    ExportJobResponse submitAllQRCodesPDF();
+    ExportJobResponse submitQRLabelsPDF(String since, UUID campusId, UUID bookId);
+    ExportJobResponse submitBookExcel();
+
+    /**
+     * Query
+     */
+    ExportJobResponse getJob(UUID jobId);
+    Resource getJobFile(UUID jobId);
+
+    /**
+     * Xoá job đã hoàn tất quá TTL cùng file tạm, trả về số job đã xoá
+     */
+    int purgeExpired();
+}
@@ -0,0 +1,38 @@
+package com.university.library.service;
+
+import com.university.library.dto.response.hold.HoldResponse;
+import com.university.library.entity.BookCopy;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.util.List;
+import java.util.UUID;
+
+public interface HoldService {
+    /**
+     * Query
+     */
+    List<HoldResponse> getActiveHolds(String companyAccount);
+    SseEmitter subscribe(String companyAccount);
+
+    /**
+     * Command
+     */
+    HoldResponse placeHold(UUID bookId, String companyAccount);
+    HoldResponse cancelHold(UUID holdId, String companyAccount);
+
+    /**
+     * Giao bản sao vừa trả cho hold đầu hàng đợi trong cùng transaction.
+     * bookCopy phải là entity đang được quản lý, trả về true nếu bản sao đã chuyển sang RESERVED
+     */
+    boolean allocateReturnedCopy(BookCopy bookCopy);
+
+    /**
+     * Đánh dấu hold READY của người mượn là FULFILLED khi họ đến mượn bản sao đã giữ
+     */
+    boolean fulfillHold(UUID bookCopyId, String companyAccount);
+
+    /**
+     * Giải phóng một lô hold READY đã hết hạn, trả về số hold đã xử lý
+     */
+    int releaseExpiredHolds();
+}
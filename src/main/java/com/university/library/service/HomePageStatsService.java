@@ -0,0 +1,15 @@
+package com.university.library.service;
+
+import com.university.library.dto.response.dashboard.HomePageStatsSnapshot;
+
+public interface HomePageStatsService {
+    /**
+     * Trả về bản chụp hiện có, kể cả khi đã cũ; chỉ tính lại ngay trên luồng request khi chưa có bản nào
+     */
+    HomePageStatsSnapshot getSnapshot();
+
+    /**
+     * Tính lại bản chụp; các lời gọi đồng thời dùng chung một lần tính
+     */
+    HomePageStatsSnapshot refresh();
+}
@@ -0,0 +1,29 @@
+package com.university.library.service;
+
+import com.university.library.dto.response.idempotency.IdempotentResponse;
+
+import java.util.Optional;
+
+/**
+ * Kho lưu response theo Idempotency-Key có TTL (Caffeine trong một instance, Redis khi chạy nhiều instance)
+ */
+public interface IdempotencyStore {
+    /**
+     * Giữ key (kèm fingerprint của request) nếu chưa có và trả về rỗng để caller xử lý request;
+     * đã có thì trả về response đã lưu hoặc bản ghi isInProgress() nếu request gốc chưa xong
+     */
+    Optional<IdempotentResponse> reserve(String key, String fingerprint);
+
+    /**
+     * Gia hạn khoá của key đang xử lý để request chạy lâu hơn lock-seconds không bị request thử lại chen vào.
+     * Không làm gì nếu key đã hoàn tất hoặc đã bị bỏ giữ
+     */
+    void renew(String key, String fingerprint);
+
+    void complete(String key, IdempotentResponse response);
+
+    /**
+     * Bỏ giữ key khi request gốc lỗi để client có thể thử lại
+     */
+    void release(String key);
+}
@@ -0,0 +1,34 @@
+package com.university.library.service;
+
+import com.university.library.dto.response.loyalty.LoyaltyTopResponse;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Bảng xếp hạng loyalty của tháng hiện tại giữ trong bộ nhớ, cập nhật theo từng sự kiện điểm
+ */
+public interface LoyaltyLeaderboardService {
+
+    List<LoyaltyTopResponse> getLeaderboard();
+
+    SseEmitter subscribe();
+
+    /**
+     * Đọc lại tổng tháng hiện tại của các user vừa thay đổi và đẩy sự kiện nếu top-K đổi
+     */
+    void refresh(Collection<UUID> userIds);
+
+    /**
+     * Dựng lại bảng từ top-K của loyalty_monthly_totals
+     */
+    void reload();
+
+    /**
+     * Dựng lại từ DB nếu đã quá sync-interval, rồi gửi sự kiện "leaderboard" tới các client đang theo dõi
+     * khi top-K khác lần gửi trước
+     */
+    void publishChanges();
+}
@@ -0,0 +1,11 @@
+package com.university.library.service;
+
+import com.university.library.dto.response.loyalty.LoyaltyReconcileResponse;
+
+public interface LoyaltyReconcileService {
+    /**
+     * Tính lại số dư từ loyalty_history theo từng chunk user (song song) và báo cáo các tài khoản bị lệch.
+     * Chỉ sửa số dư khi bật app.loyalty.reconcile.fix
+     */
+    LoyaltyReconcileResponse reconcile();
+}
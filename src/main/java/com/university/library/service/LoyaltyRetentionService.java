@@ -0,0 +1,10 @@
+package com.university.library.service;
+
+import com.university.library.dto.response.loyalty.LoyaltyRetentionResponse;
+
+public interface LoyaltyRetentionService {
+    /**
+     * Gộp các tháng hết hạn vào loyalty_monthly_totals rồi xoá loyalty_history cũ theo từng chunk
+     */
+    LoyaltyRetentionResponse purgeExpiredHistory();
+}
@@ -0,0 +1,11 @@
+package com.university.library.service;
+
+import java.time.YearMonth;
+
+public interface LoyaltyRollupService {
+    /**
+     * Dựng lại loyalty_monthly_totals cho các tháng trong [from, to] từ loyalty_history, mỗi tháng một transaction.
+     * Trả về số dòng tổng đã ghi
+     */
+    int backfill(YearMonth from, YearMonth to);
+}
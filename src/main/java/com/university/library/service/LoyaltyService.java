@@ -11,7 +11,7 @@ import java.util.UUID;
 
 public interface LoyaltyService {
     LoyaltyHistoryResponse updateLoyaltyPoint(LoyaltyRequest loyaltyRequest);
-//     void deleteOldLoyaltyHistories();
+    int updateLoyaltyPoints(List<LoyaltyRequest> loyaltyRequests);
 
-    List<LoyaltyTopResponse> getTop5LoyaltyUsersByMonth(int month, int year);
+    List<LoyaltyTopResponse> getTop5LoyaltyUsersByMonth(int month, int year, UUID campusId, String department);
 }
@@ -0,0 +1,15 @@
+package com.university.library.service;
+
+import com.university.library.dto.response.event.DomainEvent;
+
+import java.util.List;
+
+/**
+ * Nhận sự kiện từ outbox relay theo lô. Được gọi trong transaction của relay: ném lỗi thì cả lô được
+ * xử lý lại (at-least-once), nên consumer ghi ra ngoài DB phải chịu được sự kiện trùng theo eventId
+ */
+public interface OutboxEventConsumer {
+    String getName();
+
+    void handle(List<DomainEvent> events) throws Exception;
+}
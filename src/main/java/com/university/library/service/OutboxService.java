@@ -0,0 +1,34 @@
+package com.university.library.service;
+
+import com.university.library.dto.response.event.DomainEvent;
+
+import java.util.Collection;
+import java.util.List;
+
+public interface OutboxService {
+    /**
+     * Ghi sự kiện vào outbox trong transaction hiện tại của caller
+     */
+    void publish(DomainEvent event);
+
+    /**
+     * Phát các sự kiện đang chờ tới consumer theo lô, trả về số sự kiện đã xử lý
+     */
+    int relay();
+
+    /**
+     * Chờ các lô relay đang chạy commit rồi chặn lô mới tới hết transaction hiện tại của caller.
+     * Publish không bị ảnh hưởng. Dùng khi chụp dữ liệu mà consumer sẽ còn cộng dồn các sự kiện chưa relay
+     */
+    void pauseRelay();
+
+    /**
+     * Các sự kiện thuộc types chưa được relay, theo snapshot của transaction hiện tại của caller
+     */
+    List<DomainEvent> findPending(Collection<DomainEvent.EventType> types);
+
+    /**
+     * Xóa các sự kiện đã xử lý quá thời gian lưu
+     */
+    int purgeProcessed();
+}
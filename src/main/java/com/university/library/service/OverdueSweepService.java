@@ -0,0 +1,9 @@
+package com.university.library.service;
+
+public interface OverdueSweepService {
+    /**
+     * Đánh dấu các borrowing mới quá hạn, trừ điểm loyalty và cộng dồn tiền phạt.
+     * Trả về số borrowing vừa được đánh dấu
+     */
+    int sweep();
+}
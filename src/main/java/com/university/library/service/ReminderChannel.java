@@ -0,0 +1,14 @@
+package com.university.library.service;
+
+import com.university.library.dto.response.borrowing.DueDateReminder;
+
+import java.util.List;
+
+/**
+ * Kênh gửi nhắc hạn trả sách (log, email, push...). Dispatcher gọi theo lô đã giới hạn tốc độ
+ */
+public interface ReminderChannel {
+    String getName();
+
+    void send(List<DueDateReminder> reminders) throws Exception;
+}
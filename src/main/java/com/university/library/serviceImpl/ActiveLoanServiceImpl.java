@@ -0,0 +1,100 @@
+package com.university.library.serviceImpl;
+
+import com.university.library.exception.exceptions.BadRequestException;
+import com.university.library.repository.ActiveLoanRepository;
+import com.university.library.service.ActiveLoanService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+
+@Slf4j
+@Service
+public class ActiveLoanServiceImpl implements ActiveLoanService {
+
+    private final ActiveLoanRepository activeLoanRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final int maxActiveLoans;
+
+    public ActiveLoanServiceImpl(ActiveLoanRepository activeLoanRepository,
+                                 PlatformTransactionManager transactionManager,
+                                 @Value("${app.borrowings.max-active-loans:5}") int maxActiveLoans) {
+        this.activeLoanRepository = activeLoanRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.maxActiveLoans = maxActiveLoans;
+    }
+
+    /**
+     * Đối soát ngay khi khởi động để các lượt mượn có từ trước khi có bảng active_loans cũng được tính
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        transactionTemplate.executeWithoutResult(status -> reconcile());
+    }
+
+    /**
+     * Bộ đếm trên DB là nguồn duy nhất: câu UPSERT có điều kiện vừa kiểm tra giới hạn vừa tăng,
+     * nên mọi instance đều thấy cùng một giá trị
+     */
+    @Override
+    @Transactional
+    public void acquire(String companyAccount) {
+        if (companyAccount == null) {
+            return;
+        }
+        activeLoanRepository.tryIncrement(companyAccount, 1, maxActiveLoans, LocalDateTime.now())
+                .orElseThrow(this::limitReached);
+    }
+
+    @Override
+    @Transactional
+    public int lockRemaining(String companyAccount) {
+        if (companyAccount == null) {
+            return Integer.MAX_VALUE;
+        }
+        return Math.max(maxActiveLoans - activeLoanRepository.lockCount(companyAccount, LocalDateTime.now()), 0);
+    }
+
+    @Override
+    @Transactional
+    public void add(String companyAccount, int count) {
+        if (companyAccount == null || count <= 0) {
+            return;
+        }
+        // Dòng đã bị khóa bởi lockRemaining nên không thể vượt giới hạn ở đây
+        activeLoanRepository.tryIncrement(companyAccount, count, maxActiveLoans, LocalDateTime.now())
+                .orElseThrow(this::limitReached);
+    }
+
+    @Override
+    @Transactional
+    public void release(String companyAccount, int count) {
+        if (companyAccount == null || count <= 0) {
+            return;
+        }
+        activeLoanRepository.decrement(companyAccount, count, LocalDateTime.now());
+    }
+
+    /**
+     * Khoá ghi active_loans trước rồi mới đếm borrowings ở câu lệnh sau: mọi lượt mượn/trả đã tăng/giảm bộ đếm
+     * đều đã commit nên được đếm, lượt mới phải chờ tới khi đối soát xong, không bị ghi đè bằng số cũ
+     */
+    @Override
+    @Transactional
+    public long reconcile() {
+        activeLoanRepository.lockForReconcile();
+        long drifted = activeLoanRepository.reconcile(LocalDateTime.now());
+        log.info("Active loan reconcile: {} accounts corrected", drifted);
+        return drifted;
+    }
+
+    private BadRequestException limitReached() {
+        return new BadRequestException("User has reached maximum number of active borrowings (" + maxActiveLoans + ")");
+    }
+}
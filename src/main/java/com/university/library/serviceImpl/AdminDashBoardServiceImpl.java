@@ -2,35 +2,83 @@ package com.university.library.serviceImpl;
 
 import com.university.library.dto.response.dashboard.DashBoardResponse;
 import com.university.library.repository.BookCopyRepository;
-import com.university.library.repository.BorrowingRepository;
+import com.university.library.repository.DailyCirculationStatRepository;
 import com.university.library.repository.UserRepository;
 import com.university.library.service.AdminDashBoardService;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.sql.Date;
 import java.time.LocalDate;
-import java.time.LocalDateTime;
-import java.time.LocalTime;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
 
+@Slf4j
 @Service
 public class AdminDashBoardServiceImpl implements AdminDashBoardService {
 
+    @Autowired
+    @Qualifier("dashboardAggregateExecutor")
+    private ExecutorService aggregateExecutor;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
     @Autowired
     private UserRepository userRepository;
     @Autowired
-    private BorrowingRepository borrowingRepository;
+    private DailyCirculationStatRepository dailyCirculationStatRepository;
     @Autowired
     private BookCopyRepository bookCopyRepository;
 
+    @Value("${app.dashboard.query-timeout-ms:3000}")
+    private long queryTimeoutMs;
+
 
+    /**
+     * Các chỉ số độc lập chạy đồng thời trên virtual thread, dùng chung một deadline tính từ lúc bắt đầu
+     * nên độ trễ xấp xỉ truy vấn chậm nhất. Chỉ số quá hạn hoặc lỗi được thay bằng giá trị rỗng và ghi vào
+     * failedMetrics thay vì làm hỏng cả dashboard
+     */
     @Override
     public DashBoardResponse getAdminDashBoard(int month, int year) {
-      long numberUser = userRepository.countByIsActive(true);
-      long numberBorrow = borrowingRepository.count();
-      long numberOfBook = bookCopyRepository.count();
-        List<DashBoardResponse.StatisticResponse> statisticResponse = new ArrayList<>();
+        Future<Long> numberUser = submit(() -> userRepository.countByIsActive(true));
+        Future<Long> numberBorrow = submit(() -> dailyCirculationStatRepository.sumBorrows());
+        Future<Long> numberOfBook = submit(() -> bookCopyRepository.count());
+        Future<List<DashBoardResponse.StatisticResponse>> statisticResponse =
+                submit(() -> statisticResponseFor(month, year));
+
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(queryTimeoutMs);
+        List<String> failedMetrics = new ArrayList<>();
+        DashBoardResponse dashBoardResponse = DashBoardResponse.builder()
+                .totalUsers(await("totalUsers", numberUser, 0L, deadline, failedMetrics))
+                .totalBorrow(await("totalBorrow", numberBorrow, 0L, deadline, failedMetrics))
+                .totalBook(await("totalBook", numberOfBook, 0L, deadline, failedMetrics))
+                .statisticResponse(await("statisticResponse", statisticResponse, List.of(), deadline, failedMetrics))
+                .build();
+        if (!failedMetrics.isEmpty()) {
+            dashBoardResponse.setPartial(true);
+            dashBoardResponse.setFailedMetrics(failedMetrics);
+        }
+        return dashBoardResponse;
+    }
+
+    private List<DashBoardResponse.StatisticResponse> statisticResponseFor(int month, int year) {
+      List<DashBoardResponse.StatisticResponse> statisticResponse = new ArrayList<>();
       if(month == 0 && year == 0){
 
           month = LocalDate.now().getMonthValue();
@@ -46,7 +94,7 @@ public class AdminDashBoardServiceImpl implements AdminDashBoardService {
               year = LocalDate.now().getYear();
           }
           LocalDate startDate = LocalDate.of(year, month, 1);
-          LocalDate endDate = LocalDate.of( year, month, 1).withDayOfMonth(LocalDate.of(year, month, 1).lengthOfMonth());
+          LocalDate endDate = startDate.plusMonths(1);
           statisticResponse = statisticResponseFollowDate(startDate, endDate);
 
       }
@@ -54,59 +102,90 @@ public class AdminDashBoardServiceImpl implements AdminDashBoardService {
       {
           statisticResponse = statisticResponseFollowMonth(year);
       }
-      DashBoardResponse dashBoardResponse = DashBoardResponse.builder()
-              .statisticResponse(statisticResponse)
-              .totalBook(numberOfBook)
-              .totalUsers(numberUser)
-              .totalBorrow(numberBorrow)
-              .build();
-        return dashBoardResponse;
+      return statisticResponse;
     }
+
+    /**
+     * Mỗi chỉ số chạy trong transaction chỉ đọc riêng với statement_timeout bằng deadline, để chính PostgreSQL
+     * hủy câu lệnh quá hạn và kết nối trở về pool bình thường (ngắt thread không dừng được truy vấn)
+     */
+    private <T> Future<T> submit(Supplier<T> query) {
+        TransactionTemplate readOnly = new TransactionTemplate(transactionManager);
+        readOnly.setReadOnly(true);
+        return aggregateExecutor.submit(() -> readOnly.execute(status -> {
+            jdbcTemplate.execute("SET LOCAL statement_timeout = " + queryTimeoutMs);
+            return query.get();
+        }));
+    }
+
+    /**
+     * Quá deadline thì trả về fallback ngay, không chờ task: câu lệnh của nó bị statement_timeout hủy phía server
+     */
+    private <T> T await(String metric, Future<T> future, T fallback, long deadline, List<String> failedMetrics) {
+        try {
+            return future.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            log.warn("Dashboard metric {} timed out after {} ms", metric, queryTimeoutMs);
+        } catch (ExecutionException e) {
+            log.warn("Dashboard metric {} failed: {}", metric, e.getCause().getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        failedMetrics.add(metric);
+        return fallback;
+    }
+
+    /**
+     * Đọc từ daily_circulation_stats (mỗi ngày một dòng cho mỗi campus) thay vì quét borrowings,
+     * ngày không có lượt nào được điền 0
+     */
     public List<DashBoardResponse.StatisticResponse> statisticResponseFollowDate(LocalDate startDate, LocalDate endDate) {
+        Map<LocalDate, Object[]> buckets = toBuckets(dailyCirculationStatRepository.sumGroupedBy("day", startDate, endDate));
+
         List<DashBoardResponse.StatisticResponse> statisticResponse = new ArrayList<>();
-        while(startDate.isBefore(endDate)){
-            int numberofborrow = borrowingRepository.countByBorrowedDateIsBetween(startDate.atStartOfDay(),LocalDateTime.of(startDate, LocalTime.of(23,59,0)));
-            int numberofreutrn = borrowingRepository.countByReturnedDateIsBetween(startDate.atStartOfDay(),LocalDateTime.of(startDate, LocalTime.of(23,59,0)));
-            DashBoardResponse.StatisticResponse response = DashBoardResponse.StatisticResponse
-                    .builder()
-                    .date(startDate)
-                    .numberReturns(numberofreutrn)
-                    .numberBorrows(numberofborrow)
-                    .build();
-            statisticResponse.add(response);
-            startDate = startDate.plusDays(1);
+        for (LocalDate date = startDate; date.isBefore(endDate); date = date.plusDays(1)) {
+            statisticResponse.add(toStatistic(buckets.get(date))
+                    .date(date)
+                    .build());
         }
         return statisticResponse;
     }
+
     public List<DashBoardResponse.StatisticResponse> statisticResponseFollowMonth(int year) {
         LocalDate startDate = LocalDate.of(year, 1, 1);
-        List<DashBoardResponse.StatisticResponse> statisticResponse = new ArrayList<>();
-        Integer month = null;
-        if(year == LocalDate.now().getYear())
-        {
-            month  = LocalDate.now().getMonthValue();
-        }
-        while(startDate.getYear() == year)
-        {
-            LocalDate endquery = startDate.withDayOfMonth(startDate.lengthOfMonth());
-            int numberofborrow = borrowingRepository.countByBorrowedDateIsBetween(startDate.atStartOfDay(),LocalDateTime.of(endquery, LocalTime.of(23,59,0)));
-            int numberofreutrn = borrowingRepository.countByReturnedDateIsBetween(startDate.atStartOfDay(),LocalDateTime.of(endquery, LocalTime.of(23,59,0)));
-            DashBoardResponse.StatisticResponse response = DashBoardResponse.StatisticResponse
-                    .builder()
-                    .month(startDate.getMonthValue())
-                    .numberReturns(numberofreutrn)
-                    .numberBorrows(numberofborrow)
-                    .build();
-            statisticResponse.add(response);
-            startDate = startDate.plusMonths(1);
-            if(month != null && startDate.getMonth().getValue() > month)
-            {
-                break;
-            }
+        LocalDate endDate = startDate.plusYears(1);
+        if (year == LocalDate.now().getYear()) {
+            endDate = LocalDate.now().withDayOfMonth(1).plusMonths(1);
         }
+        Map<LocalDate, Object[]> buckets = toBuckets(dailyCirculationStatRepository.sumGroupedBy("month", startDate, endDate));
 
+        List<DashBoardResponse.StatisticResponse> statisticResponse = new ArrayList<>();
+        for (LocalDate month = startDate; month.isBefore(endDate); month = month.plusMonths(1)) {
+            statisticResponse.add(toStatistic(buckets.get(month))
+                    .month(month.getMonthValue())
+                    .build());
+        }
         return statisticResponse;
     }
 
+    private Map<LocalDate, Object[]> toBuckets(List<Object[]> rows) {
+        Map<LocalDate, Object[]> buckets = new HashMap<>();
+        for (Object[] row : rows) {
+            LocalDate bucket = row[0] instanceof Date date ? date.toLocalDate() : (LocalDate) row[0];
+            buckets.put(bucket, row);
+        }
+        return buckets;
+    }
 
+    private DashBoardResponse.StatisticResponse.StatisticResponseBuilder toStatistic(Object[] row) {
+        if (row == null) {
+            return DashBoardResponse.StatisticResponse.builder();
+        }
+        return DashBoardResponse.StatisticResponse.builder()
+                .numberBorrows(((Number) row[1]).intValue())
+                .numberReturns(((Number) row[2]).intValue())
+                .numberOverdue(((Number) row[3]).intValue())
+                .numberLost(((Number) row[4]).intValue())
+                .totalFines(((Number) row[5]).doubleValue());
+    }
 }
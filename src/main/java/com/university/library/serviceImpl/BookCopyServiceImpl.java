@@ -7,15 +7,20 @@ import com.university.library.dto.request.bookCopy.BookCopySearchParams;
 import com.university.library.dto.request.bookCopy.BookDonationRequest;
 import com.university.library.dto.request.bookCopy.CreateBookCopyCommand;
 import com.university.library.dto.request.bookCopy.CreateBookCopyFromBookCommand;
-import com.university.library.dto.request.loyalty.LoyaltyRequest;
 import com.university.library.dto.response.bookCopy.BookCopyResponse;
+import com.university.library.dto.response.event.DomainEvent;
 import com.university.library.entity.*;
+import com.university.library.exception.exceptions.BadRequestException;
 import com.university.library.exception.exceptions.NotFoundException;
 import com.university.library.repository.*;
 import com.university.library.service.BookCopyService;
+import com.university.library.service.BookCopyShortCodeService;
 import com.university.library.service.BookDonationService;
+import com.university.library.service.OutboxService;
 import com.university.library.specification.BookCopySpecification;
+import com.university.library.utils.BookCopyLinks;
 import com.university.library.utils.GetValueFromExcel;
+import com.university.library.utils.VietnameseTextNormalizer;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.pdfbox.pdmodel.PDDocument;
@@ -43,7 +48,9 @@ import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
 import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
@@ -60,20 +67,78 @@ public class BookCopyServiceImpl implements BookCopyService {
     private final CampusRepository campusRepository;
     private final UserRepository userRepository;
     private final CategoryRepository categoryRepository;
-    private final LoyaltyServiceImpl loyaltyService;
+    private final OutboxService outboxService;
     private final BookDonationService bookDonationService;
-    @Value("${app.cors.allowed-origins:*}")
-    private String corsAllowedOrigins;
+    private final QrPrintRunRepository qrPrintRunRepository;
+    private static final String SINCE_LAST_RUN = "lastRun";
+    private final BookCopyShortCodeService bookCopyShortCodeService;
+    @Value("${app.frontend-url:http://localhost:8081}")
+    private String frontendUrl;
+    @Value("${app.public-base-url:http://localhost:8082}")
+    private String publicBaseUrl;
 
     /**
      * QrCode Book
      */
     public byte[] generateAllQRCodesPDF() throws Exception {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        writeAllQRCodesPDF(outputStream);
+        return outputStream.toByteArray();
+    }
+
+    @Override
+    public void writeAllQRCodesPDF(OutputStream outputStream) throws Exception {
         // Use the new method name
         List<BookCopy> bookCopies = bookCopyRepository.findAllBookCopiesWithBook();
+        renderQRCodesPDF(bookCopies, outputStream);
+    }
+
+    /**
+     * In nhãn QR cho các bản sao chưa thuộc lần in nào đã xác nhận (hoặc mọi bản sao tạo sau mốc since).
+     * Các bản sao được gắn vào một lần in mới chưa xác nhận; chỉ confirmQRPrintRun mới đánh dấu chúng đã in,
+     * nên bản tải lỗi hay bị bỏ dở vẫn xuất hiện ở lần in sau. Trả về id lần in, null nếu không có gì để in
+     */
+    @Override
+    @Transactional
+    public UUID writeQRLabelsPDF(String since, UUID campusId, UUID bookId, OutputStream outputStream) throws Exception {
+        List<BookCopy> bookCopies;
+        if (since == null || since.isBlank() || SINCE_LAST_RUN.equalsIgnoreCase(since)) {
+            bookCopies = bookCopyRepository.findUnprinted(campusId, bookId);
+        } else {
+            try {
+                bookCopies = bookCopyRepository.findCreatedSince(campusId, bookId, LocalDateTime.parse(since));
+            } catch (DateTimeParseException e) {
+                throw new BadRequestException("Invalid since value: " + since + ", expected 'lastRun' or ISO date-time");
+            }
+        }
+        log.info("Printing {} QR labels since {} for campus {} and book {}", bookCopies.size(), since, campusId, bookId);
+        if (bookCopies.isEmpty()) {
+            return null;
+        }
+
+        renderQRCodesPDF(bookCopies, outputStream);
+
+        QrPrintRun printRun = qrPrintRunRepository.save(QrPrintRun.builder()
+                .campusId(campusId)
+                .bookId(bookId)
+                .labelCount(bookCopies.size())
+                .build());
+        bookCopyRepository.assignPrintRun(bookCopies.stream().map(BookCopy::getBookCopyId).toList(),
+                printRun.getPrintRunId());
+        return printRun.getPrintRunId();
+    }
+
+    @Override
+    @Transactional
+    public void confirmQRPrintRun(UUID printRunId) {
+        if (qrPrintRunRepository.confirm(printRunId, LocalDateTime.now()) == 0
+                && !qrPrintRunRepository.existsById(printRunId)) {
+            throw new NotFoundException("Print run not found: " + printRunId);
+        }
+    }
 
-        try (PDDocument document = new PDDocument();
-             ByteArrayOutputStream outputStream = new ByteArrayOutputStream()) {
+    private void renderQRCodesPDF(List<BookCopy> bookCopies, OutputStream outputStream) throws Exception {
+        try (PDDocument document = new PDDocument()) {
 
             // Load a Unicode-supporting font
             PDFont font = loadUnicodeFont(document);
@@ -84,8 +149,7 @@ public class BookCopyServiceImpl implements BookCopyService {
 
                 try (PDPageContentStream contentStream = new PDPageContentStream(document, page)) {
                     // Generate QR code
-                    String qrContent = corsAllowedOrigins + "/app/v1/book-copies/" + String.valueOf(bookCopy.getBookCopyId());
-//                    String qrContent = String.valueOf(bookCopy.getBookCopyId());
+                    String qrContent = buildQRContent(bookCopy);
                     byte[] qrImageBytes = qrCodeService.generateQRCodeImage(qrContent, 200, 200);
                     PDImageXObject qrImage = PDImageXObject.createFromByteArray(document, qrImageBytes, "QRCode");
                     // Add QR code to PDF
@@ -101,12 +165,15 @@ public class BookCopyServiceImpl implements BookCopyService {
                     contentStream.newLineAtOffset(0, -20);
                     safeShowText(contentStream, "Book Copy ID: " + bookCopy.getBookCopyId());
                     contentStream.newLineAtOffset(0, -20);
+                    if (bookCopy.getShortCode() != null) {
+                        safeShowText(contentStream, "Code: " + bookCopy.getShortCode());
+                        contentStream.newLineAtOffset(0, -20);
+                    }
                     contentStream.endText();
                 }
             }
 
             document.save(outputStream);
-            return outputStream.toByteArray();
         }
     }
 
@@ -161,30 +228,11 @@ public class BookCopyServiceImpl implements BookCopyService {
             contentStream.showText(text);
         } catch (Exception e) {
             // If Unicode text fails, convert to ASCII approximation
-            String asciiText = convertVietnameseToAscii(text);
+            String asciiText = VietnameseTextNormalizer.toAscii(text);
             contentStream.showText(asciiText);
         }
     }
 
-    private String convertVietnameseToAscii(String text) {
-        // Basic Vietnamese to ASCII conversion
-        return text
-                .replaceAll("[àáạảãâầấậẩẫăằắặẳẵ]", "a")
-                .replaceAll("[ÀÁẠẢÃÂẦẤẬẨẪĂẰẮẶẲẴ]", "A")
-                .replaceAll("[èéẹẻẽêềếệểễ]", "e")
-                .replaceAll("[ÈÉẸẺẼÊỀẾỆỂỄ]", "E")
-                .replaceAll("[ìíịỉĩ]", "i")
-                .replaceAll("[ÌÍỊỈĨ]", "I")
-                .replaceAll("[òóọỏõôồốộổỗơờớợởỡ]", "o")
-                .replaceAll("[ÒÓỌỎÕÔỒỐỘỔỖƠỜỚỢỞỠ]", "O")
-                .replaceAll("[ùúụủũưừứựửữ]", "u")
-                .replaceAll("[ÙÚỤỦŨƯỪỨỰỬỮ]", "U")
-                .replaceAll("[ỳýỵỷỹ]", "y")
-                .replaceAll("[ỲÝỴỶỸ]", "Y")
-                .replaceAll("[đ]", "d")
-                .replaceAll("[Đ]", "D");
-    }
-
     /**
      * BookCopyQuery
      */
@@ -257,8 +305,26 @@ public class BookCopyServiceImpl implements BookCopyService {
     public byte[] generateQRCodeImage(UUID bookCopyID) throws Exception {
         BookCopy bookCopy = bookCopyRepository.findById(bookCopyID)
                 .orElseThrow(() -> new RuntimeException("Book copy not found with ID: " + bookCopyID));
-        String idBookCopy = corsAllowedOrigins + "/api/v1/book-copies/" + bookCopy.getBookCopyId();
-        return qrCodeService.generateQRCodeImage(idBookCopy, 250, 250);
+        return qrCodeService.generateQRCodeImage(buildQRContent(bookCopy), 250, 250);
+    }
+
+    /**
+     * QR chứa URL ngắn /c/{shortCode}, bản sao cũ chưa có mã thì giữ URL theo UUID
+     */
+    private String buildQRContent(BookCopy bookCopy) {
+        if (bookCopy.getShortCode() != null) {
+            return publicBaseUrl + "/c/" + bookCopy.getShortCode();
+        }
+        return BookCopyLinks.frontendUrl(frontendUrl, bookCopy.getBookCopyId());
+    }
+
+    @Override
+    public BookCopyResponse getBookCopyByShortCode(String shortCode) {
+        UUID bookCopyId = bookCopyShortCodeService.resolve(shortCode);
+        if (bookCopyId == null) {
+            throw new NotFoundException("Book copy not found with code: " + shortCode);
+        }
+        return getBookCopyById(bookCopyId);
     }
 
     @Override
@@ -310,6 +376,7 @@ public class BookCopyServiceImpl implements BookCopyService {
         }
 
         bookCopyRepository.delete(bookCopy);
+        bookCopyShortCodeService.evict(bookCopy.getShortCode());
 
 
         log.info(BookCopyConstants.LOG_BOOK_COPY_DELETED, bookCopyId);
@@ -375,7 +442,8 @@ public class BookCopyServiceImpl implements BookCopyService {
                 .orElseThrow(() -> new NotFoundException("Category not found with name: " + request.getCategoryName()));
 
 
-        Book b = bookRepository.findByTitleEqualsIgnoreCase(request.getTitle());
+        Book b = bookRepository.findFirstByNormalizedTitle(VietnameseTextNormalizer.normalize(request.getTitle()))
+                .orElse(null);
         if (b == null) {
             b = Book.builder()
                     .title(request.getTitle())
@@ -407,13 +475,15 @@ public class BookCopyServiceImpl implements BookCopyService {
         log.info("Create book donation successfully");
 
         if (user != null) {
-            LoyaltyRequest loyaltyRequest = LoyaltyRequest.builder()
+            outboxService.publish(DomainEvent.builder()
+                    .type(DomainEvent.EventType.BOOK_DONATED)
+                    .userId(user.getUserId())
+                    .companyAccount(user.getCompanyAccount())
+                    .bookId(saveBc.getBook() != null ? saveBc.getBook().getBookId() : null)
                     .bookCopyId(saveBc.getBookCopyId())
                     .loyaltyAction(LoyaltyHistory.LoyaltyAction.DONATE_BOOK)
-                    .userId(user.getUserId())
-                    .build();
-            loyaltyService.updateLoyaltyPoint(loyaltyRequest);
-            log.info("Loyalty point updated successfully");
+                    .build());
+            log.info("Loyalty point update queued");
         } else {
             log.info("Loyalty point not updated user not found in system");
         }
@@ -464,7 +534,8 @@ public class BookCopyServiceImpl implements BookCopyService {
                 continue;
             }
 
-            Book book = bookRepository.findByTitleEqualsIgnoreCase(title);
+            Book book = bookRepository.findFirstByNormalizedTitle(VietnameseTextNormalizer.normalize(title))
+                    .orElse(null);
             if (book == null) {
                 book = Book.builder()
                         .title(title)
@@ -503,13 +574,15 @@ public class BookCopyServiceImpl implements BookCopyService {
 
                 bookDonation =  bookDonationService.save(bookDonation);
                 log.info("Create book donation successfully");
-                LoyaltyRequest loyaltyRequest = LoyaltyRequest.builder()
+                outboxService.publish(DomainEvent.builder()
+                        .type(DomainEvent.EventType.BOOK_DONATED)
+                        .userId(user.getUserId())
+                        .companyAccount(user.getCompanyAccount())
+                        .bookId(bookCopy.getBook() != null ? bookCopy.getBook().getBookId() : null)
                         .bookCopyId(bookCopy.getBookCopyId())
                         .loyaltyAction(LoyaltyHistory.LoyaltyAction.DONATE_BOOK)
-                        .userId(user.getUserId())
-                        .build();
-                loyaltyService.updateLoyaltyPoint(loyaltyRequest);
-                log.info("Loyalty point updated successfully");
+                        .build());
+                log.info("Loyalty point update queued");
             } else {
                 log.info("Loyalty point not updated user not found in system");
             }
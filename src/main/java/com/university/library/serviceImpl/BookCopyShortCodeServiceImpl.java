@@ -0,0 +1,80 @@
+package com.university.library.serviceImpl;
+
+import com.university.library.entity.BookCopy;
+import com.university.library.repository.BookCopyRepository;
+import com.university.library.service.BookCopyShortCodeService;
+import com.university.library.utils.ShortCodeGenerator;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Map short code -> bookCopyId giữ trong bộ nhớ, quét QR không cần chạm DB
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class BookCopyShortCodeServiceImpl implements BookCopyShortCodeService {
+    private final BookCopyRepository bookCopyRepository;
+    private final Map<String, UUID> codeToBookCopyId = new ConcurrentHashMap<>();
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        backfillMissingShortCodes();
+
+        List<Object[]> rows = bookCopyRepository.findAllShortCodes();
+        for (Object[] row : rows) {
+            codeToBookCopyId.put((String) row[0], (UUID) row[1]);
+        }
+        log.info("Loaded {} book copy short codes", codeToBookCopyId.size());
+    }
+
+    /**
+     * Bản sao tạo trước khi có cột short_code sẽ được gán mã theo từng lô
+     */
+    private void backfillMissingShortCodes() {
+        int total = 0;
+        List<BookCopy> batch = bookCopyRepository.findTop500ByShortCodeIsNull();
+        while (!batch.isEmpty()) {
+            batch.forEach(bookCopy -> bookCopy.setShortCode(ShortCodeGenerator.generate()));
+            bookCopyRepository.saveAll(batch);
+            total += batch.size();
+            batch = bookCopyRepository.findTop500ByShortCodeIsNull();
+        }
+        if (total > 0) {
+            log.info("Backfilled short codes for {} book copies", total);
+        }
+    }
+
+    @Override
+    public UUID resolve(String shortCode) {
+        if (!ShortCodeGenerator.isValid(shortCode)) {
+            return null;
+        }
+        UUID bookCopyId = codeToBookCopyId.get(shortCode);
+        if (bookCopyId != null) {
+            return bookCopyId;
+        }
+        // Bản sao vừa tạo ở instance khác chưa có trong map
+        return bookCopyRepository.findBookCopyIdByShortCode(shortCode)
+                .map(id -> {
+                    codeToBookCopyId.put(shortCode, id);
+                    return id;
+                })
+                .orElse(null);
+    }
+
+    @Override
+    public void evict(String shortCode) {
+        if (shortCode != null) {
+            codeToBookCopyId.remove(shortCode);
+        }
+    }
+}
@@ -18,6 +18,7 @@ import com.university.library.repository.CampusRepository;
 import com.university.library.repository.CategoryRepository;
 import com.university.library.service.BookService;
 import com.university.library.specification.BookSpecification;
+import com.university.library.utils.VietnameseTextNormalizer;
 import jakarta.persistence.Column;
 import lombok.Builder;
 import lombok.RequiredArgsConstructor;
@@ -26,6 +27,8 @@ import lombok.extern.slf4j.Slf4j;
 import org.apache.poi.openxml4j.exceptions.OLE2NotOfficeXmlFileException;
 import org.apache.poi.ss.usermodel.*;
 import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
@@ -39,6 +42,7 @@ import java.io.BufferedReader;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStreamReader;
+import java.io.OutputStream;
 import java.math.BigDecimal;
 import java.nio.charset.StandardCharsets;
 import java.util.*;
@@ -218,6 +222,24 @@ public class BookServiceImpl implements BookService {
     }
 
 
+    /**
+     * Sách tạo trước khi có normalized_title/search_text được chuẩn hoá lại theo lô
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfillNormalizedFields() {
+        int total = 0;
+        List<Book> batch = bookRepository.findTop500ByNormalizedTitleIsNull();
+        while (!batch.isEmpty()) {
+            batch.forEach(Book::refreshNormalizedFields);
+            bookRepository.saveAll(batch);
+            total += batch.size();
+            batch = bookRepository.findTop500ByNormalizedTitleIsNull();
+        }
+        if (total > 0) {
+            log.info("Normalized search fields for {} books", total);
+        }
+    }
+
     private boolean hasActiveBorrowings(UUID bookId) {
         return false;
     }
@@ -366,6 +388,13 @@ public class BookServiceImpl implements BookService {
 
     @Override
     public byte[] exportExcel(List<String[]> data) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        exportExcel(data, out);
+        return out.toByteArray();
+    }
+
+    @Override
+    public void exportExcel(List<String[]> data, OutputStream out) throws IOException {
         Workbook workbook = new XSSFWorkbook();
         Sheet sheet = workbook.createSheet("Books");
         for (int i = 0; i < data.size(); i++) {
@@ -387,13 +416,12 @@ public class BookServiceImpl implements BookService {
                 }
             }
         }
-        ByteArrayOutputStream out = new ByteArrayOutputStream();
         workbook.write(out);
         workbook.close();
-        return out.toByteArray();
     }
 
     @Override
+    @Transactional(readOnly = true)
     public List<String[]> getDataBookToExport() {
       List<String[]> data = new ArrayList<>();
       data.add(new String[]{"Title", "Author", "Quantity","FT1: Learning Hub","FT2: Library","FT2: CanTeen"
@@ -475,7 +503,12 @@ public class BookServiceImpl implements BookService {
         }
 
         // Tìm sách đã tồn tại hoặc tạo mới
-        Book book = bookRepository.findByTitleAndAuthorAndPublisher(title, author, publisher)
+        String normalizedAuthor = VietnameseTextNormalizer.normalize(author);
+        String normalizedPublisher = VietnameseTextNormalizer.normalize(publisher);
+        Book book = bookRepository.findByNormalizedTitle(VietnameseTextNormalizer.normalize(title)).stream()
+                .filter(b -> normalizedAuthor.equals(VietnameseTextNormalizer.normalize(b.getAuthor()))
+                        && normalizedPublisher.equals(VietnameseTextNormalizer.normalize(b.getPublisher())))
+                .findFirst()
                 .orElseGet(() -> {
                     Book newBook = Book.builder()
                             .title(title)
@@ -0,0 +1,62 @@
+package com.university.library.serviceImpl;
+
+import com.university.library.entity.Borrowing;
+import com.university.library.repository.BorrowingArchiveRepository;
+import com.university.library.service.BorrowingArchiveService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Slf4j
+@Service
+public class BorrowingArchiveServiceImpl implements BorrowingArchiveService {
+
+    private static final List<String> CLOSED_STATUSES = List.of(
+            Borrowing.BorrowingStatus.RETURNED.name(),
+            Borrowing.BorrowingStatus.OVERDUE.name(),
+            Borrowing.BorrowingStatus.LOST.name());
+
+    private final BorrowingArchiveRepository borrowingArchiveRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final int afterDays;
+    private final int chunkSize;
+
+    public BorrowingArchiveServiceImpl(BorrowingArchiveRepository borrowingArchiveRepository,
+                                       PlatformTransactionManager transactionManager,
+                                       @Value("${app.borrowings.archive.after-days:365}") int afterDays,
+                                       @Value("${app.borrowings.archive.chunk-size:1000}") int chunkSize) {
+        this.borrowingArchiveRepository = borrowingArchiveRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.afterDays = afterDays;
+        this.chunkSize = chunkSize;
+    }
+
+    @Override
+    public int archiveClosedBorrowings() {
+        return archiveClosedBorrowingsBefore(LocalDateTime.now().minusDays(afterDays));
+    }
+
+    /**
+     * Mỗi chunk một transaction để lock và WAL ngắn; dừng khi không còn gì để chuyển
+     */
+    @Override
+    public int archiveClosedBorrowingsBefore(LocalDateTime cutoff) {
+        LocalDateTime now = LocalDateTime.now();
+        int archived = 0;
+        int moved;
+        do {
+            Long count = transactionTemplate.execute(status ->
+                    borrowingArchiveRepository.archiveClosedBorrowings(cutoff, CLOSED_STATUSES, chunkSize, now));
+            moved = count != null ? count.intValue() : 0;
+            archived += moved;
+        } while (moved > 0);
+
+        log.info("Borrowing archive: moved {} closed borrowings borrowed before {}", archived, cutoff);
+        return archived;
+    }
+}
@@ -0,0 +1,263 @@
+package com.university.library.serviceImpl;
+
+import com.university.library.service.BorrowingArchiveService;
+import com.university.library.service.BorrowingPartitionService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Quản lý phân vùng theo tháng (RANGE trên borrowed_date) của bảng borrowings.
+ * Schema do Hibernate ddl-auto tạo dạng bảng thường nên bước chuyển đổi sang bảng phân vùng chạy ngay sau khi
+ * khởi tạo xong các singleton, trước khi web server nhận request và trước khi các job định kỳ được đăng ký;
+ * khóa chính trên DB thành (borrowing_id, borrowed_date) vì PostgreSQL yêu cầu chứa khóa phân vùng.
+ * Partition DEFAULT hứng các dòng ngoài dải tháng đã tạo nên không thể DETACH CONCURRENTLY:
+ * chỉ tách partition đã rỗng, với lock_timeout ngắn để không xếp hàng chặn các request khác.
+ */
+@Slf4j
+@Service
+public class BorrowingPartitionServiceImpl implements BorrowingPartitionService, SmartInitializingSingleton {
+
+    private static final String TABLE = "borrowings";
+    private static final String LEGACY_TABLE = "borrowings_legacy";
+    private static final String DEFAULT_PARTITION = "borrowings_default";
+    private static final String PARTITION_KEY = "borrowed_date";
+    private static final DateTimeFormatter PARTITION_SUFFIX = DateTimeFormatter.ofPattern("yyyyMM");
+    private static final Pattern PARTITION_NAME = Pattern.compile("^borrowings_p(\\d{4})(\\d{2})$");
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final BorrowingArchiveService borrowingArchiveService;
+    private final int monthsAhead;
+    private final int retainMonths;
+    private final boolean migrateOnStartup;
+    private final long detachLockTimeoutMs;
+
+    public BorrowingPartitionServiceImpl(JdbcTemplate jdbcTemplate,
+                                         PlatformTransactionManager transactionManager,
+                                         BorrowingArchiveService borrowingArchiveService,
+                                         @Value("${app.borrowings.partitions.months-ahead:3}") int monthsAhead,
+                                         @Value("${app.borrowings.partitions.retain-months:0}") int retainMonths,
+                                         @Value("${app.borrowings.partitions.migrate-on-startup:true}") boolean migrateOnStartup,
+                                         @Value("${app.borrowings.partitions.detach-lock-timeout-ms:5000}") long detachLockTimeoutMs) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.borrowingArchiveService = borrowingArchiveService;
+        this.monthsAhead = Math.max(1, monthsAhead);
+        this.retainMonths = retainMonths;
+        this.migrateOnStartup = migrateOnStartup;
+        this.detachLockTimeoutMs = detachLockTimeoutMs;
+    }
+
+    /**
+     * Chạy khi schema Hibernate đã tạo xong nhưng web server chưa start, nên ACCESS EXCLUSIVE lúc chuyển đổi
+     * không chặn request nào. Lỗi làm ứng dụng dừng khởi động thay vì chạy tiếp trên schema dở dang.
+     * Tắt migrate-on-startup khi muốn chạy bước này như một migration riêng
+     */
+    @Override
+    public void afterSingletonsInstantiated() {
+        if (!migrateOnStartup) {
+            return;
+        }
+        ensurePartitioned();
+        createFuturePartitions();
+    }
+
+    @Override
+    public void ensurePartitioned() {
+        if (isPartitioned()) {
+            return;
+        }
+        transactionTemplate.executeWithoutResult(status -> convertToPartitioned());
+    }
+
+    @Override
+    public List<String> createFuturePartitions() {
+        List<String> created = new ArrayList<>();
+        YearMonth current = YearMonth.now();
+        for (int i = 0; i <= monthsAhead; i++) {
+            if (createPartition(current.plusMonths(i))) {
+                created.add(partitionName(current.plusMonths(i)));
+            }
+        }
+        if (!created.isEmpty()) {
+            log.info("Created borrowings partitions {}", created);
+        }
+        return created;
+    }
+
+    /**
+     * Chuyển các borrowing đã đóng của partition sang archive trước, chỉ tách rồi xoá partition khi đã rỗng;
+     * partition còn khoản mượn đang mở (hoặc dòng chưa archive được) được giữ nguyên và ghi cảnh báo
+     */
+    @Override
+    public List<String> detachOldPartitions() {
+        List<String> detached = new ArrayList<>();
+        if (retainMonths <= 0) {
+            return detached;
+        }
+        YearMonth cutoff = YearMonth.now().minusMonths(retainMonths);
+        for (String partition : listPartitions()) {
+            Matcher m = PARTITION_NAME.matcher(partition);
+            if (!m.matches()) {
+                continue;
+            }
+            YearMonth month = YearMonth.of(Integer.parseInt(m.group(1)), Integer.parseInt(m.group(2)));
+            if (!month.isBefore(cutoff)) {
+                continue;
+            }
+            borrowingArchiveService.archiveClosedBorrowingsBefore(month.plusMonths(1).atDay(1).atStartOfDay());
+            Boolean detachedPartition = transactionTemplate.execute(status -> detachIfEmpty(partition));
+            if (Boolean.TRUE.equals(detachedPartition)) {
+                detached.add(partition);
+            }
+        }
+        if (!detached.isEmpty()) {
+            log.info("Detached and dropped empty borrowings partitions {}", detached);
+        }
+        return detached;
+    }
+
+    /**
+     * Khoá partition rồi mới kiểm tra rỗng để không có dòng nào được ghi vào giữa lúc kiểm tra và lúc tách
+     */
+    private boolean detachIfEmpty(String partition) {
+        jdbcTemplate.execute("SET LOCAL lock_timeout = " + detachLockTimeoutMs);
+        jdbcTemplate.execute("LOCK TABLE " + partition + " IN SHARE MODE");
+        Boolean hasRows = jdbcTemplate.queryForObject(
+                "SELECT EXISTS (SELECT 1 FROM " + partition + ")", Boolean.class);
+        if (Boolean.TRUE.equals(hasRows)) {
+            log.warn("Keeping borrowings partition {}: it still has open or unarchived borrowings", partition);
+            return false;
+        }
+        jdbcTemplate.execute("ALTER TABLE " + TABLE + " DETACH PARTITION " + partition);
+        jdbcTemplate.execute("DROP TABLE " + partition);
+        return true;
+    }
+
+    private boolean isPartitioned() {
+        Boolean partitioned = jdbcTemplate.queryForObject(
+                "SELECT EXISTS (SELECT 1 FROM pg_partitioned_table WHERE partrelid = to_regclass(?))",
+                Boolean.class, TABLE);
+        return Boolean.TRUE.equals(partitioned);
+    }
+
+    private void convertToPartitioned() {
+        jdbcTemplate.execute("LOCK TABLE " + TABLE + " IN ACCESS EXCLUSIVE MODE");
+
+        // Lưu định nghĩa index/FK trước khi đổi tên để tạo lại trên bảng phân vùng với đúng tên cũ
+        String primaryKey = jdbcTemplate.queryForObject(
+                "SELECT conname FROM pg_constraint WHERE conrelid = to_regclass(?) AND contype = 'p'",
+                String.class, TABLE);
+        // FK và ràng buộc UNIQUE tạo lại bằng pg_get_constraintdef, index còn lại bằng pg_get_indexdef
+        List<Map<String, Object>> constraints = jdbcTemplate.queryForList(
+                "SELECT conname, contype, pg_get_constraintdef(oid) AS def, " +
+                "EXISTS (SELECT 1 FROM pg_attribute a WHERE a.attrelid = conrelid AND a.attnum = ANY(conkey) " +
+                "AND a.attname = ?) AS has_key FROM pg_constraint " +
+                "WHERE conrelid = to_regclass(?) AND contype IN ('f', 'u')", PARTITION_KEY, TABLE);
+        List<Map<String, Object>> indexes = jdbcTemplate.queryForList(
+                "SELECT ic.relname AS name, pg_get_indexdef(i.indexrelid) AS def, i.indisunique AS is_unique, " +
+                "EXISTS (SELECT 1 FROM pg_attribute a WHERE a.attrelid = i.indrelid AND a.attnum = ANY(i.indkey) " +
+                "AND a.attname = ?) AS has_key FROM pg_index i " +
+                "JOIN pg_class ic ON ic.oid = i.indexrelid " +
+                "WHERE i.indrelid = to_regclass(?) AND NOT i.indisprimary " +
+                "AND NOT EXISTS (SELECT 1 FROM pg_constraint c WHERE c.conindid = i.indexrelid)",
+                PARTITION_KEY, TABLE);
+
+        // Bảng phân vùng chỉ hỗ trợ UNIQUE có chứa khóa phân vùng: dừng hẳn thay vì âm thầm bỏ ràng buộc
+        List<Object> unsupported = new ArrayList<>();
+        constraints.stream()
+                .filter(c -> "u".equals(String.valueOf(c.get("contype"))) && !Boolean.TRUE.equals(c.get("has_key")))
+                .forEach(c -> unsupported.add(c.get("conname")));
+        indexes.stream()
+                .filter(i -> Boolean.TRUE.equals(i.get("is_unique")) && !Boolean.TRUE.equals(i.get("has_key")))
+                .forEach(i -> unsupported.add(i.get("name")));
+        if (!unsupported.isEmpty()) {
+            throw new IllegalStateException("Cannot partition " + TABLE + " by " + PARTITION_KEY +
+                    ": unique constraints/indexes " + unsupported + " do not include the partition key");
+        }
+
+        jdbcTemplate.execute("ALTER TABLE " + TABLE + " RENAME TO " + LEGACY_TABLE);
+        for (Map<String, Object> constraint : constraints) {
+            jdbcTemplate.execute("ALTER TABLE " + LEGACY_TABLE + " DROP CONSTRAINT " + constraint.get("conname"));
+        }
+        for (Map<String, Object> index : indexes) {
+            jdbcTemplate.execute("DROP INDEX " + index.get("name"));
+        }
+        if (primaryKey != null) {
+            jdbcTemplate.execute("ALTER TABLE " + LEGACY_TABLE + " DROP CONSTRAINT " + primaryKey);
+        }
+
+        jdbcTemplate.execute("CREATE TABLE " + TABLE + " (LIKE " + LEGACY_TABLE +
+                " INCLUDING DEFAULTS INCLUDING CONSTRAINTS) PARTITION BY RANGE (borrowed_date)");
+        jdbcTemplate.execute("ALTER TABLE " + TABLE + " ADD CONSTRAINT " +
+                (primaryKey != null ? primaryKey : TABLE + "_pkey") + " PRIMARY KEY (borrowing_id, borrowed_date)");
+
+        LocalDateTime minDate = jdbcTemplate.queryForObject(
+                "SELECT MIN(borrowed_date) FROM " + LEGACY_TABLE, LocalDateTime.class);
+        LocalDateTime maxDate = jdbcTemplate.queryForObject(
+                "SELECT MAX(borrowed_date) FROM " + LEGACY_TABLE, LocalDateTime.class);
+        YearMonth from = minDate != null ? YearMonth.from(minDate) : YearMonth.now();
+        YearMonth to = YearMonth.now().plusMonths(monthsAhead);
+        if (maxDate != null && YearMonth.from(maxDate).isAfter(to)) {
+            to = YearMonth.from(maxDate);
+        }
+        for (YearMonth month = from; !month.isAfter(to); month = month.plusMonths(1)) {
+            createPartition(month);
+        }
+        jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS " + DEFAULT_PARTITION + " PARTITION OF " + TABLE + " DEFAULT");
+
+        int moved = jdbcTemplate.update("INSERT INTO " + TABLE + " SELECT * FROM " + LEGACY_TABLE);
+        for (Map<String, Object> constraint : constraints) {
+            jdbcTemplate.execute("ALTER TABLE " + TABLE + " ADD CONSTRAINT " + constraint.get("conname") + " " +
+                    constraint.get("def"));
+        }
+        for (Map<String, Object> index : indexes) {
+            jdbcTemplate.execute((String) index.get("def"));
+        }
+        jdbcTemplate.execute("DROP TABLE " + LEGACY_TABLE);
+        log.info("Converted {} to monthly range partitions ({} -> {}), moved {} rows", TABLE, from, to, moved);
+    }
+
+    /**
+     * Tạo partition mới phải quét partition DEFAULT; nếu DEFAULT đã có dòng của tháng đó PostgreSQL sẽ báo lỗi
+     * và dòng cần được chuyển tay, tháng hiện tại và các tháng tới luôn được tạo trước nên bình thường DEFAULT rỗng
+     */
+    private boolean createPartition(YearMonth month) {
+        String name = partitionName(month);
+        Boolean exists = jdbcTemplate.queryForObject("SELECT to_regclass(?) IS NOT NULL", Boolean.class, name);
+        if (Boolean.TRUE.equals(exists)) {
+            return false;
+        }
+        LocalDate start = month.atDay(1);
+        LocalDate end = month.plusMonths(1).atDay(1);
+        jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS " + name + " PARTITION OF " + TABLE +
+                " FOR VALUES FROM ('" + Date.valueOf(start) + "') TO ('" + Date.valueOf(end) + "')");
+        return true;
+    }
+
+    private List<String> listPartitions() {
+        return jdbcTemplate.queryForList(
+                "SELECT c.relname FROM pg_inherits i JOIN pg_class c ON c.oid = i.inhrelid " +
+                "WHERE i.inhparent = to_regclass(?) ORDER BY c.relname", String.class, TABLE);
+    }
+
+    private String partitionName(YearMonth month) {
+        return TABLE + "_p" + month.format(PARTITION_SUFFIX);
+    }
+}
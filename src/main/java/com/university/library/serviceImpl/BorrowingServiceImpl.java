@@ -1,35 +1,53 @@
 package com.university.library.serviceImpl;
 
 import com.university.library.base.PagedResponse;
-import com.university.library.dto.request.loyalty.LoyaltyRequest;
+import com.university.library.dto.response.borrowing.BatchBorrowingResponse;
 import com.university.library.dto.response.borrowing.BorrowingHistoryResponse;
 import com.university.library.dto.response.borrowing.BorrowingResponse;
 import com.university.library.dto.response.borrowing.BorrowingStateResponse;
+import com.university.library.dto.response.event.DomainEvent;
 import com.university.library.entity.BookCopy;
 import com.university.library.entity.Borrowing;
+import com.university.library.entity.BorrowingArchive;
 import com.university.library.entity.LoyaltyHistory;
 import com.university.library.entity.User;
+import com.university.library.exception.exceptions.BadRequestException;
+import com.university.library.exception.exceptions.ConflictException;
+import com.university.library.exception.exceptions.NotFoundException;
 import com.university.library.repository.BookCopyRepository;
+import com.university.library.repository.BorrowingArchiveRepository;
 import com.university.library.repository.BorrowingRepository;
 import com.university.library.repository.UserRepository;
+import com.university.library.service.ActiveLoanService;
 import com.university.library.service.BorrowingService;
-import com.university.library.service.LoyaltyService;
+import com.university.library.service.DueDateReminderService;
+import com.university.library.service.HoldService;
+import com.university.library.service.OutboxService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Isolation;
 import org.springframework.transaction.annotation.Transactional;
 
-import java.time.Instant;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.function.Function;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import static com.university.library.entity.Borrowing.BorrowingStatus.BORROWED;
 
@@ -39,9 +57,13 @@ import static com.university.library.entity.Borrowing.BorrowingStatus.BORROWED;
 public class BorrowingServiceImpl implements BorrowingService {
 
     private final BorrowingRepository borrowingRepository;
+    private final BorrowingArchiveRepository borrowingArchiveRepository;
     private final BookCopyRepository bookCopyRepository;
     private final UserRepository userRepository;
-    private final LoyaltyService loyaltyService;
+    private final OutboxService outboxService;
+    private final ActiveLoanService activeLoanService;
+    private final HoldService holdService;
+    private final DueDateReminderService dueDateReminderService;
 
     /**
      * Borrowing Query
@@ -54,7 +76,7 @@ public class BorrowingServiceImpl implements BorrowingService {
     public PagedResponse<BorrowingResponse> getAllBorrowings(int page, int size, String status, String query) {
         log.info("Querying borrowings - page: {}, size: {}, status: {}, query: {}", page, size, status, query);
 
-        Pageable pageable = PageRequest.of(page, size, Sort.by("createdAt").descending());
+        Pageable pageable = PageRequest.of(page, size, Sort.by("borrowedDate").descending());
         Page<Borrowing> borrowingsPage;
 
         if (status != null && !status.isEmpty()) {
@@ -95,13 +117,18 @@ public class BorrowingServiceImpl implements BorrowingService {
     }
 
     /**
-     * Lấy borrowings của một người dùng
+     * Lấy borrowings của một người dùng. allTime đọc cả bảng nóng và archive trong cùng một snapshot
      */
-    public PagedResponse<BorrowingResponse> getBorrowingsByUser(String companyAccount, int page, int size) {
-        log.info("Getting borrowings for user: {} with pagination: page={}, size={}", companyAccount, page, size);
+    @Transactional(readOnly = true, isolation = Isolation.REPEATABLE_READ)
+    public PagedResponse<BorrowingResponse> getBorrowingsByUser(String companyAccount, int page, int size, boolean allTime) {
+        log.info("Getting borrowings for user: {} with pagination: page={}, size={}, allTime={}", companyAccount, page, size, allTime);
 
-        Pageable pageable = PageRequest.of(page, size, Sort.by("createdAt").descending());
-        Page<Borrowing> borrowingPage = borrowingRepository.findByCompanyAccount(companyAccount, pageable);
+        Pageable pageable = PageRequest.of(page, size, Sort.by("borrowedDate").descending());
+        Page<Borrowing> borrowingPage = allTime
+                ? mergeWithArchive(pageable,
+                        window -> borrowingRepository.findByCompanyAccount(companyAccount, window),
+                        window -> borrowingArchiveRepository.findByCompanyAccount(companyAccount, window))
+                : borrowingRepository.findByCompanyAccount(companyAccount, pageable);
 
         List<BorrowingResponse> borrowings = borrowingPage.getContent().stream()
                 .map(BorrowingResponse::fromEntity)
@@ -115,7 +142,42 @@ public class BorrowingServiceImpl implements BorrowingService {
         );
     }
 
+    /**
+     * Gộp lịch sử nóng (borrowings) và lạnh (borrowings_archive) theo borrowedDate giảm dần.
+     * Mỗi nguồn chỉ cần (page + 1) * size dòng đầu là đủ để cắt đúng trang sau khi gộp.
+     * Caller phải chạy trong transaction REPEATABLE READ để hai truy vấn thấy cùng một snapshot; dòng trùng
+     * borrowingId (nếu có) chỉ giữ bản ở bảng nóng và không bị đếm hai lần vào tổng
+     */
+    private Page<Borrowing> mergeWithArchive(Pageable pageable,
+                                             Function<Pageable, Page<Borrowing>> hotSource,
+                                             Function<Pageable, Page<BorrowingArchive>> archiveSource) {
+        Pageable window = PageRequest.of(0, (pageable.getPageNumber() + 1) * pageable.getPageSize(), pageable.getSort());
+        Page<Borrowing> hot = hotSource.apply(window);
+        Page<BorrowingArchive> archived = archiveSource.apply(window);
+
+        Map<UUID, BookCopy> bookCopies = archived.isEmpty() ? Map.of() : bookCopyRepository
+                .findWithBookAndCampusByBookCopyIdIn(archived.getContent().stream()
+                        .map(BorrowingArchive::getBookCopyId)
+                        .collect(Collectors.toSet()))
+                .stream()
+                .collect(Collectors.toMap(BookCopy::getBookCopyId, c -> c));
+
+        Map<UUID, Borrowing> distinct = new LinkedHashMap<>();
+        Stream.concat(
+                        hot.getContent().stream(),
+                        archived.getContent().stream().map(a -> a.toBorrowing(bookCopies.getOrDefault(
+                                a.getBookCopyId(), BookCopy.builder().bookCopyId(a.getBookCopyId()).build()))))
+                .forEach(b -> distinct.putIfAbsent(b.getBorrowingId(), b));
+        int duplicates = hot.getNumberOfElements() + archived.getNumberOfElements() - distinct.size();
+
+        List<Borrowing> merged = distinct.values().stream()
+                .sorted(Comparator.comparing(Borrowing::getBorrowedDate).reversed())
+                .skip(pageable.getOffset())
+                .limit(pageable.getPageSize())
+                .toList();
 
+        return new PageImpl<>(merged, pageable, hot.getTotalElements() + archived.getTotalElements() - duplicates);
+    }
 
     /**
      * Lấy borrowings quá hạn
@@ -123,7 +185,7 @@ public class BorrowingServiceImpl implements BorrowingService {
     public List<BorrowingResponse> getOverdueBorrowings() {
         log.info("Getting overdue borrowings");
 
-        List<Borrowing> borrowings = borrowingRepository.findOverdueBorrowings(Instant.now());
+        List<Borrowing> borrowings = borrowingRepository.findOverdueBorrowings(LocalDateTime.now());
 
         return borrowings.stream()
                 .map(BorrowingResponse::fromEntity)
@@ -150,21 +212,52 @@ public class BorrowingServiceImpl implements BorrowingService {
     @Transactional
     public BorrowingResponse borrowBook(UUID bookCopyId, String companyAccount) {
 
-        BookCopy bookCopy = bookCopyRepository.findByBookCopyId(bookCopyId);
-        if (bookCopy == null) {
-            throw new RuntimeException("Cannot find bookid: " + bookCopyId);
+        // Giới hạn số sách đang mượn: tăng bộ đếm có điều kiện thay cho COUNT trên borrowings
+        activeLoanService.acquire(companyAccount);
+
+        // Chuyển AVAILABLE -> BORROWED nguyên tử, request thua sẽ nhận 409.
+        // Bản sao RESERVED chỉ mượn được bởi đúng người đang giữ chỗ
+        if (!tryTransition(bookCopyId, BookCopy.BookStatus.AVAILABLE, BookCopy.BookStatus.BORROWED)
+                && !(holdService.fulfillHold(bookCopyId, companyAccount)
+                     && tryTransition(bookCopyId, BookCopy.BookStatus.RESERVED, BookCopy.BookStatus.BORROWED))) {
+            rejectTransition(bookCopyId, BookCopy.BookStatus.AVAILABLE, BookCopy.BookStatus.BORROWED,
+                    "Book is not available for borrowing");
         }
 
-        // Check status of book copy
-        if (!bookCopy.getStatus().equals(BookCopy.BookStatus.AVAILABLE)) {
-            throw new RuntimeException("Book is not available for borrowing");
+        BookCopy bookCopy = bookCopyRepository.findWithBookAndCampusByBookCopyId(bookCopyId)
+                .orElseThrow(() -> new NotFoundException("Cannot find bookid: " + bookCopyId));
+
+        return createBorrowing(bookCopy, companyAccount);
+    }
+
+    /**
+     * Mượn theo đầu sách: chọn một bản sao AVAILABLE bất kỳ, ưu tiên campus của người mượn.
+     * FOR UPDATE SKIP LOCKED để các request đồng thời nhận các bản sao khác nhau mà không chờ nhau
+     */
+    @Override
+    @Transactional
+    public BorrowingResponse borrowAnyCopy(UUID bookId, UUID campusId, String companyAccount) {
+        activeLoanService.acquire(companyAccount);
+        Optional<User> borrowerOpt = userRepository.findByCompanyAccount(companyAccount);
+        UUID preferredCampusId = campusId;
+        if (preferredCampusId == null && borrowerOpt.isPresent() && borrowerOpt.get().getCampus() != null) {
+            preferredCampusId = borrowerOpt.get().getCampus().getCampusId();
         }
 
-//        long activeBorrowings = borrowingRepository.countActiveBorrowingsByBorrower(borrowerId);
-//        if (activeBorrowings >= 5) {
-//            throw new RuntimeException("User has reached maximum number of active borrowings (5)");
-//        }
+        UUID bookCopyId = bookCopyRepository.lockAvailableCopyForBook(bookId, preferredCampusId)
+                .orElseThrow(() -> new ConflictException("No available copy for book: " + bookId));
+
+        // Dòng đã bị khóa bởi transaction này nên cập nhật có điều kiện luôn thành công
+        transitionBookCopy(bookCopyId, BookCopy.BookStatus.AVAILABLE, BookCopy.BookStatus.BORROWED,
+                "Book is not available for borrowing");
+        BookCopy bookCopy = bookCopyRepository.findWithBookAndCampusByBookCopyId(bookCopyId)
+                .orElseThrow(() -> new NotFoundException("Cannot find bookid: " + bookCopyId));
 
+        log.info("Allocated copy {} of book {} to {}", bookCopyId, bookId, companyAccount);
+        return createBorrowing(bookCopy, companyAccount);
+    }
+
+    private BorrowingResponse createBorrowing(BookCopy bookCopy, String companyAccount) {
         // Create new borrowing record
         Borrowing borrowing = Borrowing.builder()
                 .bookCopy(bookCopy)
@@ -175,22 +268,11 @@ public class BorrowingServiceImpl implements BorrowingService {
                 .build();
 
         Borrowing savedBorrowing = borrowingRepository.save(borrowing);
+        dueDateReminderService.scheduleReminders(savedBorrowing);
 
-        // Update book status to BORROWED
-        bookCopy.setStatus(BookCopy.BookStatus.BORROWED);
-        bookCopyRepository.save(bookCopy);
-
-        //Find existing user to caculate loyalty point
-        Optional<User> borrowerOpt = userRepository.findByCompanyAccount(companyAccount);
-        if (borrowerOpt.isPresent()) {
-            LoyaltyRequest loyaltyRequest = LoyaltyRequest.builder()
-                    .bookCopyId(bookCopy.getBookCopyId())
-                    .loyaltyAction(LoyaltyHistory.LoyaltyAction.BORROWED)
-                    .userId(borrowerOpt.get().getUserId())
-                    .build();
-            log.info("Info{} ",loyaltyRequest);
-            loyaltyService.updateLoyaltyPoint(loyaltyRequest);
-        }
+        // Điểm loyalty được cộng bởi outbox relay sau khi commit
+        publishCirculationEvent(DomainEvent.EventType.BOOK_BORROWED, savedBorrowing, companyAccount,
+                LoyaltyHistory.LoyaltyAction.BORROWED);
         return BorrowingResponse.fromEntity(savedBorrowing);
     }
 
@@ -200,23 +282,14 @@ public class BorrowingServiceImpl implements BorrowingService {
     @Transactional
     public BorrowingResponse returnBook(UUID bookCopyId, String companyAccount) {
 
-        // Find book copy by id
-        BookCopy bookCopy = bookCopyRepository.findByBookCopyId(bookCopyId);
-        if (bookCopy == null) {
-            throw new RuntimeException("Cannot find bookid: " + bookCopyId);
-        }
+        // Chuyển BORROWED -> AVAILABLE nguyên tử, hai lần quét trả cùng lúc chỉ một lần thành công
+        transitionBookCopy(bookCopyId, BookCopy.BookStatus.BORROWED, BookCopy.BookStatus.AVAILABLE,
+                "Book is not in BORROWED status");
 
-        // Find latest borrowing of this book copy
-        Borrowing borrowing = borrowingRepository
-                .findTopByBookCopyAndStatusOrderByCreatedAtDesc(
-                        bookCopy,
-                        Borrowing.BorrowingStatus.BORROWED
-                )
+        // Borrowing đang mở, bản sao, đầu sách và campus trong một truy vấn
+        Borrowing borrowing = findOpenBorrowing(bookCopyId)
                 .orElseThrow(() -> new RuntimeException("Cannot find transaction borrowing for this book copy"));
-
-        if (!borrowing.getStatus().equals(Borrowing.BorrowingStatus.BORROWED)) {
-            throw new RuntimeException("Book is not in BORROWED status");
-        }
+        BookCopy bookCopy = borrowing.getBookCopy();
 
 //        var context = SecurityContextHolder.getContext();
 //        String email = context.getAuthentication().getName();
@@ -230,93 +303,279 @@ public class BorrowingServiceImpl implements BorrowingService {
 //        }
 
         LocalDateTime returnDate = LocalDateTime.now();
+        // Lấy borrower trước khi companyAccount bị ghi đè bằng người trả
+        String borrowerAccount = borrowing.getCompanyAccount();
+        activeLoanService.release(borrowerAccount, 1);
+        publishCirculationEvent(DomainEvent.EventType.BOOK_RETURNED, borrowing, borrowerAccount,
+                completeReturn(borrowing, companyAccount, returnDate));
+        double fine = borrowing.getFineAmount();
+
+        // Giao bản sao cho người đầu hàng đợi giữ chỗ (nếu có) trong cùng transaction
+        holdService.allocateReturnedCopy(bookCopy);
+        dueDateReminderService.cancelReminders(borrowing.getBorrowingId());
+
+        // borrowing đang được quản lý: update và insert outbox được flush chung khi commit
+        log.info("Successfully returned book for borrowing: {} with status: {} and fine: {}",
+                borrowing.getBorrowingId(), borrowing.getStatus(), fine);
+        return BorrowingResponse.fromEntity(borrowing);
+    }
+
+    /**
+     * Notice lost book
+     */
+    @Transactional
+    public BorrowingResponse reportLost(UUID bookCopyId) {
+
+        // Chuyển BORROWED -> LOST nguyên tử
+        transitionBookCopy(bookCopyId, BookCopy.BookStatus.BORROWED, BookCopy.BookStatus.LOST,
+                "Sách không trong trạng thái đang mượn");
+
+        // Tìm borrowing mới nhất của book copy này kèm bản sao và đầu sách
+        Borrowing borrowing = findOpenBorrowing(bookCopyId)
+                .orElseThrow(() -> new RuntimeException("Không tìm thấy giao dịch mượn sách cho sách này"));
+
+        double fine = 500000.0;
+
+        borrowing.setStatus(Borrowing.BorrowingStatus.LOST);
+        borrowing.setFineAmount(fine);
+
+        dueDateReminderService.cancelReminders(borrowing.getBorrowingId());
+        String companyAccount = borrowing.getCompanyAccount();
+        activeLoanService.release(companyAccount, 1);
+        publishCirculationEvent(DomainEvent.EventType.BOOK_LOST, borrowing, companyAccount,
+                LoyaltyHistory.LoyaltyAction.LOST);
+
+        log.info("Successfully reported lost book for borrowing: {} with fine: {}",
+                borrowing.getBorrowingId(), fine);
+        return BorrowingResponse.fromEntity(borrowing);
+    }
+
+    /**
+     * Mượn nhiều sách trong một lượt quét tại quầy: khóa các bản sao bằng một truy vấn IN,
+     * các lệnh update/insert được gom thành JDBC batch khi flush. Bản sao lỗi không làm hỏng cả lô
+     */
+    @Override
+    @Transactional
+    public BatchBorrowingResponse borrowBooks(List<UUID> bookCopyIds, String companyAccount) {
+        List<UUID> ids = distinctIds(bookCopyIds);
+        Map<UUID, BookCopy> copies = lockBookCopies(ids);
+        // Khóa bộ đếm của người mượn một lần cho cả lô, phần vượt giới hạn bị từ chối từng bản
+        int remaining = activeLoanService.lockRemaining(companyAccount);
+        Map<UUID, BatchBorrowingResponse.ItemResult> results = new LinkedHashMap<>();
+        List<Borrowing> borrowings = new ArrayList<>();
+        LocalDateTime now = LocalDateTime.now();
+
+        for (UUID id : ids) {
+            BookCopy bookCopy = copies.get(id);
+            if (bookCopy == null) {
+                results.put(id, failedItem(id, "Cannot find bookid: " + id));
+            } else if (borrowings.size() >= remaining) {
+                results.put(id, failedItem(id, "User has reached maximum number of active borrowings"));
+            } else if (bookCopy.getStatus() != BookCopy.BookStatus.AVAILABLE
+                    && !(bookCopy.getStatus() == BookCopy.BookStatus.RESERVED
+                         && holdService.fulfillHold(id, companyAccount))) {
+                results.put(id, failedItem(id, "Book is not available for borrowing"));
+            } else {
+                bookCopy.setStatus(BookCopy.BookStatus.BORROWED);
+                borrowings.add(Borrowing.builder()
+                        .bookCopy(bookCopy)
+                        .companyAccount(companyAccount)
+                        .borrowedDate(now)
+                        .dueDate(now.plusDays(30))
+                        .status(BORROWED)
+                        .build());
+            }
+        }
+
+        borrowingRepository.saveAll(borrowings);
+        activeLoanService.add(companyAccount, borrowings.size());
+        fetchResponseGraph(borrowings);
+
+        for (Borrowing borrowing : borrowings) {
+            UUID id = borrowing.getBookCopy().getBookCopyId();
+            dueDateReminderService.scheduleReminders(borrowing);
+            publishCirculationEvent(DomainEvent.EventType.BOOK_BORROWED, borrowing, companyAccount,
+                    LoyaltyHistory.LoyaltyAction.BORROWED);
+            results.put(id, successItem(id, "Borrowed", borrowing));
+        }
+
+        log.info("Batch borrow for {}: {} of {} copies borrowed", companyAccount, borrowings.size(), ids.size());
+        return BatchBorrowingResponse.of(orderedResults(ids, results));
+    }
+
+    /**
+     * Trả nhiều sách trong một lượt: khóa bản sao và lấy các borrowing đang mở bằng truy vấn IN
+     */
+    @Override
+    @Transactional
+    public BatchBorrowingResponse returnBooks(List<UUID> bookCopyIds, String companyAccount) {
+        List<UUID> ids = distinctIds(bookCopyIds);
+        Map<UUID, BookCopy> copies = lockBookCopies(ids);
+        Map<UUID, Borrowing> openBorrowings = new HashMap<>();
+        if (!copies.isEmpty()) {
+            // Sắp createdAt giảm dần nên putIfAbsent giữ borrowing mới nhất của mỗi bản sao
+            borrowingRepository.findByBookCopyIdsAndStatus(copies.keySet(), BORROWED)
+                    .forEach(b -> openBorrowings.putIfAbsent(b.getBookCopy().getBookCopyId(), b));
+        }
+
+        Map<UUID, BatchBorrowingResponse.ItemResult> results = new LinkedHashMap<>();
+        Map<UUID, Borrowing> returned = new LinkedHashMap<>();
+        Map<UUID, LoyaltyHistory.LoyaltyAction> actions = new HashMap<>();
+        Map<UUID, String> borrowerAccounts = new HashMap<>();
+        Map<String, Integer> releasedLoans = new HashMap<>();
+        LocalDateTime returnDate = LocalDateTime.now();
+
+        for (UUID id : ids) {
+            BookCopy bookCopy = copies.get(id);
+            Borrowing borrowing = openBorrowings.get(id);
+            if (bookCopy == null) {
+                results.put(id, failedItem(id, "Cannot find bookid: " + id));
+            } else if (bookCopy.getStatus() != BookCopy.BookStatus.BORROWED) {
+                results.put(id, failedItem(id, "Book is not in BORROWED status"));
+            } else if (borrowing == null) {
+                results.put(id, failedItem(id, "Cannot find transaction borrowing for this book copy"));
+            } else {
+                bookCopy.setStatus(BookCopy.BookStatus.AVAILABLE);
+                // Lấy borrower trước khi companyAccount bị ghi đè bằng người trả
+                borrowerAccounts.put(id, borrowing.getCompanyAccount());
+                releasedLoans.merge(borrowing.getCompanyAccount(), 1, Integer::sum);
+                actions.put(id, completeReturn(borrowing, companyAccount, returnDate));
+                returned.put(id, borrowing);
+            }
+        }
+
+        // Ghi toàn bộ thay đổi trước, sự kiện outbox ghi sau để các lệnh update không bị flush lẻ từng dòng
+        borrowingRepository.saveAll(returned.values());
+        releasedLoans.forEach(activeLoanService::release);
+        fetchResponseGraph(List.copyOf(returned.values()));
+        returned.forEach((id, borrowing) -> {
+            holdService.allocateReturnedCopy(copies.get(id));
+            dueDateReminderService.cancelReminders(borrowing.getBorrowingId());
+            publishCirculationEvent(DomainEvent.EventType.BOOK_RETURNED, borrowing, borrowerAccounts.get(id),
+                    actions.get(id));
+            double fine = borrowing.getFineAmount();
+            results.put(id, successItem(id, fine > 0 ? "Returned with fine: " + fine + " VND" : "Returned", borrowing));
+        });
+
+        log.info("Batch return by {}: {} of {} copies returned", companyAccount, returned.size(), ids.size());
+        return BatchBorrowingResponse.of(orderedResults(ids, results));
+    }
+
+    /**
+     * Cập nhật trạng thái, tiền phạt khi trả sách, dùng chung cho trả lẻ và trả theo lô.
+     * Trả về action loyalty tương ứng để caller cộng/trừ điểm sau khi đã ghi các thay đổi (null nếu đã xử lý)
+     */
+    private LoyaltyHistory.LoyaltyAction completeReturn(Borrowing borrowing, String companyAccount,
+                                                        LocalDateTime returnDate) {
         double fine = borrowing.calculateFine();
-        Optional<User> borrowerOpt = userRepository.findByCompanyAccount(borrowing.getCompanyAccount());
+        LoyaltyHistory.LoyaltyAction action;
         // Update borrowing status and fine
         if (returnDate.isAfter(borrowing.getDueDate())) {
+            // Job quét overdue đã trừ điểm thì không trừ lần nữa khi trả
+            action = Boolean.TRUE.equals(borrowing.getOverdue()) ? null : LoyaltyHistory.LoyaltyAction.OVERDUE;
             borrowing.setStatus(Borrowing.BorrowingStatus.OVERDUE);
-
-            if (borrowerOpt.isPresent()) {
-                LoyaltyRequest loyaltyRequest = LoyaltyRequest.builder()
-                        .bookCopyId(bookCopy.getBookCopyId())
-                        .loyaltyAction(LoyaltyHistory.LoyaltyAction.OVERDUE)
-                        .userId(borrowerOpt.get().getUserId())
-                        .build();
-                loyaltyService.updateLoyaltyPoint(loyaltyRequest);
-            }
-            // Update fine amount
         } else {
             borrowing.setStatus(Borrowing.BorrowingStatus.RETURNED);
-            if (borrowerOpt.isPresent()) {
-                LoyaltyRequest loyaltyRequest = LoyaltyRequest.builder()
-                        .bookCopyId(bookCopy.getBookCopyId())
-                        .loyaltyAction(LoyaltyHistory.LoyaltyAction.RETURNED)
-                        .userId(borrowerOpt.get().getUserId())
-                        .build();
-                loyaltyService.updateLoyaltyPoint(loyaltyRequest);
-            }
+            action = LoyaltyHistory.LoyaltyAction.RETURNED;
         }
 
         borrowing.setReturnedDate(returnDate);
         borrowing.setFineAmount(fine);
         borrowing.setCompanyAccount(companyAccount);
+        return action;
+    }
 
-        // Update book copy status to AVAILABLE
-        bookCopy.setStatus(BookCopy.BookStatus.AVAILABLE);
-        bookCopyRepository.save(bookCopy);
-
-        Borrowing savedBorrowing = borrowingRepository.save(borrowing);
-
-        log.info("Successfully returned book for borrowing: {} with status: {} and fine: {}",
-                borrowing.getBorrowingId(), borrowing.getStatus(), fine);
-        return BorrowingResponse.fromEntity(savedBorrowing);
+    /**
+     * Ghi sự kiện mượn/trả vào outbox cùng transaction; loyalty và các thống kê được cập nhật ngoài luồng request
+     */
+    private void publishCirculationEvent(DomainEvent.EventType type, Borrowing borrowing, String borrowerAccount,
+                                         LoyaltyHistory.LoyaltyAction action) {
+        BookCopy bookCopy = borrowing.getBookCopy();
+        outboxService.publish(DomainEvent.builder()
+                .type(type)
+                .companyAccount(borrowerAccount)
+                .bookId(bookCopy.getBook() != null ? bookCopy.getBook().getBookId() : null)
+                .bookCopyId(bookCopy.getBookCopyId())
+                .borrowingId(borrowing.getBorrowingId())
+                .loyaltyAction(action)
+                .build());
     }
 
     /**
-     * Notice lost book
+     * Borrowing BORROWED mới nhất của bản sao, đã fetch sẵn bản sao, đầu sách, thể loại và campus
      */
-    @Transactional
-    public BorrowingResponse reportLost(UUID bookCopyId) {
+    private Optional<Borrowing> findOpenBorrowing(UUID bookCopyId) {
+        return borrowingRepository.findWithBookCopyByBookCopyIdAndStatus(bookCopyId, BORROWED, PageRequest.of(0, 1))
+                .stream()
+                .findFirst();
+    }
 
-        // Tìm bản sao sách bằng QR code
-        BookCopy bookCopy = bookCopyRepository.findByBookCopyId(bookCopyId);
-        if (bookCopy == null) {
-            throw new RuntimeException("Không tìm thấy sách với mã QR: " + bookCopyId);
+    /**
+     * Compare-and-set trạng thái bản sao bằng một câu UPDATE có điều kiện.
+     * Chỉ khi không cập nhật được mới đọc lại để phân biệt 404 và 409
+     */
+    private void transitionBookCopy(UUID bookCopyId, BookCopy.BookStatus expected,
+                                    BookCopy.BookStatus next, String conflictMessage) {
+        if (!tryTransition(bookCopyId, expected, next)) {
+            rejectTransition(bookCopyId, expected, next, conflictMessage);
         }
+    }
 
-        // Tìm borrowing mới nhất của book copy này
-        Borrowing borrowing = borrowingRepository
-                .findTopByBookCopyAndStatusOrderByCreatedAtDesc(
-                        bookCopy,
-                        Borrowing.BorrowingStatus.BORROWED
-                )
-                .orElseThrow(() -> new RuntimeException("Không tìm thấy giao dịch mượn sách cho sách này"));
+    private boolean tryTransition(UUID bookCopyId, BookCopy.BookStatus expected, BookCopy.BookStatus next) {
+        return bookCopyRepository.compareAndSetStatus(bookCopyId, expected, next, LocalDateTime.now()) == 1;
+    }
+
+    private void rejectTransition(UUID bookCopyId, BookCopy.BookStatus expected,
+                                  BookCopy.BookStatus next, String conflictMessage) {
+        BookCopy.BookStatus current = bookCopyRepository.findStatusByBookCopyId(bookCopyId)
+                .orElseThrow(() -> new NotFoundException("Cannot find bookid: " + bookCopyId));
+        log.warn("Book copy {} transition {} -> {} lost the race, current status: {}", bookCopyId, expected, next, current);
+        throw new ConflictException(conflictMessage);
+    }
 
-        if (!borrowing.getStatus().equals(BORROWED)) {
-            throw new RuntimeException("Sách không trong trạng thái đang mượn");
+    private List<UUID> distinctIds(List<UUID> bookCopyIds) {
+        if (bookCopyIds == null || bookCopyIds.isEmpty()) {
+            throw new BadRequestException("bookCopyIds must not be empty");
         }
+        return bookCopyIds.stream().filter(Objects::nonNull).distinct().toList();
+    }
 
-        double fine = 500000.0;
+    private Map<UUID, BookCopy> lockBookCopies(List<UUID> ids) {
+        return bookCopyRepository.findAllForUpdateByBookCopyIdIn(ids).stream()
+                .collect(Collectors.toMap(BookCopy::getBookCopyId, bc -> bc));
+    }
 
-        borrowing.setStatus(Borrowing.BorrowingStatus.LOST);
-        borrowing.setFineAmount(fine);
+    /**
+     * Nạp book, category, campus cho các bản sao đã khóa bằng một truy vấn, tránh lazy load từng dòng khi dựng response
+     */
+    private void fetchResponseGraph(List<Borrowing> borrowings) {
+        if (!borrowings.isEmpty()) {
+            bookCopyRepository.findWithBookAndCampusByBookCopyIdIn(borrowings.stream()
+                    .map(b -> b.getBookCopy().getBookCopyId())
+                    .toList());
+        }
+    }
 
-        bookCopy.setStatus(BookCopy.BookStatus.LOST);
-        bookCopyRepository.save(bookCopy);
+    private List<BatchBorrowingResponse.ItemResult> orderedResults(List<UUID> ids,
+                                                                  Map<UUID, BatchBorrowingResponse.ItemResult> results) {
+        return ids.stream().map(results::get).toList();
+    }
 
-        Borrowing savedBorrowing = borrowingRepository.save(borrowing);
-        String companyAccount = borrowing.getCompanyAccount();
-        Optional<User> borrowerOpt = userRepository.findByCompanyAccount(companyAccount);
-        LoyaltyRequest loyaltyRequest = LoyaltyRequest.builder()
-                .bookCopyId(bookCopy.getBookCopyId())
-                .loyaltyAction(LoyaltyHistory.LoyaltyAction.LOST)
-                .userId(borrowerOpt.get().getUserId())
+    private BatchBorrowingResponse.ItemResult successItem(UUID bookCopyId, String message, Borrowing borrowing) {
+        return BatchBorrowingResponse.ItemResult.builder()
+                .bookCopyId(bookCopyId)
+                .success(true)
+                .message(message)
+                .borrowing(BorrowingResponse.fromEntity(borrowing))
                 .build();
-        loyaltyService.updateLoyaltyPoint(loyaltyRequest);
+    }
 
-        log.info("Successfully reported lost book for borrowing: {} with fine: {}",
-                borrowing.getBorrowingId(), fine);
-        return BorrowingResponse.fromEntity(savedBorrowing);
+    private BatchBorrowingResponse.ItemResult failedItem(UUID bookCopyId, String message) {
+        return BatchBorrowingResponse.ItemResult.builder()
+                .bookCopyId(bookCopyId)
+                .success(false)
+                .message(message)
+                .build();
     }
 
     /**
@@ -333,11 +592,16 @@ public class BorrowingServiceImpl implements BorrowingService {
      */
 
     @Override
-    public PagedResponse<BorrowingHistoryResponse> findBorrowingByBookCopy_BookCopyId(int page, int size, UUID bookCopyId) {
+    @Transactional(readOnly = true, isolation = Isolation.REPEATABLE_READ)
+    public PagedResponse<BorrowingHistoryResponse> findBorrowingByBookCopy_BookCopyId(int page, int size, UUID bookCopyId, boolean allTime) {
         Sort sort = Sort.by("borrowedDate").descending();
         Pageable pageable = PageRequest.of(page - 1, size, sort);
 
-        Page<Borrowing> pageData = borrowingRepository.findBorrowingByBookCopy_BookCopyId(bookCopyId, pageable);
+        Page<Borrowing> pageData = allTime
+                ? mergeWithArchive(pageable,
+                        window -> borrowingRepository.findBorrowingByBookCopy_BookCopyId(bookCopyId, window),
+                        window -> borrowingArchiveRepository.findByBookCopyId(bookCopyId, window))
+                : borrowingRepository.findBorrowingByBookCopy_BookCopyId(bookCopyId, pageable);
 
         List<BorrowingHistoryResponse> content = pageData.getContent()
                 .stream()
@@ -346,7 +610,7 @@ public class BorrowingServiceImpl implements BorrowingService {
                         b.getBookCopy().getBookCopyId(),
                         b.getBookCopy().getShelfLocation(),
                         b.getBookCopy().getStatus(),
-                        b.getBookCopy().getCampus().getName(),
+                        b.getBookCopy().getCampus() != null ? b.getBookCopy().getCampus().getName() : null,
                         b.getBorrowedDate(),
                         b.getReturnedDate()
                 ))
@@ -0,0 +1,74 @@
+package com.university.library.serviceImpl;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.university.library.dto.response.idempotency.IdempotentResponse;
+import com.university.library.service.IdempotencyStore;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Optional;
+
+/**
+ * Lưu trong bộ nhớ của instance, key đang xử lý hết hạn sớm hơn để request bị treo không giữ key cả ngày
+ */
+@Component
+@ConditionalOnProperty(prefix = "app.idempotency", name = "store", havingValue = "caffeine", matchIfMissing = true)
+public class CaffeineIdempotencyStore implements IdempotencyStore {
+
+    private final Cache<String, IdempotentResponse> responses;
+
+    public CaffeineIdempotencyStore(@Value("${app.idempotency.ttl-hours:24}") long ttlHours,
+                                    @Value("${app.idempotency.lock-seconds:60}") long lockSeconds,
+                                    @Value("${app.idempotency.max-entries:100000}") long maxEntries) {
+        long ttlNanos = Duration.ofHours(ttlHours).toNanos();
+        long lockNanos = Duration.ofSeconds(lockSeconds).toNanos();
+        this.responses = Caffeine.newBuilder()
+                .maximumSize(maxEntries)
+                .expireAfter(new Expiry<String, IdempotentResponse>() {
+                    @Override
+                    public long expireAfterCreate(String key, IdempotentResponse value, long currentTime) {
+                        return value.isInProgress() ? lockNanos : ttlNanos;
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(String key, IdempotentResponse value, long currentTime,
+                                                  long currentDuration) {
+                        return value.isInProgress() ? lockNanos : ttlNanos;
+                    }
+
+                    @Override
+                    public long expireAfterRead(String key, IdempotentResponse value, long currentTime,
+                                                long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .build();
+    }
+
+    @Override
+    public Optional<IdempotentResponse> reserve(String key, String fingerprint) {
+        return Optional.ofNullable(responses.asMap().putIfAbsent(key, IdempotentResponse.inProgress(fingerprint)));
+    }
+
+    @Override
+    public void renew(String key, String fingerprint) {
+        // Ghi lại bản ghi đang xử lý để expireAfterUpdate tính lại hạn khoá
+        responses.asMap().computeIfPresent(key, (k, current) -> current.isInProgress()
+                ? IdempotentResponse.inProgress(fingerprint)
+                : current);
+    }
+
+    @Override
+    public void complete(String key, IdempotentResponse response) {
+        responses.put(key, response);
+    }
+
+    @Override
+    public void release(String key) {
+        responses.invalidate(key);
+    }
+}
@@ -0,0 +1,178 @@
+package com.university.library.serviceImpl;
+
+import com.university.library.dto.response.event.DomainEvent;
+import com.university.library.entity.DailyCirculationStat;
+import com.university.library.service.OutboxEventConsumer;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+/**
+ * Cộng dồn daily_circulation_stats theo sự kiện mượn/trả/mất/quá hạn. Chạy chung transaction với relay
+ * nên số liệu và cờ processed_at được ghi cùng lúc, không bị cộng trùng.
+ * Mỗi sự kiện được xếp vào cùng ngày với rebuildRange của backfill (báo mất theo updated_at của borrowing)
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class CirculationStatsOutboxConsumer implements OutboxEventConsumer {
+
+    public static final Set<DomainEvent.EventType> CIRCULATION_EVENTS = EnumSet.of(
+            DomainEvent.EventType.BOOK_BORROWED,
+            DomainEvent.EventType.BOOK_RETURNED,
+            DomainEvent.EventType.BOOK_LOST,
+            DomainEvent.EventType.BOOK_OVERDUE);
+
+    private static final String BORROWING_SQL = """
+            SELECT b.borrowing_id, bc.campus_id, b.due_date, b.returned_date, b.fine_amount, b.is_overdue, b.updated_at
+            FROM borrowings b
+            JOIN book_copies bc ON bc.book_copy_id = b.book_copy_id
+            WHERE b.borrowing_id IN (:borrowingIds)
+            """;
+
+    private static final String STAT_UPSERT = """
+            INSERT INTO daily_circulation_stats (stat_date, campus_id, borrows, returns, overdue, lost, fines, updated_at)
+            VALUES (?, ?, ?, ?, ?, ?, ?, ?)
+            ON CONFLICT (stat_date, campus_id) DO UPDATE SET
+                borrows = daily_circulation_stats.borrows + EXCLUDED.borrows,
+                returns = daily_circulation_stats.returns + EXCLUDED.returns,
+                overdue = daily_circulation_stats.overdue + EXCLUDED.overdue,
+                lost = daily_circulation_stats.lost + EXCLUDED.lost,
+                fines = daily_circulation_stats.fines + EXCLUDED.fines,
+                updated_at = EXCLUDED.updated_at
+            """;
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+
+    @Override
+    public String getName() {
+        return "circulation-stats";
+    }
+
+    @Override
+    public void handle(List<DomainEvent> events) {
+        upsert(deltasOf(events).values(), 1);
+    }
+
+    /**
+     * Trừ phần các sự kiện chưa relay sẽ cộng vào những ngày trong [from, to), gọi sau khi backfill đã dựng lại
+     * các ngày này từ borrowings để lúc relay cộng lại không bị tính hai lần
+     */
+    public void revert(List<DomainEvent> pending, LocalDate from, LocalDate to) {
+        upsert(deltasOf(pending).values().stream()
+                .filter(d -> !d.getStatDate().isBefore(from) && d.getStatDate().isBefore(to))
+                .toList(), -1);
+    }
+
+    private Map<DailyCirculationStat.Key, DailyCirculationStat> deltasOf(List<DomainEvent> events) {
+        List<DomainEvent> circulation = events.stream()
+                .filter(e -> CIRCULATION_EVENTS.contains(e.getType()) && e.getBorrowingId() != null)
+                .toList();
+        if (circulation.isEmpty()) {
+            return Map.of();
+        }
+
+        Map<UUID, BorrowingRow> borrowings = jdbcTemplate.query(BORROWING_SQL,
+                        new MapSqlParameterSource("borrowingIds", circulation.stream()
+                                .map(DomainEvent::getBorrowingId)
+                                .collect(Collectors.toSet())),
+                        (rs, rowNum) -> new BorrowingRow(
+                                rs.getObject("borrowing_id", UUID.class),
+                                rs.getObject("campus_id", UUID.class),
+                                rs.getObject("due_date", LocalDateTime.class),
+                                rs.getObject("returned_date", LocalDateTime.class),
+                                rs.getDouble("fine_amount"),
+                                rs.getBoolean("is_overdue"),
+                                rs.getObject("updated_at", LocalDateTime.class)))
+                .stream()
+                .collect(Collectors.toMap(BorrowingRow::borrowingId, b -> b));
+
+        Map<DailyCirculationStat.Key, DailyCirculationStat> deltas = new HashMap<>();
+        for (DomainEvent event : circulation) {
+            BorrowingRow borrowing = borrowings.get(event.getBorrowingId());
+            if (borrowing == null) {
+                log.warn("Circulation stats: borrowing {} of event {} not found", event.getBorrowingId(), event.getEventId());
+                continue;
+            }
+            LocalDate occurredOn = event.getOccurredAt() != null ? event.getOccurredAt().toLocalDate() : LocalDate.now();
+            switch (event.getType()) {
+                case BOOK_BORROWED -> {
+                    DailyCirculationStat delta = deltaOf(deltas, occurredOn, borrowing);
+                    delta.setBorrows(delta.getBorrows() + 1);
+                }
+                case BOOK_RETURNED -> {
+                    LocalDate returnedOn = borrowing.returnedDate() != null ? borrowing.returnedDate().toLocalDate() : occurredOn;
+                    DailyCirculationStat delta = deltaOf(deltas, returnedOn, borrowing);
+                    delta.setReturns(delta.getReturns() + 1);
+                    delta.setFines(delta.getFines() + borrowing.fineAmount());
+                    // Trả trễ mà job quét chưa kịp gắn cờ: tính quá hạn vào ngày đến hạn như khi quét
+                    if (!borrowing.overdue() && borrowing.returnedDate() != null
+                            && borrowing.returnedDate().isAfter(borrowing.dueDate())) {
+                        DailyCirculationStat due = deltaOf(deltas, borrowing.dueDate().toLocalDate(), borrowing);
+                        due.setOverdue(due.getOverdue() + 1);
+                    }
+                }
+                case BOOK_LOST -> {
+                    LocalDate lostOn = borrowing.updatedAt() != null ? borrowing.updatedAt().toLocalDate() : occurredOn;
+                    DailyCirculationStat delta = deltaOf(deltas, lostOn, borrowing);
+                    delta.setLost(delta.getLost() + 1);
+                    delta.setFines(delta.getFines() + borrowing.fineAmount());
+                }
+                case BOOK_OVERDUE -> {
+                    DailyCirculationStat delta = deltaOf(deltas, borrowing.dueDate().toLocalDate(), borrowing);
+                    delta.setOverdue(delta.getOverdue() + 1);
+                }
+                default -> {
+                }
+            }
+        }
+        return deltas;
+    }
+
+    private void upsert(Collection<DailyCirculationStat> deltas, int sign) {
+        LocalDateTime now = LocalDateTime.now();
+        List<Object[]> args = new ArrayList<>();
+        deltas.stream()
+                .sorted(Comparator.comparing(DailyCirculationStat::getStatDate)
+                        .thenComparing(DailyCirculationStat::getCampusId))
+                .forEach(d -> args.add(new Object[]{d.getStatDate(), d.getCampusId(), sign * d.getBorrows(),
+                        sign * d.getReturns(), sign * d.getOverdue(), sign * d.getLost(), sign * d.getFines(), now}));
+        if (!args.isEmpty()) {
+            jdbcTemplate.getJdbcTemplate().batchUpdate(STAT_UPSERT, args);
+        }
+    }
+
+    private DailyCirculationStat deltaOf(Map<DailyCirculationStat.Key, DailyCirculationStat> deltas,
+                                         LocalDate date, BorrowingRow borrowing) {
+        return deltas.computeIfAbsent(new DailyCirculationStat.Key(date, borrowing.campusId()),
+                key -> DailyCirculationStat.builder()
+                        .statDate(key.getStatDate())
+                        .campusId(key.getCampusId())
+                        .borrows(0)
+                        .returns(0)
+                        .overdue(0)
+                        .lost(0)
+                        .fines(0.0)
+                        .build());
+    }
+
+    private record BorrowingRow(UUID borrowingId, UUID campusId, LocalDateTime dueDate,
+                                LocalDateTime returnedDate, double fineAmount, boolean overdue,
+                                LocalDateTime updatedAt) {
+    }
+}
@@ -0,0 +1,131 @@
+package com.university.library.serviceImpl;
+
+import com.university.library.dto.response.event.DomainEvent;
+import com.university.library.repository.DailyCirculationStatRepository;
+import com.university.library.service.CirculationStatsService;
+import com.university.library.service.OutboxService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+@Slf4j
+@Service
+public class CirculationStatsServiceImpl implements CirculationStatsService {
+
+    private final DailyCirculationStatRepository dailyCirculationStatRepository;
+    private final OutboxService outboxService;
+    private final CirculationStatsOutboxConsumer circulationStatsOutboxConsumer;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final TransactionTemplate chunkTemplate;
+    private final Executor circulationBackfillExecutor;
+    private final int chunkDays;
+
+    public CirculationStatsServiceImpl(DailyCirculationStatRepository dailyCirculationStatRepository,
+                                       OutboxService outboxService,
+                                       CirculationStatsOutboxConsumer circulationStatsOutboxConsumer,
+                                       JdbcTemplate jdbcTemplate,
+                                       PlatformTransactionManager transactionManager,
+                                       @Qualifier("circulationBackfillExecutor") Executor circulationBackfillExecutor,
+                                       @Value("${app.circulation-stats.backfill.chunk-days:31}") int chunkDays) {
+        this.dailyCirculationStatRepository = dailyCirculationStatRepository;
+        this.outboxService = outboxService;
+        this.circulationStatsOutboxConsumer = circulationStatsOutboxConsumer;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.chunkTemplate = new TransactionTemplate(transactionManager);
+        this.chunkTemplate.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+        this.circulationBackfillExecutor = circulationBackfillExecutor;
+        this.chunkDays = chunkDays;
+    }
+
+    /**
+     * Lần đầu chạy với bảng thống kê rỗng: dựng lại từ lượt mượn đầu tiên tới hôm nay
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfillIfEmpty() {
+        if (dailyCirculationStatRepository.count() > 0) {
+            return;
+        }
+        LocalDateTime first = jdbcTemplate.queryForObject("""
+                SELECT MIN(borrowed_date) FROM (
+                    SELECT MIN(borrowed_date) AS borrowed_date FROM borrowings
+                    UNION ALL
+                    SELECT MIN(borrowed_date) FROM borrowings_archive
+                ) t
+                """, LocalDateTime.class);
+        if (first == null) {
+            return;
+        }
+        rebuild(first.toLocalDate(), LocalDate.now(), true);
+    }
+
+    @Override
+    public int backfill(LocalDate from, LocalDate to) {
+        return rebuild(from, to, false);
+    }
+
+    /**
+     * Transaction điều phối tạm dừng relay (publish vẫn chạy) rồi xuất một snapshot; mỗi khoảng ngày chạy
+     * trên kết nối riêng và nhập đúng snapshot đó nên mọi khoảng thấy cùng một trạng thái borrowings và outbox.
+     * Sự kiện chưa relay trong snapshot được trừ khỏi các ngày vừa dựng để relay cộng lại sau không bị trùng.
+     * Khóa relay cũng tuần tự hóa các instance cùng khởi động, nên onlyIfEmpty được kiểm tra lại sau khi giữ khóa
+     */
+    private int rebuild(LocalDate from, LocalDate to, boolean onlyIfEmpty) {
+        long started = System.currentTimeMillis();
+        Integer written = transactionTemplate.execute(status -> {
+            outboxService.pauseRelay();
+            if (onlyIfEmpty && dailyCirculationStatRepository.count() > 0) {
+                return 0;
+            }
+            String snapshotId = jdbcTemplate.queryForObject("SELECT pg_export_snapshot()", String.class);
+            return rebuildChunks(from, to, snapshotId);
+        });
+        log.info("Circulation stats backfill {} -> {}: {} daily rows written in {} ms",
+                from, to, written, System.currentTimeMillis() - started);
+        return written != null ? written : 0;
+    }
+
+    /**
+     * Snapshot chỉ còn hiệu lực khi transaction điều phối còn mở, nên phải chờ mọi khoảng xong trước khi trả về
+     */
+    private int rebuildChunks(LocalDate from, LocalDate to, String snapshotId) {
+        LocalDateTime now = LocalDateTime.now();
+        List<CompletableFuture<Integer>> futures = new ArrayList<>();
+        for (LocalDate start = from; !start.isAfter(to); start = start.plusDays(chunkDays)) {
+            LocalDate chunkStart = start;
+            LocalDate chunkEnd = start.plusDays(chunkDays).isAfter(to.plusDays(1))
+                    ? to.plusDays(1)
+                    : start.plusDays(chunkDays);
+            futures.add(CompletableFuture.supplyAsync(() -> chunkTemplate.execute(status -> {
+                jdbcTemplate.execute("SET TRANSACTION SNAPSHOT '" + snapshotId + "'");
+                List<DomainEvent> pending = outboxService.findPending(CirculationStatsOutboxConsumer.CIRCULATION_EVENTS);
+                dailyCirculationStatRepository.deleteByRange(chunkStart, chunkEnd);
+                int rows = dailyCirculationStatRepository.rebuildRange(chunkStart.atStartOfDay(),
+                        chunkEnd.atStartOfDay(), now);
+                circulationStatsOutboxConsumer.revert(pending, chunkStart, chunkEnd);
+                return rows;
+            }), circulationBackfillExecutor));
+        }
+        int written = 0;
+        for (CompletableFuture<Integer> future : futures) {
+            Integer rows = future.join();
+            written += rows != null ? rows : 0;
+        }
+        return written;
+    }
+}
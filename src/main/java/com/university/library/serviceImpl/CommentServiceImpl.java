@@ -5,9 +5,9 @@ import com.university.library.constants.BookConstants;
 import com.university.library.constants.CommentConstants;
 import com.university.library.dto.request.comment.CommentCreateRequest;
 import com.university.library.dto.request.comment.CommentUpdateRequest;
-import com.university.library.dto.request.loyalty.LoyaltyRequest;
 import com.university.library.dto.response.comment.AvgRatingStarResponse;
 import com.university.library.dto.response.comment.CommentResponse;
+import com.university.library.dto.response.event.DomainEvent;
 import com.university.library.entity.Book;
 import com.university.library.entity.Comment;
 import com.university.library.entity.LoyaltyHistory;
@@ -17,7 +17,7 @@ import com.university.library.repository.BookRepository;
 import com.university.library.repository.CommentRepository;
 import com.university.library.repository.UserRepository;
 import com.university.library.service.CommentService;
-import com.university.library.service.LoyaltyService;
+import com.university.library.service.OutboxService;
 import jakarta.transaction.Transactional;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -40,7 +40,7 @@ public class CommentServiceImpl implements CommentService {
     @Autowired
     private UserRepository userRepository;
     @Autowired
-    private LoyaltyService loyaltyService;
+    private OutboxService outboxService;
 
     @Override
     @Transactional
@@ -62,12 +62,13 @@ public class CommentServiceImpl implements CommentService {
                 .star(request.getStar())
                 .build();
         Comment commentSave = commentRepository.save(comment);
-        LoyaltyRequest loyaltyRequest = LoyaltyRequest.builder()
+        outboxService.publish(DomainEvent.builder()
+                .type(DomainEvent.EventType.BOOK_REVIEWED)
+                .userId(user.getUserId())
+                .companyAccount(user.getCompanyAccount())
                 .bookId(book.getBookId())
                 .loyaltyAction(LoyaltyHistory.LoyaltyAction.COMMENT_REVIEW)
-                .userId(user.getUserId())
-                .build();
-        loyaltyService.updateLoyaltyPoint(loyaltyRequest);
+                .build());
         userRepository.save(user);
         bookRepository.save(book);
         log.info("Tạo xog");
@@ -0,0 +1,105 @@
+package com.university.library.serviceImpl;
+
+import com.university.library.dto.response.dashboard.DashboardCounters;
+import com.university.library.dto.response.event.DomainEvent;
+import com.university.library.service.DashboardLiveService;
+import com.university.library.service.OutboxEventConsumer;
+import com.university.library.utils.TransactionCallbacks;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+/**
+ * Gộp các sự kiện lưu thông của một lô relay thành một delta cho dashboard trực tiếp. Delta được phát ngay
+ * trước commit, khi mọi consumer đã chạy xong và lô vẫn giữ khóa outbox, nên resync chụp dưới khóa outbox
+ * luôn thấy delta của các lô đã commit. Lô hỏng đúng lúc commit (hiếm) được lần resync kế tiếp sửa
+ */
+@Component
+@RequiredArgsConstructor
+public class DashboardLiveOutboxConsumer implements OutboxEventConsumer {
+
+    public static final Set<DomainEvent.EventType> LIVE_EVENTS = EnumSet.of(
+            DomainEvent.EventType.BOOK_BORROWED,
+            DomainEvent.EventType.BOOK_RETURNED,
+            DomainEvent.EventType.BOOK_LOST,
+            DomainEvent.EventType.BOOK_OVERDUE);
+
+    private static final String FLAGGED_OVERDUE_SQL = """
+            SELECT borrowing_id FROM borrowings
+            WHERE borrowing_id IN (:borrowingIds) AND is_overdue = true
+            """;
+
+    private final DashboardLiveService dashboardLiveService;
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+
+    @Override
+    public String getName() {
+        return "dashboard-live";
+    }
+
+    @Override
+    public void handle(List<DomainEvent> events) {
+        DashboardCounters delta = deltaOf(events);
+        if (!delta.isEmpty()) {
+            TransactionCallbacks.beforeCommit(() -> dashboardLiveService.publish(delta));
+        }
+    }
+
+    /**
+     * Delta mà các sự kiện sẽ cộng vào bộ đếm, dựa trên trạng thái borrowings hiện tại
+     */
+    public DashboardCounters deltaOf(List<DomainEvent> events) {
+        // Trả hoặc mất một lượt đã bị job quét gắn cờ thì lượt quá hạn đang mở giảm đi một
+        Set<UUID> closing = events.stream()
+                .filter(e -> e.getType() == DomainEvent.EventType.BOOK_RETURNED
+                        || e.getType() == DomainEvent.EventType.BOOK_LOST)
+                .map(DomainEvent::getBorrowingId)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toSet());
+        Set<UUID> flaggedOverdue = closing.isEmpty() ? Set.of() : new HashSet<>(jdbcTemplate.queryForList(
+                FLAGGED_OVERDUE_SQL, new MapSqlParameterSource("borrowingIds", closing), UUID.class));
+
+        LocalDate today = LocalDate.now();
+        DashboardCounters delta = new DashboardCounters();
+        for (DomainEvent event : events) {
+            boolean happenedToday = event.getOccurredAt() == null || today.equals(event.getOccurredAt().toLocalDate());
+            switch (event.getType()) {
+                case BOOK_BORROWED -> {
+                    delta.setActiveLoans(delta.getActiveLoans() + 1);
+                    if (happenedToday) {
+                        delta.setBorrowsToday(delta.getBorrowsToday() + 1);
+                    }
+                }
+                case BOOK_RETURNED -> {
+                    delta.setActiveLoans(delta.getActiveLoans() - 1);
+                    if (happenedToday) {
+                        delta.setReturnsToday(delta.getReturnsToday() + 1);
+                    }
+                    if (flaggedOverdue.contains(event.getBorrowingId())) {
+                        delta.setOverdue(delta.getOverdue() - 1);
+                    }
+                }
+                case BOOK_LOST -> {
+                    delta.setActiveLoans(delta.getActiveLoans() - 1);
+                    if (flaggedOverdue.contains(event.getBorrowingId())) {
+                        delta.setOverdue(delta.getOverdue() - 1);
+                    }
+                }
+                case BOOK_OVERDUE -> delta.setOverdue(delta.getOverdue() + 1);
+                default -> {
+                }
+            }
+        }
+        return delta;
+    }
+}
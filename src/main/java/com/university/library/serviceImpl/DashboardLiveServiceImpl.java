@@ -0,0 +1,216 @@
+package com.university.library.serviceImpl;
+
+import com.university.library.dto.response.dashboard.DashboardCounters;
+import com.university.library.dto.response.event.DomainEvent;
+import com.university.library.entity.Borrowing;
+import com.university.library.repository.BorrowingRepository;
+import com.university.library.repository.DailyCirculationStatRepository;
+import com.university.library.service.DashboardLiveService;
+import com.university.library.service.OutboxService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.context.event.EventListener;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Sinks;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Một publisher trong bộ nhớ cho mọi admin: sink replay giữ replaySize sự kiện gần nhất để client kết nối lại
+ * với Last-Event-ID nhận tiếp phần đã lỡ. Id sự kiện dạng "epoch-seq", epoch đổi mỗi lần khởi động nên
+ * id của instance cũ luôn dẫn tới snapshot mới
+ */
+@Slf4j
+@Service
+public class DashboardLiveServiceImpl implements DashboardLiveService {
+
+    private final BorrowingRepository borrowingRepository;
+    private final DailyCirculationStatRepository dailyCirculationStatRepository;
+    private final OutboxService outboxService;
+    private final DashboardLiveOutboxConsumer dashboardLiveOutboxConsumer;
+    private final TransactionTemplate transactionTemplate;
+    private final TransactionTemplate snapshotTemplate;
+    private final Duration heartbeat;
+    private final Duration streamTimeout;
+    private final int replaySize;
+
+    private final String epoch = Long.toString(System.currentTimeMillis(), 36);
+    private final Sinks.Many<LiveEvent> sink;
+    private final DashboardCounters counters = DashboardCounters.builder().date(LocalDate.now()).build();
+    private long sequence;
+
+    public DashboardLiveServiceImpl(BorrowingRepository borrowingRepository,
+                                    DailyCirculationStatRepository dailyCirculationStatRepository,
+                                    OutboxService outboxService,
+                                    @Lazy DashboardLiveOutboxConsumer dashboardLiveOutboxConsumer,
+                                    PlatformTransactionManager transactionManager,
+                                    @Value("${app.dashboard.live.heartbeat-seconds:15}") long heartbeatSeconds,
+                                    @Value("${app.dashboard.live.stream-timeout-minutes:30}") long streamTimeoutMinutes,
+                                    @Value("${app.dashboard.live.replay-size:512}") int replaySize) {
+        this.borrowingRepository = borrowingRepository;
+        this.dailyCirculationStatRepository = dailyCirculationStatRepository;
+        this.outboxService = outboxService;
+        this.dashboardLiveOutboxConsumer = dashboardLiveOutboxConsumer;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.snapshotTemplate = new TransactionTemplate(transactionManager);
+        this.snapshotTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.snapshotTemplate.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+        this.snapshotTemplate.setReadOnly(true);
+        this.heartbeat = Duration.ofSeconds(heartbeatSeconds);
+        this.streamTimeout = Duration.ofMinutes(streamTimeoutMinutes);
+        this.replaySize = replaySize;
+        this.sink = Sinks.many().replay().limit(replaySize);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        resync();
+    }
+
+    @Override
+    public Flux<ServerSentEvent<DashboardCounters>> stream(String lastEventId) {
+        Flux<ServerSentEvent<DashboardCounters>> events = Flux.defer(() -> {
+            long resumeAfter = resumeSequence(lastEventId);
+            if (resumeAfter >= 0) {
+                return sink.asFlux().filter(e -> e.sequence() > resumeAfter).map(LiveEvent::event);
+            }
+            // Sink phát lại các sự kiện gần nhất khi đăng ký nên delta phát sau lúc chụp không bị lỡ
+            LiveEvent snapshot = snapshotEvent();
+            return sink.asFlux()
+                    .filter(e -> e.sequence() > snapshot.sequence())
+                    .map(LiveEvent::event)
+                    .startWith(snapshot.event());
+        });
+        Flux<ServerSentEvent<DashboardCounters>> heartbeats = Flux.interval(heartbeat)
+                .map(tick -> ServerSentEvent.<DashboardCounters>builder().comment("heartbeat").build());
+        // Spring MVC không áp request-timeout cho luồng SSE, tự đóng sau streamTimeout để client kết nối lại
+        return Flux.merge(events, heartbeats).take(streamTimeout);
+    }
+
+    @Override
+    public synchronized void publish(DashboardCounters delta) {
+        if (delta.isEmpty()) {
+            return;
+        }
+        rollOverIfNewDay();
+        counters.setBorrowsToday(counters.getBorrowsToday() + delta.getBorrowsToday());
+        counters.setReturnsToday(counters.getReturnsToday() + delta.getReturnsToday());
+        counters.setActiveLoans(counters.getActiveLoans() + delta.getActiveLoans());
+        counters.setOverdue(counters.getOverdue() + delta.getOverdue());
+        delta.setDate(counters.getDate());
+        emit("delta", delta);
+    }
+
+    /**
+     * Chụp và áp snapshot khi relay đang tạm dừng: lô relay đã commit đều đã phát delta, lô mới phải chờ,
+     * còn mượn/trả vẫn chạy. Số đếm và sự kiện chưa relay được đọc trong cùng một snapshot REPEATABLE READ
+     * mở sau khi giữ khóa relay. daily_circulation_stats chỉ gồm sự kiện đã relay, còn số đếm từ borrowings
+     * được trừ phần các sự kiện chưa relay để lúc delta của chúng tới không bị cộng hai lần
+     */
+    @Override
+    public void resync() {
+        transactionTemplate.executeWithoutResult(status -> {
+            outboxService.pauseRelay();
+            apply(snapshotTemplate.execute(snapshot -> {
+                List<DomainEvent> pending = outboxService.findPending(DashboardLiveOutboxConsumer.LIVE_EVENTS);
+                DashboardCounters unrelayed = dashboardLiveOutboxConsumer.deltaOf(pending);
+                LocalDate today = LocalDate.now();
+                return DashboardCounters.builder()
+                        .date(today)
+                        .borrowsToday(dailyCirculationStatRepository.sumBorrowsOn(today))
+                        .returnsToday(dailyCirculationStatRepository.sumReturnsOn(today))
+                        .activeLoans(borrowingRepository.countByStatus(Borrowing.BorrowingStatus.BORROWED)
+                                - unrelayed.getActiveLoans())
+                        .overdue(borrowingRepository.countByStatusAndOverdueTrue(Borrowing.BorrowingStatus.BORROWED)
+                                - unrelayed.getOverdue())
+                        .build();
+            }));
+        });
+    }
+
+    private synchronized void apply(DashboardCounters fresh) {
+        boolean changed = !fresh.equals(counters);
+        counters.setDate(fresh.getDate());
+        counters.setBorrowsToday(fresh.getBorrowsToday());
+        counters.setReturnsToday(fresh.getReturnsToday());
+        counters.setActiveLoans(fresh.getActiveLoans());
+        counters.setOverdue(fresh.getOverdue());
+        if (changed) {
+            emit("snapshot", copyOf(counters));
+        }
+    }
+
+    /**
+     * Trả về seq để phát tiếp sau đó, hoặc -1 nếu id không thuộc instance này hay đã trôi khỏi bộ đệm
+     */
+    private synchronized long resumeSequence(String lastEventId) {
+        if (lastEventId == null || !lastEventId.startsWith(epoch + "-")) {
+            return -1;
+        }
+        try {
+            long last = Long.parseLong(lastEventId.substring(epoch.length() + 1));
+            return last <= sequence && last >= sequence - replaySize ? last : -1;
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private synchronized LiveEvent snapshotEvent() {
+        rollOverIfNewDay();
+        return new LiveEvent(sequence, ServerSentEvent.builder(copyOf(counters))
+                .id(epoch + "-" + sequence)
+                .event("snapshot")
+                .retry(heartbeat)
+                .build());
+    }
+
+    /**
+     * Gọi khi đang giữ khóa
+     */
+    private void rollOverIfNewDay() {
+        LocalDate today = LocalDate.now();
+        if (!today.equals(counters.getDate())) {
+            counters.setDate(today);
+            counters.setBorrowsToday(0);
+            counters.setReturnsToday(0);
+            // Client đang cộng delta vào số của hôm qua, gửi lại giá trị tuyệt đối
+            emit("snapshot", copyOf(counters));
+        }
+    }
+
+    /**
+     * Gọi khi đang giữ khóa: sink yêu cầu phát tuần tự
+     */
+    private void emit(String type, DashboardCounters payload) {
+        long seq = ++sequence;
+        Sinks.EmitResult result = sink.tryEmitNext(new LiveEvent(seq, ServerSentEvent.builder(payload)
+                .id(epoch + "-" + seq)
+                .event(type)
+                .build()));
+        if (result.isFailure()) {
+            log.warn("Dashboard live event {} dropped: {}", seq, result);
+        }
+    }
+
+    private static DashboardCounters copyOf(DashboardCounters source) {
+        return DashboardCounters.builder()
+                .date(source.getDate())
+                .borrowsToday(source.getBorrowsToday())
+                .returnsToday(source.getReturnsToday())
+                .activeLoans(source.getActiveLoans())
+                .overdue(source.getOverdue())
+                .build();
+    }
+
+    private record LiveEvent(long sequence, ServerSentEvent<DashboardCounters> event) {
+    }
+}
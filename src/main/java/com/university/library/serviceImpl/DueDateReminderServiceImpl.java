@@ -0,0 +1,226 @@
+package com.university.library.serviceImpl;
+
+import com.university.library.dto.response.borrowing.DueDateReminder;
+import com.university.library.entity.Borrowing;
+import com.university.library.repository.BorrowingRepository;
+import com.university.library.repository.ReminderDeliveryRepository;
+import com.university.library.service.DueDateReminderService;
+import com.university.library.service.ReminderChannel;
+import com.university.library.utils.HierarchicalTimingWheel;
+import com.university.library.utils.TransactionCallbacks;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Queue;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Mỗi instance giữ một timing wheel dựng từ DB; khi gửi, từng nhắc được giành quyền qua reminder_deliveries
+ * nên chạy nhiều instance vẫn chỉ gửi một lần và nhắc của lượt đã trả ở instance khác bị bỏ qua
+ */
+@Slf4j
+@Service
+public class DueDateReminderServiceImpl implements DueDateReminderService {
+
+    private static final long TICK_MS = Duration.ofMinutes(1).toMillis();
+    private static final int WHEEL_SIZE = 60;
+    private static final int MAX_ATTEMPTS = 3;
+
+    private final BorrowingRepository borrowingRepository;
+    private final ReminderDeliveryRepository reminderDeliveryRepository;
+    private final List<ReminderChannel> channels;
+    private final TransactionTemplate transactionTemplate;
+    private final int[] leadDays;
+    private final int batchSize;
+    private final Duration claimLease;
+    private final Clock clock;
+
+    private final HierarchicalTimingWheel<String, DueDateReminder> wheel;
+    private final Queue<DueDateReminder> pending = new ConcurrentLinkedQueue<>();
+
+    @Autowired
+    public DueDateReminderServiceImpl(BorrowingRepository borrowingRepository,
+                                      ReminderDeliveryRepository reminderDeliveryRepository,
+                                      List<ReminderChannel> channels,
+                                      PlatformTransactionManager transactionManager,
+                                      @Value("${app.reminders.lead-days:3,1}") int[] leadDays,
+                                      @Value("${app.reminders.batch-size:50}") int batchSize,
+                                      @Value("${app.reminders.claim-lease-minutes:10}") long claimLeaseMinutes) {
+        this(borrowingRepository, reminderDeliveryRepository, channels, transactionManager, leadDays, batchSize,
+                claimLeaseMinutes, Clock.systemDefaultZone());
+    }
+
+    DueDateReminderServiceImpl(BorrowingRepository borrowingRepository,
+                               ReminderDeliveryRepository reminderDeliveryRepository,
+                               List<ReminderChannel> channels,
+                               PlatformTransactionManager transactionManager,
+                               int[] leadDays,
+                               int batchSize,
+                               long claimLeaseMinutes,
+                               Clock clock) {
+        this.borrowingRepository = borrowingRepository;
+        this.reminderDeliveryRepository = reminderDeliveryRepository;
+        this.channels = channels;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.leadDays = leadDays;
+        this.batchSize = batchSize;
+        this.claimLease = Duration.ofMinutes(claimLeaseMinutes);
+        this.clock = clock;
+        this.wheel = new HierarchicalTimingWheel<>(TICK_MS, WHEEL_SIZE, clock.millis());
+    }
+
+    /**
+     * Dựng lại timing wheel từ một truy vấn range trên (status, due_date) khi khởi động
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        LocalDateTime now = LocalDateTime.now(clock);
+        int minLead = Arrays.stream(leadDays).min().orElse(0);
+        List<Object[]> rows = borrowingRepository.findUpcomingDueDates(
+                Borrowing.BorrowingStatus.BORROWED, now.plusDays(minLead));
+        wheel.clear();
+        for (Object[] row : rows) {
+            schedule((UUID) row[0], (String) row[1], (String) row[3], (LocalDateTime) row[2]);
+        }
+        log.info("Reminder wheel rebuilt from {} active borrowings, {} reminders scheduled via {}",
+                rows.size(), wheel.size(), channels.stream().map(ReminderChannel::getName).toList());
+    }
+
+    @Override
+    public void scheduleReminders(Borrowing borrowing) {
+        UUID borrowingId = borrowing.getBorrowingId();
+        String companyAccount = borrowing.getCompanyAccount();
+        LocalDateTime dueDate = borrowing.getDueDate();
+        String title = borrowing.getBookCopy() != null && borrowing.getBookCopy().getBook() != null
+                ? borrowing.getBookCopy().getBook().getTitle() : null;
+        TransactionCallbacks.afterCommit(() -> schedule(borrowingId, companyAccount, title, dueDate));
+    }
+
+    @Override
+    public void cancelReminders(UUID borrowingId) {
+        TransactionCallbacks.afterCommit(() -> {
+            for (int days : leadDays) {
+                wheel.cancel(key(borrowingId, days));
+            }
+        });
+    }
+
+    @Override
+    public int fireDueReminders() {
+        List<DueDateReminder> fired = wheel.advanceTo(clock.millis());
+        pending.addAll(fired);
+        return fired.size();
+    }
+
+    @Override
+    public int dispatchPending() {
+        List<DueDateReminder> batch = new ArrayList<>(batchSize);
+        DueDateReminder reminder;
+        while (batch.size() < batchSize && (reminder = pending.poll()) != null) {
+            batch.add(reminder);
+        }
+        if (batch.isEmpty()) {
+            return 0;
+        }
+
+        for (ReminderChannel channel : channels) {
+            List<DueDateReminder> toSend = batch.stream()
+                    .filter(r -> !r.getDeliveredChannels().contains(channel.getName()))
+                    .toList();
+            if (toSend.isEmpty()) {
+                continue;
+            }
+            try {
+                deliver(channel, toSend);
+            } catch (Exception e) {
+                log.error("Reminder channel {} failed for {} reminders: {}", channel.getName(), toSend.size(), e.getMessage());
+            }
+        }
+
+        // Chỉ thử lại qua các kênh còn thiếu, kênh đã gửi xong không nhận lại nhắc
+        List<DueDateReminder> undelivered = batch.stream()
+                .filter(r -> r.getDeliveredChannels().size() < channels.size())
+                .toList();
+        requeue(undelivered);
+        return batch.size() - undelivered.size();
+    }
+
+    /**
+     * Giành quyền từng nhắc (commit trước khi gửi để instance khác thấy), gửi phần giành được rồi ghi sent_at.
+     * Nhắc không giành được đã do instance khác lo hoặc lượt mượn đã đóng, coi như xong với kênh này.
+     * Kênh lỗi thì trả lại quyền và ném lỗi để các nhắc còn thiếu kênh này được thử lại
+     */
+    private void deliver(ReminderChannel channel, List<DueDateReminder> reminders) throws Exception {
+        UUID token = UUID.randomUUID();
+        LocalDateTime now = LocalDateTime.now(clock);
+        List<DueDateReminder> claimed = new ArrayList<>();
+        transactionTemplate.executeWithoutResult(status -> {
+            for (DueDateReminder reminder : reminders) {
+                if (reminderDeliveryRepository.claim(reminder.getBorrowingId(), reminder.getDaysBefore(),
+                        channel.getName(), token, now, now.minus(claimLease)).isPresent()) {
+                    claimed.add(reminder);
+                } else {
+                    reminder.getDeliveredChannels().add(channel.getName());
+                }
+            }
+        });
+        if (claimed.isEmpty()) {
+            return;
+        }
+
+        try {
+            channel.send(claimed);
+        } catch (Exception e) {
+            transactionTemplate.executeWithoutResult(status -> reminderDeliveryRepository.release(token));
+            throw e;
+        }
+        transactionTemplate.executeWithoutResult(status ->
+                reminderDeliveryRepository.markSent(token, LocalDateTime.now(clock)));
+        claimed.forEach(r -> r.getDeliveredChannels().add(channel.getName()));
+    }
+
+    private void schedule(UUID borrowingId, String companyAccount, String title, LocalDateTime dueDate) {
+        if (dueDate == null) {
+            return;
+        }
+        for (int days : leadDays) {
+            LocalDateTime remindAt = dueDate.minusDays(days);
+            wheel.schedule(key(borrowingId, days), remindAt.atZone(clock.getZone()).toInstant().toEpochMilli(),
+                    DueDateReminder.builder()
+                            .borrowingId(borrowingId)
+                            .companyAccount(companyAccount)
+                            .bookTitle(title)
+                            .dueDate(dueDate)
+                            .daysBefore(days)
+                            .build());
+        }
+    }
+
+    private void requeue(List<DueDateReminder> batch) {
+        for (DueDateReminder reminder : batch) {
+            reminder.setAttempts(reminder.getAttempts() + 1);
+            if (reminder.getAttempts() < MAX_ATTEMPTS) {
+                pending.add(reminder);
+            } else {
+                log.warn("Dropping reminder for borrowing {} after {} attempts", reminder.getBorrowingId(), MAX_ATTEMPTS);
+            }
+        }
+    }
+
+    private String key(UUID borrowingId, int daysBefore) {
+        return borrowingId + ":" + daysBefore;
+    }
+}
@@ -0,0 +1,248 @@
+package com.university.library.serviceImpl;
+
+import com.university.library.dto.response.job.ExportJobResponse;
+import com.university.library.dto.response.job.ExportJobResponse.JobStatus;
+import com.university.library.dto.response.job.ExportJobResponse.JobType;
+import com.university.library.exception.exceptions.NotFoundException;
+import com.university.library.service.BookCopyService;
+import com.university.library.service.BookService;
+import com.university.library.service.ExportJobService;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Trạng thái job và file kết quả nằm trong bộ nhớ/đĩa tạm của instance đã nhận job nên tính năng này
+ * chỉ hỗ trợ chạy một instance (hoặc load balancer sticky theo jobId); instance khác sẽ trả 404
+ */
+@Service
+@Slf4j
+public class ExportJobServiceImpl implements ExportJobService {
+
+    private static final String DOWNLOAD_PATH = "/api/v1/jobs/%s/download";
+
+    private final BookCopyService bookCopyService;
+    private final BookService bookService;
+    private final TaskExecutor exportJobExecutor;
+    private final Duration ttl;
+
+    private final Map<UUID, ExportJob> jobs = new ConcurrentHashMap<>();
+    private final Map<String, UUID> jobsByKey = new ConcurrentHashMap<>();
+
+    public ExportJobServiceImpl(BookCopyService bookCopyService,
+                                BookService bookService,
+                                @Qualifier("exportJobExecutor") TaskExecutor exportJobExecutor,
+                                @Value("${app.export-jobs.ttl-minutes:30}") long ttlMinutes) {
+        this.bookCopyService = bookCopyService;
+        this.bookService = bookService;
+        this.exportJobExecutor = exportJobExecutor;
+        this.ttl = Duration.ofMinutes(ttlMinutes);
+    }
+
+    @Override
+    public ExportJobResponse submitAllQRCodesPDF() {
+        return submit(JobType.ALL_QR_CODES_PDF, "all", "qr-codes.pdf", (job, out) -> {
+            bookCopyService.writeAllQRCodesPDF(out);
+            return true;
+        });
+    }
+
+    @Override
+    public ExportJobResponse submitQRLabelsPDF(String since, UUID campusId, UUID bookId) {
+        String key = since + "|" + campusId + "|" + bookId;
+        // "lastRun" phụ thuộc các lần in đã xác nhận nên không dùng lại job cũ đã hoàn tất
+        return submit(JobType.QR_LABELS_PDF, key, "qr-labels.pdf", (job, out) -> {
+            job.printRunId = bookCopyService.writeQRLabelsPDF(since, campusId, bookId, out);
+            return job.printRunId != null;
+        });
+    }
+
+    @Override
+    public ExportJobResponse submitBookExcel() {
+        return submit(JobType.BOOK_EXCEL, "all", "books.xlsx", (job, out) -> {
+            bookService.exportExcel(bookService.getDataBookToExport(), out);
+            return true;
+        });
+    }
+
+    @Override
+    public ExportJobResponse getJob(UUID jobId) {
+        return toResponse(findJob(jobId));
+    }
+
+    @Override
+    public Resource getJobFile(UUID jobId) {
+        ExportJob job = findJob(jobId);
+        if (job.status != JobStatus.DONE || job.file == null || !Files.exists(job.file)) {
+            throw new NotFoundException("Export file is not available for job: " + jobId);
+        }
+        return new FileSystemResource(job.file);
+    }
+
+    @PreDestroy
+    void cleanUp() {
+        jobs.values().forEach(this::deleteFile);
+        jobs.clear();
+        jobsByKey.clear();
+    }
+
+    @Override
+    public synchronized int purgeExpired() {
+        LocalDateTime threshold = LocalDateTime.now().minus(ttl);
+        int before = jobs.size();
+        jobs.values().removeIf(job -> {
+            boolean expired = job.finishedAt != null && job.finishedAt.isBefore(threshold);
+            if (expired) {
+                deleteFile(job);
+                jobsByKey.remove(job.key, job.id);
+            }
+            return expired;
+        });
+        return before - jobs.size();
+    }
+
+    private synchronized ExportJobResponse submit(JobType type, String params, String fileName, JobTask task) {
+        purgeExpired();
+
+        String key = type + ":" + params;
+        UUID existingId = jobsByKey.get(key);
+        ExportJob existing = existingId != null ? jobs.get(existingId) : null;
+        if (existing != null && isReusable(existing)) {
+            return toResponse(existing);
+        }
+
+        ExportJob job = new ExportJob(UUID.randomUUID(), type, key, fileName);
+        jobs.put(job.id, job);
+        jobsByKey.put(key, job.id);
+        try {
+            exportJobExecutor.execute(() -> run(job, task));
+        } catch (RuntimeException e) {
+            jobs.remove(job.id);
+            jobsByKey.remove(key, job.id);
+            throw e;
+        }
+        log.info("Queued export job {} ({})", job.id, type);
+        return toResponse(job);
+    }
+
+    private boolean isReusable(ExportJob job) {
+        if (job.status == JobStatus.QUEUED || job.status == JobStatus.RUNNING) {
+            return true;
+        }
+        // Mỗi lần xuất nhãn là một print run riêng cần xác nhận
+        return job.status == JobStatus.DONE && job.type != JobType.QR_LABELS_PDF;
+    }
+
+    private void run(ExportJob job, JobTask task) {
+        job.status = JobStatus.RUNNING;
+        Path file = null;
+        try {
+            file = Files.createTempFile("library-export-" + job.id, ".tmp");
+            boolean hasContent;
+            try (OutputStream out = Files.newOutputStream(file)) {
+                hasContent = task.write(job, out);
+            }
+            if (hasContent) {
+                job.file = file;
+                job.fileSize = Files.size(file);
+                job.status = JobStatus.DONE;
+            } else {
+                Files.deleteIfExists(file);
+                job.status = JobStatus.EMPTY;
+            }
+            log.info("Export job {} finished with status {}", job.id, job.status);
+        } catch (Exception e) {
+            log.error("Export job {} failed: {}", job.id, e.getMessage(), e);
+            job.error = e.getMessage();
+            job.status = JobStatus.FAILED;
+            if (file != null) {
+                try {
+                    Files.deleteIfExists(file);
+                } catch (IOException ignored) {
+                    // file tạm sẽ bị hệ điều hành dọn
+                }
+            }
+        } finally {
+            job.finishedAt = LocalDateTime.now();
+        }
+    }
+
+    private void deleteFile(ExportJob job) {
+        if (job.file == null) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(job.file);
+        } catch (IOException e) {
+            log.warn("Could not delete export file {}: {}", job.file, e.getMessage());
+        }
+    }
+
+    private ExportJob findJob(UUID jobId) {
+        ExportJob job = jobs.get(jobId);
+        if (job == null) {
+            throw new NotFoundException("Export job not found with id: " + jobId);
+        }
+        return job;
+    }
+
+    private ExportJobResponse toResponse(ExportJob job) {
+        return ExportJobResponse.builder()
+                .jobId(job.id)
+                .type(job.type)
+                .status(job.status)
+                .fileName(job.fileName)
+                .fileSize(job.fileSize)
+                .error(job.error)
+                .printRunId(job.printRunId)
+                .downloadUrl(job.status == JobStatus.DONE ? String.format(DOWNLOAD_PATH, job.id) : null)
+                .createdAt(job.createdAt)
+                .finishedAt(job.finishedAt)
+                .build();
+    }
+
+    @FunctionalInterface
+    private interface JobTask {
+        /**
+         * @return false nếu không có nội dung để tải về
+         */
+        boolean write(ExportJob job, OutputStream out) throws Exception;
+    }
+
+    private static final class ExportJob {
+        private final UUID id;
+        private final JobType type;
+        private final String key;
+        private final String fileName;
+        private final LocalDateTime createdAt = LocalDateTime.now();
+        private volatile JobStatus status = JobStatus.QUEUED;
+        private volatile Path file;
+        private volatile Long fileSize;
+        private volatile String error;
+        private volatile UUID printRunId;
+        private volatile LocalDateTime finishedAt;
+
+        private ExportJob(UUID id, JobType type, String key, String fileName) {
+            this.id = Objects.requireNonNull(id);
+            this.type = type;
+            this.key = key;
+            this.fileName = fileName;
+        }
+    }
+}
@@ -0,0 +1,266 @@
+package com.university.library.serviceImpl;
+
+import com.university.library.dto.response.hold.HoldResponse;
+import com.university.library.entity.Book;
+import com.university.library.entity.BookCopy;
+import com.university.library.entity.Hold;
+import com.university.library.entity.User;
+import com.university.library.exception.exceptions.BadRequestException;
+import com.university.library.exception.exceptions.ConflictException;
+import com.university.library.exception.exceptions.NotFoundException;
+import com.university.library.repository.BookCopyRepository;
+import com.university.library.repository.BookRepository;
+import com.university.library.repository.HoldRepository;
+import com.university.library.repository.UserRepository;
+import com.university.library.service.HoldService;
+import com.university.library.utils.TransactionCallbacks;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+@Slf4j
+@Service
+public class HoldServiceImpl implements HoldService {
+
+    private static final Set<Hold.HoldStatus> ACTIVE_STATUSES = Set.of(Hold.HoldStatus.WAITING, Hold.HoldStatus.READY);
+    private static final long SSE_TIMEOUT_MS = Duration.ofMinutes(30).toMillis();
+
+    private final HoldRepository holdRepository;
+    private final BookRepository bookRepository;
+    private final BookCopyRepository bookCopyRepository;
+    private final UserRepository userRepository;
+    private final Duration readyDuration;
+
+    private final Map<String, List<SseEmitter>> subscribers = new ConcurrentHashMap<>();
+
+    public HoldServiceImpl(HoldRepository holdRepository,
+                           BookRepository bookRepository,
+                           BookCopyRepository bookCopyRepository,
+                           UserRepository userRepository,
+                           @Value("${app.holds.ready-hours:48}") long readyHours) {
+        this.holdRepository = holdRepository;
+        this.bookRepository = bookRepository;
+        this.bookCopyRepository = bookCopyRepository;
+        this.userRepository = userRepository;
+        this.readyDuration = Duration.ofHours(readyHours);
+    }
+
+    /**
+     * Hold Query
+     */
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<HoldResponse> getActiveHolds(String companyAccount) {
+        return holdRepository.findByCompanyAccountAndStatusInOrderByCreatedAtAsc(companyAccount, ACTIVE_STATUSES)
+                .stream()
+                .map(this::toResponse)
+                .toList();
+    }
+
+    /**
+     * Người đặt giữ chỗ đăng ký nhận thông báo khi bản sao sẵn sàng thay vì poll danh sách bản sao còn trống
+     */
+    @Override
+    public SseEmitter subscribe(String companyAccount) {
+        SseEmitter emitter = new SseEmitter(SSE_TIMEOUT_MS);
+        List<SseEmitter> emitters = subscribers.computeIfAbsent(companyAccount, k -> new CopyOnWriteArrayList<>());
+        emitters.add(emitter);
+        Runnable remove = () -> emitters.remove(emitter);
+        emitter.onCompletion(remove);
+        emitter.onTimeout(remove);
+        emitter.onError(e -> remove.run());
+        return emitter;
+    }
+
+    /**
+     * Hold Command
+     */
+
+    @Override
+    @Transactional
+    public HoldResponse placeHold(UUID bookId, String companyAccount) {
+        if (companyAccount == null || companyAccount.isBlank()) {
+            throw new BadRequestException("companyAccount is required");
+        }
+        Book book = bookRepository.findById(bookId)
+                .orElseThrow(() -> new NotFoundException("Book not found with id: " + bookId));
+        if (holdRepository.existsByBookBookIdAndCompanyAccountAndStatusIn(bookId, companyAccount, ACTIVE_STATUSES)) {
+            throw new ConflictException("User already has an active hold for this book");
+        }
+
+        Hold hold = Hold.builder()
+                .book(book)
+                .companyAccount(companyAccount)
+                .status(Hold.HoldStatus.WAITING)
+                .build();
+
+        // Còn bản sao trống thì giữ ngay, không cần xếp hàng
+        UUID preferredCampusId = userRepository.findByCompanyAccount(companyAccount)
+                .map(User::getCampus)
+                .map(campus -> campus.getCampusId())
+                .orElse(null);
+        bookCopyRepository.lockAvailableCopyForBook(bookId, preferredCampusId)
+                .flatMap(bookCopyRepository::findById)
+                .ifPresent(bookCopy -> reserve(hold, bookCopy));
+
+        Hold saved = holdRepository.save(hold);
+        if (saved.getStatus() == Hold.HoldStatus.READY) {
+            HoldResponse response = toResponse(saved);
+            TransactionCallbacks.afterCommit(() -> notifyReady(response));
+            return response;
+        }
+
+        log.info("Hold {} queued for book {} by {}", saved.getHoldId(), bookId, companyAccount);
+        return toResponse(saved);
+    }
+
+    @Override
+    @Transactional
+    public HoldResponse cancelHold(UUID holdId, String companyAccount) {
+        Hold hold = holdRepository.findById(holdId)
+                .orElseThrow(() -> new NotFoundException("Hold not found with id: " + holdId));
+        if (!hold.getCompanyAccount().equals(companyAccount)) {
+            throw new BadRequestException("Hold does not belong to this account");
+        }
+
+        Hold.HoldStatus previous = hold.getStatus();
+        if (!ACTIVE_STATUSES.contains(previous)
+                || holdRepository.compareAndSetStatus(holdId, previous, Hold.HoldStatus.CANCELLED, LocalDateTime.now()) == 0) {
+            throw new ConflictException("Hold is no longer active");
+        }
+
+        if (previous == Hold.HoldStatus.READY && hold.getBookCopy() != null) {
+            releaseReservedCopy(hold.getBookCopy());
+        }
+        hold.setStatus(Hold.HoldStatus.CANCELLED);
+        log.info("Hold {} cancelled by {}", holdId, companyAccount);
+        return toResponse(hold);
+    }
+
+    /**
+     * Hàng đợi lấy từ DB: khoá hold đầu hàng bằng FOR UPDATE SKIP LOCKED nên nhiều instance
+     * cùng xử lý trả sách vẫn giao đúng thứ tự và không giao trùng
+     */
+    @Override
+    @Transactional
+    public boolean allocateReturnedCopy(BookCopy bookCopy) {
+        UUID bookId = bookCopy.getBook().getBookId();
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime expiresAt = now.plus(readyDuration);
+        while (true) {
+            Optional<UUID> next = holdRepository.lockNextWaitingHold(bookId);
+            if (next.isEmpty()) {
+                return false;
+            }
+            UUID holdId = next.get();
+            // Dòng đã bị khoá nên chỉ trượt khi hold vừa đổi trạng thái trước lúc khoá, thử hold kế tiếp
+            int assigned = holdRepository.assignCopy(holdId, Hold.HoldStatus.WAITING, Hold.HoldStatus.READY,
+                    bookCopy, now, expiresAt);
+            if (assigned == 1) {
+                bookCopy.setStatus(BookCopy.BookStatus.RESERVED);
+                HoldResponse ready = HoldResponse.builder()
+                        .holdId(holdId)
+                        .bookId(bookId)
+                        .bookTitle(bookCopy.getBook().getTitle())
+                        .companyAccount(holdRepository.findCompanyAccountByHoldId(holdId))
+                        .bookCopyId(bookCopy.getBookCopyId())
+                        .shortCode(bookCopy.getShortCode())
+                        .status(Hold.HoldStatus.READY)
+                        .readyAt(now)
+                        .expiresAt(expiresAt)
+                        .build();
+                TransactionCallbacks.afterCommit(() -> notifyReady(ready));
+                log.info("Book copy {} reserved for hold {} until {}", bookCopy.getBookCopyId(), holdId, expiresAt);
+                return true;
+            }
+        }
+    }
+
+    @Override
+    @Transactional
+    public boolean fulfillHold(UUID bookCopyId, String companyAccount) {
+        return holdRepository.fulfill(bookCopyId, companyAccount, Hold.HoldStatus.READY, Hold.HoldStatus.FULFILLED,
+                LocalDateTime.now()) == 1;
+    }
+
+    @Override
+    @Transactional
+    public int releaseExpiredHolds() {
+        LocalDateTime now = LocalDateTime.now();
+        List<Hold> expired = holdRepository.findTop100ByStatusAndExpiresAtBeforeOrderByExpiresAtAsc(
+                Hold.HoldStatus.READY, now);
+        List<BookCopy> released = new ArrayList<>();
+        for (Hold hold : expired) {
+            if (holdRepository.compareAndSetStatus(hold.getHoldId(), Hold.HoldStatus.READY,
+                    Hold.HoldStatus.EXPIRED, now) == 1 && hold.getBookCopy() != null) {
+                released.add(hold.getBookCopy());
+            }
+        }
+        released.forEach(this::releaseReservedCopy);
+        if (!expired.isEmpty()) {
+            log.info("Released {} expired holds", expired.size());
+        }
+        return expired.size();
+    }
+
+    /**
+     * Bản sao RESERVED không còn người giữ: chuyển cho hold kế tiếp hoặc trả về AVAILABLE
+     */
+    private void releaseReservedCopy(BookCopy reserved) {
+        BookCopy bookCopy = bookCopyRepository.findById(reserved.getBookCopyId()).orElse(null);
+        if (bookCopy == null || bookCopy.getStatus() != BookCopy.BookStatus.RESERVED) {
+            return;
+        }
+        if (!allocateReturnedCopy(bookCopy)) {
+            bookCopy.setStatus(BookCopy.BookStatus.AVAILABLE);
+        }
+    }
+
+    private void reserve(Hold hold, BookCopy bookCopy) {
+        LocalDateTime now = LocalDateTime.now();
+        bookCopy.setStatus(BookCopy.BookStatus.RESERVED);
+        hold.setBookCopy(bookCopy);
+        hold.setStatus(Hold.HoldStatus.READY);
+        hold.setReadyAt(now);
+        hold.setExpiresAt(now.plus(readyDuration));
+    }
+
+    private void notifyReady(HoldResponse hold) {
+        List<SseEmitter> emitters = subscribers.get(hold.getCompanyAccount());
+        if (emitters == null) {
+            return;
+        }
+        for (SseEmitter emitter : emitters) {
+            try {
+                emitter.send(SseEmitter.event().name("hold-ready").data(hold));
+            } catch (IOException | IllegalStateException e) {
+                emitters.remove(emitter);
+            }
+        }
+    }
+
+    private HoldResponse toResponse(Hold hold) {
+        HoldResponse response = HoldResponse.fromEntity(hold);
+        if (hold.getStatus() == Hold.HoldStatus.WAITING && hold.getBook() != null && hold.getCreatedAt() != null) {
+            long ahead = holdRepository.countWaitingBefore(hold.getBook().getBookId(), Hold.HoldStatus.WAITING,
+                    hold.getCreatedAt());
+            response.setPosition((int) ahead + 1);
+        }
+        return response;
+    }
+}
@@ -0,0 +1,111 @@
+package com.university.library.serviceImpl;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.university.library.dto.response.dashboard.DashBoardResponse;
+import com.university.library.dto.response.dashboard.HomePageStatsSnapshot;
+import com.university.library.service.AdminDashBoardService;
+import com.university.library.service.HomePageStatsService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.util.DigestUtils;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicReference;
+
+@Slf4j
+@Service
+public class HomePageStatsServiceImpl implements HomePageStatsService {
+
+    private final AdminDashBoardService adminDashBoardService;
+    private final ObjectMapper objectMapper;
+    private final Duration maxAge;
+
+    private volatile HomePageStatsSnapshot snapshot;
+    private final AtomicReference<CompletableFuture<HomePageStatsSnapshot>> inFlight = new AtomicReference<>();
+
+    public HomePageStatsServiceImpl(AdminDashBoardService adminDashBoardService,
+                                    ObjectMapper objectMapper,
+                                    @Value("${app.homepage-stats.refresh-interval-ms:30000}") long refreshIntervalMs) {
+        this.adminDashBoardService = adminDashBoardService;
+        this.objectMapper = objectMapper;
+        // Job nền làm mới theo chu kỳ; quá hai chu kỳ (job lỗi/chậm) thì request đầu tiên kích hoạt làm mới
+        this.maxAge = Duration.ofMillis(refreshIntervalMs * 2);
+    }
+
+    @Override
+    public HomePageStatsSnapshot getSnapshot() {
+        HomePageStatsSnapshot current = snapshot;
+        if (current == null) {
+            return refresh();
+        }
+        if (current.getComputedAt().plus(maxAge).isBefore(Instant.now())) {
+            // Stale-while-revalidate: chỉ luồng giành được lượt tính lại, các luồng khác trả bản cũ ngay
+            try {
+                HomePageStatsSnapshot refreshed = compute(false);
+                return refreshed != null ? refreshed : current;
+            } catch (RuntimeException e) {
+                log.warn("Homepage stats refresh failed, serving snapshot from {}: {}",
+                        current.getComputedAt(), e.getMessage());
+            }
+        }
+        return current;
+    }
+
+    @Override
+    public HomePageStatsSnapshot refresh() {
+        return compute(true);
+    }
+
+    /**
+     * Single-flight: luồng đặt được future vào inFlight sẽ tính, các luồng khác chờ kết quả đó
+     * (await = true) hoặc nhận null (await = false)
+     */
+    private HomePageStatsSnapshot compute(boolean await) {
+        CompletableFuture<HomePageStatsSnapshot> mine = new CompletableFuture<>();
+        CompletableFuture<HomePageStatsSnapshot> running = inFlight.compareAndExchange(null, mine);
+        if (running != null) {
+            if (!await) {
+                return null;
+            }
+            try {
+                return running.join();
+            } catch (CompletionException e) {
+                throw e.getCause() instanceof RuntimeException cause ? cause : e;
+            }
+        }
+
+        try {
+            DashBoardResponse stats = adminDashBoardService.getAdminDashBoard(0, 0);
+            HomePageStatsSnapshot previous = snapshot;
+            if (stats.isPartial() && previous != null) {
+                // Giữ bản đầy đủ trước đó thay vì phát bản thiếu số liệu cho cả chu kỳ
+                log.warn("Homepage stats partial ({}), keeping snapshot from {}",
+                        stats.getFailedMetrics(), previous.getComputedAt());
+                mine.complete(previous);
+                return previous;
+            }
+            HomePageStatsSnapshot next = new HomePageStatsSnapshot(stats, eTagOf(stats), Instant.now());
+            snapshot = next;
+            mine.complete(next);
+            return next;
+        } catch (RuntimeException e) {
+            mine.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.set(null);
+        }
+    }
+
+    private String eTagOf(DashBoardResponse stats) {
+        try {
+            return "\"" + DigestUtils.md5DigestAsHex(objectMapper.writeValueAsBytes(stats)) + "\"";
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Cannot serialize homepage stats", e);
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package com.university.library.serviceImpl;
+
+import com.university.library.dto.response.event.DomainEvent;
+import com.university.library.service.OutboxEventConsumer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Đẩy sự kiện outbox sang Kafka khi cấu hình app.outbox.kafka.topic. Chờ broker xác nhận cả lô
+ * trước khi relay đánh dấu đã xử lý; key là eventId để phía nhận khử trùng
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(prefix = "app.outbox.kafka", name = "topic")
+public class KafkaOutboxConsumer implements OutboxEventConsumer {
+
+    private final KafkaTemplate<String, Object> kafkaTemplate;
+    private final String topic;
+
+    public KafkaOutboxConsumer(KafkaTemplate<String, Object> kafkaTemplate,
+                               @Value("${app.outbox.kafka.topic}") String topic) {
+        this.kafkaTemplate = kafkaTemplate;
+        this.topic = topic;
+    }
+
+    @Override
+    public String getName() {
+        return "kafka";
+    }
+
+    @Override
+    public void handle(List<DomainEvent> events) {
+        CompletableFuture.allOf(events.stream()
+                        .map(e -> kafkaTemplate.send(topic, e.getEventId().toString(), e))
+                        .toArray(CompletableFuture[]::new))
+                .join();
+        log.debug("Published {} outbox events to {}", events.size(), topic);
+    }
+}
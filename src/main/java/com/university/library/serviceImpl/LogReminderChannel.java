@@ -0,0 +1,30 @@
+package com.university.library.serviceImpl;
+
+import com.university.library.dto.response.borrowing.DueDateReminder;
+import com.university.library.service.ReminderChannel;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Kênh mặc định: ghi nhắc hạn ra log, dùng khi chưa cấu hình kênh gửi thật
+ */
+@Slf4j
+@Component
+public class LogReminderChannel implements ReminderChannel {
+
+    @Override
+    public String getName() {
+        return "log";
+    }
+
+    @Override
+    public void send(List<DueDateReminder> reminders) {
+        for (DueDateReminder reminder : reminders) {
+            log.info("Reminder to {}: '{}' is due on {} ({} day(s) left)",
+                    reminder.getCompanyAccount(), reminder.getBookTitle(),
+                    reminder.getDueDate(), reminder.getDaysBefore());
+        }
+    }
+}
@@ -0,0 +1,192 @@
+package com.university.library.serviceImpl;
+
+import com.university.library.dto.response.loyalty.LoyaltyTopResponse;
+import com.university.library.entity.LoyaltyMonthlyTotal;
+import com.university.library.repository.LoyaltyMonthlyTotalRepository;
+import com.university.library.service.LoyaltyLeaderboardService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Điểm của từng user trong tháng nằm trong map, thứ hạng nằm trong skip list sắp theo (điểm giảm dần, userId).
+ * Ghi được tuần tự hoá bằng khoá của service, đọc chỉ lấy snapshot top-K đã tính sẵn nên không chặn.
+ * Sự kiện điểm chỉ refresh trên instance đã xử lý nó, nên mỗi sync-interval bảng được dựng lại từ top-K
+ * của loyalty_monthly_totals để các instance khác (và các lần dựng lại tổng tháng) cũng hội tụ
+ */
+@Slf4j
+@Service
+public class LoyaltyLeaderboardServiceImpl implements LoyaltyLeaderboardService {
+
+    private static final long SSE_TIMEOUT_MS = Duration.ofMinutes(30).toMillis();
+    private static final Comparator<LoyaltyTopResponse> RANKING = Comparator
+            .comparingInt(LoyaltyTopResponse::getTotalPoints).reversed()
+            .thenComparing(LoyaltyTopResponse::getUserId);
+
+    private final LoyaltyMonthlyTotalRepository loyaltyMonthlyTotalRepository;
+    private final int size;
+    private final long syncIntervalNanos;
+
+    private final Map<UUID, LoyaltyTopResponse> entries = new ConcurrentHashMap<>();
+    private final NavigableSet<LoyaltyTopResponse> ranking = new ConcurrentSkipListSet<>(RANKING);
+    private final List<SseEmitter> subscribers = new CopyOnWriteArrayList<>();
+
+    private volatile int yearMonth;
+    private volatile boolean stale = true;
+    private volatile List<LoyaltyTopResponse> top = List.of();
+    private volatile long lastReloadNanos;
+    private List<LoyaltyTopResponse> published = List.of();
+
+    public LoyaltyLeaderboardServiceImpl(LoyaltyMonthlyTotalRepository loyaltyMonthlyTotalRepository,
+                                         @Value("${app.loyalty.leaderboard.size:10}") int size,
+                                         @Value("${app.loyalty.leaderboard.sync-interval-ms:15000}") long syncIntervalMs) {
+        this.loyaltyMonthlyTotalRepository = loyaltyMonthlyTotalRepository;
+        this.size = size;
+        this.syncIntervalNanos = Duration.ofMillis(syncIntervalMs).toNanos();
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        reload();
+    }
+
+    @Override
+    public List<LoyaltyTopResponse> getLeaderboard() {
+        return top;
+    }
+
+    @Override
+    public SseEmitter subscribe() {
+        SseEmitter emitter = new SseEmitter(SSE_TIMEOUT_MS);
+        subscribers.add(emitter);
+        Runnable remove = () -> subscribers.remove(emitter);
+        emitter.onCompletion(remove);
+        emitter.onTimeout(remove);
+        emitter.onError(e -> remove.run());
+        try {
+            emitter.send(SseEmitter.event().name("leaderboard").data(top));
+        } catch (IOException | IllegalStateException e) {
+            subscribers.remove(emitter);
+        }
+        return emitter;
+    }
+
+    @Override
+    public void refresh(Collection<UUID> userIds) {
+        if (userIds.isEmpty()) {
+            return;
+        }
+        int current = LoyaltyMonthlyTotal.yearMonthOf(LocalDateTime.now());
+        if (stale || current != yearMonth) {
+            // Bảng sẽ được dựng lại toàn bộ ở lần publish kế tiếp, bao gồm cả các user này
+            stale = true;
+            return;
+        }
+        try {
+            List<Object[]> rows = loyaltyMonthlyTotalRepository.findByMonthAndUserIdIn(current, userIds);
+            synchronized (this) {
+                if (yearMonth != current) {
+                    return;
+                }
+                rows.forEach(row -> put(toResponse(row)));
+                top = computeTop();
+            }
+        } catch (DataAccessException e) {
+            log.warn("Loyalty leaderboard refresh failed, scheduling full reload: {}", e.getMessage());
+            stale = true;
+        }
+    }
+
+    /**
+     * Chỉ cần top-K làm nền: user ngoài top được thêm vào khi refresh đọc lại tổng mới của họ
+     */
+    @Override
+    public void reload() {
+        int current = LoyaltyMonthlyTotal.yearMonthOf(LocalDateTime.now());
+        List<Object[]> rows = loyaltyMonthlyTotalRepository.findTopByMonth(current, size);
+        synchronized (this) {
+            entries.clear();
+            ranking.clear();
+            rows.forEach(row -> put(toResponse(row)));
+            yearMonth = current;
+            top = computeTop();
+            stale = false;
+            lastReloadNanos = System.nanoTime();
+        }
+        log.debug("Loyalty leaderboard for {} rebuilt from top {} monthly totals", current, rows.size());
+    }
+
+    @Override
+    public void publishChanges() {
+        if (stale || LoyaltyMonthlyTotal.yearMonthOf(LocalDateTime.now()) != yearMonth
+                || System.nanoTime() - lastReloadNanos >= syncIntervalNanos) {
+            reload();
+        }
+        List<LoyaltyTopResponse> current = top;
+        if (current.equals(published)) {
+            return;
+        }
+        published = current;
+        for (SseEmitter emitter : subscribers) {
+            try {
+                emitter.send(SseEmitter.event().name("leaderboard").data(current));
+            } catch (IOException | IllegalStateException e) {
+                subscribers.remove(emitter);
+            }
+        }
+    }
+
+    /**
+     * Điểm và số lượt trong tháng chỉ tăng, nên bỏ qua bản đọc cũ hơn bản đang giữ
+     * (hai lần refresh chạy song song có thể áp dụng lệch thứ tự)
+     */
+    private void put(LoyaltyTopResponse entry) {
+        LoyaltyTopResponse old = entries.get(entry.getUserId());
+        if (old != null) {
+            if (entry.getTotalPoints() < old.getTotalPoints() || activityOf(entry) < activityOf(old)) {
+                return;
+            }
+            ranking.remove(old);
+        }
+        entries.put(entry.getUserId(), entry);
+        if (entry.getTotalPoints() > 0) {
+            ranking.add(entry);
+        }
+    }
+
+    private List<LoyaltyTopResponse> computeTop() {
+        return ranking.stream().limit(size).toList();
+    }
+
+    private static int activityOf(LoyaltyTopResponse entry) {
+        return entry.getBorrowCount() + entry.getReturnCount() + entry.getDonationCount();
+    }
+
+    private static LoyaltyTopResponse toResponse(Object[] row) {
+        return new LoyaltyTopResponse(
+                (UUID) row[0],
+                (String) row[1],
+                (String) row[2],
+                ((Number) row[3]).intValue(),
+                ((Number) row[4]).intValue(),
+                ((Number) row[5]).intValue(),
+                ((Number) row[6]).intValue());
+    }
+}
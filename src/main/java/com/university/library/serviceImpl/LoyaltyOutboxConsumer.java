@@ -0,0 +1,66 @@
+package com.university.library.serviceImpl;
+
+import com.university.library.dto.request.loyalty.LoyaltyRequest;
+import com.university.library.dto.response.event.DomainEvent;
+import com.university.library.entity.User;
+import com.university.library.repository.UserRepository;
+import com.university.library.service.LoyaltyService;
+import com.university.library.service.OutboxEventConsumer;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+/**
+ * Cộng/trừ điểm loyalty cho các sự kiện có loyaltyAction. Chạy chung transaction với relay nên
+ * điểm và cờ processed_at được ghi cùng lúc, không bị cộng trùng
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class LoyaltyOutboxConsumer implements OutboxEventConsumer {
+
+    private final LoyaltyService loyaltyService;
+    private final UserRepository userRepository;
+
+    @Override
+    public String getName() {
+        return "loyalty";
+    }
+
+    @Override
+    public void handle(List<DomainEvent> events) {
+        List<DomainEvent> rewarding = events.stream()
+                .filter(e -> e.getLoyaltyAction() != null)
+                .toList();
+        if (rewarding.isEmpty()) {
+            return;
+        }
+
+        Set<String> accounts = rewarding.stream()
+                .filter(e -> e.getUserId() == null)
+                .map(DomainEvent::getCompanyAccount)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toSet());
+        Map<String, UUID> userIds = accounts.isEmpty() ? Map.of() : userRepository.findByCompanyAccountIn(accounts)
+                .stream()
+                .collect(Collectors.toMap(User::getCompanyAccount, User::getUserId, (a, b) -> a));
+
+        List<LoyaltyRequest> requests = rewarding.stream()
+                .map(e -> LoyaltyRequest.builder()
+                        .bookId(e.getBookId())
+                        .bookCopyId(e.getBookCopyId())
+                        .loyaltyAction(e.getLoyaltyAction())
+                        .userId(e.getUserId() != null ? e.getUserId() : userIds.get(e.getCompanyAccount()))
+                        .build())
+                .filter(r -> r.getUserId() != null)
+                .toList();
+        loyaltyService.updateLoyaltyPoints(requests);
+    }
+}
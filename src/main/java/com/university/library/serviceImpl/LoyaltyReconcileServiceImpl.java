@@ -0,0 +1,129 @@
+package com.university.library.serviceImpl;
+
+import com.university.library.dto.response.loyalty.LoyaltyReconcileResponse;
+import com.university.library.service.LoyaltyReconcileService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+@Slf4j
+@Service
+public class LoyaltyReconcileServiceImpl implements LoyaltyReconcileService {
+
+    private static final int MAX_SAMPLES = 20;
+
+    // Ledger gồm phần đã bị retention xoá (loyalty_carried_balances) cộng loyalty_history còn lại
+    private static final String DRIFT_SQL = """
+            SELECT user_id, balance, ledger
+            FROM (
+                SELECT a.user_id,
+                       COALESCE(a.loyalty_points, 0) AS balance,
+                       COALESCE(cb.points, 0) + COALESCE(SUM(lh.loyalty_point), 0) AS ledger
+                FROM accounts a
+                LEFT JOIN loyalty_carried_balances cb ON cb.user_id = a.user_id
+                LEFT JOIN loyalty_history lh ON lh.user_id = a.user_id
+                WHERE a.user_id IN (:userIds)
+                GROUP BY a.user_id, a.loyalty_points, cb.points
+            ) t
+            WHERE balance <> ledger
+            """;
+
+    // Chỉ ghi khi số dư vẫn bằng giá trị đã đọc, tránh ghi đè điểm vừa được cộng bởi relay
+    private static final String FIX_SQL = """
+            UPDATE accounts SET loyalty_points = :ledger
+            WHERE user_id = :userId AND COALESCE(loyalty_points, 0) = :balance
+            """;
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+    private final int chunkSize;
+    private final int parallelism;
+    private final boolean fix;
+
+    public LoyaltyReconcileServiceImpl(NamedParameterJdbcTemplate jdbcTemplate,
+                                       @Value("${app.loyalty.reconcile.chunk-size:1000}") int chunkSize,
+                                       @Value("${app.loyalty.reconcile.parallelism:4}") int parallelism,
+                                       @Value("${app.loyalty.reconcile.fix:false}") boolean fix) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.chunkSize = chunkSize;
+        this.parallelism = parallelism;
+        this.fix = fix;
+    }
+
+    /**
+     * Mỗi chunk là một câu lệnh riêng (snapshot riêng) chạy trên pool nhỏ, không giữ transaction dài
+     */
+    @Override
+    public LoyaltyReconcileResponse reconcile() {
+        List<UUID> userIds = jdbcTemplate.getJdbcTemplate()
+                .queryForList("SELECT user_id FROM accounts ORDER BY user_id", UUID.class);
+
+        List<LoyaltyReconcileResponse.Drift> drifts = new ArrayList<>();
+        int corrected = 0;
+        ExecutorService executor = Executors.newFixedThreadPool(parallelism);
+        try {
+            List<CompletableFuture<ChunkResult>> futures = new ArrayList<>();
+            for (int from = 0; from < userIds.size(); from += chunkSize) {
+                List<UUID> chunk = userIds.subList(from, Math.min(from + chunkSize, userIds.size()));
+                futures.add(CompletableFuture.supplyAsync(() -> reconcileChunk(chunk), executor));
+            }
+            for (CompletableFuture<ChunkResult> future : futures) {
+                ChunkResult result = future.join();
+                drifts.addAll(result.drifts());
+                corrected += result.corrected();
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        long totalDrift = drifts.stream().mapToLong(d -> Math.abs((long) d.getBalance() - d.getLedger())).sum();
+        if (drifts.isEmpty()) {
+            log.info("Loyalty reconcile: {} users checked, no drift", userIds.size());
+        } else {
+            log.warn("Loyalty reconcile: {} of {} users drifted (total {} points), {} corrected",
+                    drifts.size(), userIds.size(), totalDrift, corrected);
+        }
+        return LoyaltyReconcileResponse.builder()
+                .usersChecked(userIds.size())
+                .driftedUsers(drifts.size())
+                .totalDrift(totalDrift)
+                .corrected(corrected)
+                .samples(drifts.stream().limit(MAX_SAMPLES).toList())
+                .build();
+    }
+
+    private ChunkResult reconcileChunk(List<UUID> userIds) {
+        List<LoyaltyReconcileResponse.Drift> drifts = jdbcTemplate.query(DRIFT_SQL,
+                new MapSqlParameterSource("userIds", userIds),
+                (rs, rowNum) -> new LoyaltyReconcileResponse.Drift(
+                        rs.getObject("user_id", UUID.class),
+                        rs.getInt("balance"),
+                        rs.getInt("ledger")));
+        if (!fix || drifts.isEmpty()) {
+            return new ChunkResult(drifts, 0);
+        }
+
+        MapSqlParameterSource[] params = drifts.stream()
+                .map(d -> new MapSqlParameterSource()
+                        .addValue("userId", d.getUserId())
+                        .addValue("balance", d.getBalance())
+                        .addValue("ledger", d.getLedger()))
+                .toArray(MapSqlParameterSource[]::new);
+        int corrected = 0;
+        for (int updated : jdbcTemplate.batchUpdate(FIX_SQL, params)) {
+            corrected += Math.max(updated, 0);
+        }
+        return new ChunkResult(drifts, corrected);
+    }
+
+    private record ChunkResult(List<LoyaltyReconcileResponse.Drift> drifts, int corrected) {
+    }
+}
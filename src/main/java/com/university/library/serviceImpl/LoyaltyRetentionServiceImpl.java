@@ -0,0 +1,155 @@
+package com.university.library.serviceImpl;
+
+import com.university.library.dto.response.loyalty.LoyaltyRetentionResponse;
+import com.university.library.service.LoyaltyRetentionService;
+import com.university.library.service.LoyaltyRollupService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.List;
+import java.util.UUID;
+
+@Slf4j
+@Service
+public class LoyaltyRetentionServiceImpl implements LoyaltyRetentionService {
+
+    private static final UUID MIN_UUID = new UUID(0L, 0L);
+
+    /**
+     * Một câu lệnh cho mỗi chunk: xoá theo thứ tự (created_at, id) sau con trỏ, cộng phần bị xoá vào
+     * loyalty_carried_balances và trả về khoá cuối cùng làm con trỏ cho chunk sau
+     */
+    private static final String PURGE_CHUNK_SQL = """
+            WITH doomed AS (
+                SELECT loyalty_history_id
+                FROM loyalty_history
+                WHERE created_at < :cutoff
+                  AND (created_at, loyalty_history_id) > (:afterCreatedAt, :afterId)
+                ORDER BY created_at, loyalty_history_id
+                LIMIT :limit
+            ), deleted AS (
+                DELETE FROM loyalty_history lh
+                USING doomed d
+                WHERE lh.loyalty_history_id = d.loyalty_history_id
+                RETURNING lh.loyalty_history_id, lh.user_id, lh.loyalty_point, lh.created_at
+            ), carried AS (
+                INSERT INTO loyalty_carried_balances (user_id, points, archived_rows, archived_through, updated_at)
+                SELECT user_id, SUM(loyalty_point), COUNT(*), MAX(created_at), :now
+                FROM deleted
+                GROUP BY user_id
+                ON CONFLICT (user_id) DO UPDATE SET
+                    points = loyalty_carried_balances.points + EXCLUDED.points,
+                    archived_rows = loyalty_carried_balances.archived_rows + EXCLUDED.archived_rows,
+                    archived_through = GREATEST(loyalty_carried_balances.archived_through, EXCLUDED.archived_through),
+                    updated_at = EXCLUDED.updated_at
+            )
+            SELECT created_at, loyalty_history_id, (SELECT COUNT(*) FROM deleted) AS deleted
+            FROM deleted
+            ORDER BY created_at DESC, loyalty_history_id DESC
+            LIMIT 1
+            """;
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+    private final LoyaltyRollupService loyaltyRollupService;
+    private final int retainMonths;
+    private final int chunkSize;
+    private final long pauseMs;
+    private final Duration maxRuntime;
+
+    public LoyaltyRetentionServiceImpl(NamedParameterJdbcTemplate jdbcTemplate,
+                                       LoyaltyRollupService loyaltyRollupService,
+                                       @Value("${app.loyalty.retention.retain-months:6}") int retainMonths,
+                                       @Value("${app.loyalty.retention.chunk-size:5000}") int chunkSize,
+                                       @Value("${app.loyalty.retention.pause-ms:200}") long pauseMs,
+                                       @Value("${app.loyalty.retention.max-runtime-minutes:30}") long maxRuntimeMinutes) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.loyaltyRollupService = loyaltyRollupService;
+        this.retainMonths = retainMonths;
+        this.chunkSize = chunkSize;
+        this.pauseMs = pauseMs;
+        this.maxRuntime = Duration.ofMinutes(maxRuntimeMinutes);
+    }
+
+    /**
+     * Mốc xoá là đầu tháng để mỗi tháng được gộp trọn vẹn trước khi mất dữ liệu chi tiết.
+     * Mỗi chunk tự commit (lock ngắn, không đụng dòng mới do circulation ghi), nghỉ pauseMs giữa các chunk
+     * cho replication/autovacuum theo kịp và dừng khi vượt maxRuntime
+     */
+    @Override
+    public LoyaltyRetentionResponse purgeExpiredHistory() {
+        long started = System.nanoTime();
+        YearMonth firstRetained = YearMonth.now().minusMonths(retainMonths);
+        LocalDateTime cutoff = firstRetained.atDay(1).atStartOfDay();
+
+        LocalDateTime oldest = jdbcTemplate.getJdbcTemplate().queryForObject(
+                "SELECT MIN(created_at) FROM loyalty_history WHERE created_at < ?", LocalDateTime.class, cutoff);
+        if (oldest == null) {
+            log.info("Loyalty retention: nothing older than {}", cutoff);
+            return LoyaltyRetentionResponse.builder().cutoff(cutoff).completed(true).build();
+        }
+
+        // Dựng lại tổng tháng từ chi tiết trước khi xoá; backfill tự bỏ qua các tháng đã bị xoá ở lần chạy trước
+        int rolledUp = loyaltyRollupService.backfill(YearMonth.from(oldest), firstRetained.minusMonths(1));
+
+        LocalDateTime afterCreatedAt = oldest.minusSeconds(1);
+        UUID afterId = MIN_UUID;
+        long deleted = 0;
+        int chunks = 0;
+        boolean completed = false;
+        while (true) {
+            List<ChunkResult> rows = jdbcTemplate.query(PURGE_CHUNK_SQL, new MapSqlParameterSource()
+                            .addValue("cutoff", cutoff)
+                            .addValue("afterCreatedAt", afterCreatedAt)
+                            .addValue("afterId", afterId)
+                            .addValue("limit", chunkSize)
+                            .addValue("now", LocalDateTime.now()),
+                    (rs, rowNum) -> new ChunkResult(
+                            rs.getObject("created_at", LocalDateTime.class),
+                            rs.getObject("loyalty_history_id", UUID.class),
+                            rs.getLong("deleted")));
+            if (rows.isEmpty()) {
+                completed = true;
+                break;
+            }
+            ChunkResult last = rows.get(0);
+            deleted += last.deleted();
+            chunks++;
+            afterCreatedAt = last.createdAt();
+            afterId = last.loyaltyHistoryId();
+
+            if (Duration.ofNanos(System.nanoTime() - started).compareTo(maxRuntime) > 0) {
+                log.warn("Loyalty retention stopped after {} chunks: exceeded {}", chunks, maxRuntime);
+                break;
+            }
+            try {
+                Thread.sleep(pauseMs);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+
+        long elapsedMs = Duration.ofNanos(System.nanoTime() - started).toMillis();
+        double rowsPerSecond = elapsedMs > 0 ? deleted * 1000.0 / elapsedMs : deleted;
+        log.info("Loyalty retention: deleted {} rows before {} in {} chunks, {} ms ({} rows/s), {} monthly totals rolled up",
+                deleted, cutoff, chunks, elapsedMs, String.format("%.1f", rowsPerSecond), rolledUp);
+        return LoyaltyRetentionResponse.builder()
+                .cutoff(cutoff)
+                .rolledUpTotals(rolledUp)
+                .deletedRows(deleted)
+                .chunks(chunks)
+                .elapsedMs(elapsedMs)
+                .rowsPerSecond(rowsPerSecond)
+                .completed(completed)
+                .build();
+    }
+
+    private record ChunkResult(LocalDateTime createdAt, UUID loyaltyHistoryId, long deleted) {
+    }
+}
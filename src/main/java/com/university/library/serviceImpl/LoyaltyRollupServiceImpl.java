@@ -0,0 +1,96 @@
+package com.university.library.serviceImpl;
+
+import com.university.library.entity.LoyaltyMonthlyTotal;
+import com.university.library.repository.LoyaltyMonthlyTotalRepository;
+import com.university.library.service.LoyaltyLeaderboardService;
+import com.university.library.service.LoyaltyRollupService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+
+@Slf4j
+@Service
+public class LoyaltyRollupServiceImpl implements LoyaltyRollupService {
+
+    private final LoyaltyMonthlyTotalRepository loyaltyMonthlyTotalRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final LoyaltyLeaderboardService loyaltyLeaderboardService;
+
+    public LoyaltyRollupServiceImpl(LoyaltyMonthlyTotalRepository loyaltyMonthlyTotalRepository,
+                                    JdbcTemplate jdbcTemplate,
+                                    PlatformTransactionManager transactionManager,
+                                    LoyaltyLeaderboardService loyaltyLeaderboardService) {
+        this.loyaltyMonthlyTotalRepository = loyaltyMonthlyTotalRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.loyaltyLeaderboardService = loyaltyLeaderboardService;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    /**
+     * Lần đầu chạy với bảng tổng rỗng: dựng lại toàn bộ các tháng đã có lịch sử
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfillIfEmpty() {
+        if (loyaltyMonthlyTotalRepository.count() > 0) {
+            return;
+        }
+        LocalDateTime first = jdbcTemplate.queryForObject("SELECT MIN(created_at) FROM loyalty_history",
+                LocalDateTime.class);
+        if (first == null) {
+            return;
+        }
+        backfill(YearMonth.from(first), YearMonth.now());
+    }
+
+    /**
+     * Các tháng đến hết tháng chứa archived_through đã bị retention xoá (một phần) khỏi loyalty_history,
+     * dựng lại từ chi tiết sẽ làm mất tổng nên chỉ bắt đầu từ tháng sau đó.
+     * Tháng hiện tại (và tháng trước, cho các transaction vắt qua mốc đầu tháng) vẫn đang được ghi:
+     * khoá SHARE trên loyalty_history chờ các transaction cộng điểm đang chạy commit rồi chặn transaction mới
+     * tới khi dựng xong, nên tổng dựng lại khớp lịch sử và không bị cộng trùng hay mất lượt
+     */
+    @Override
+    public int backfill(YearMonth from, YearMonth to) {
+        LocalDateTime purgedThrough = jdbcTemplate.queryForObject(
+                "SELECT MAX(archived_through) FROM loyalty_carried_balances", LocalDateTime.class);
+        if (purgedThrough != null && !from.isAfter(YearMonth.from(purgedThrough))) {
+            YearMonth firstIntact = YearMonth.from(purgedThrough).plusMonths(1);
+            log.warn("Loyalty rollup backfill from {} clamped to {}: history purged through {}",
+                    from, firstIntact, purgedThrough);
+            from = firstIntact;
+        }
+        int written = 0;
+        YearMonth lastClosed = YearMonth.now().minusMonths(2);
+        for (YearMonth month = from; !month.isAfter(to); month = month.plusMonths(1)) {
+            YearMonth current = month;
+            int yearMonth = LoyaltyMonthlyTotal.yearMonthOf(current.getYear(), current.getMonthValue());
+            boolean live = current.isAfter(lastClosed);
+            Integer rows = transactionTemplate.execute(status -> {
+                if (live) {
+                    jdbcTemplate.execute("LOCK TABLE loyalty_history IN SHARE MODE");
+                }
+                loyaltyMonthlyTotalRepository.deleteByYearMonth(yearMonth);
+                return loyaltyMonthlyTotalRepository.rebuildMonth(yearMonth,
+                        current.atDay(1).atStartOfDay(),
+                        current.plusMonths(1).atDay(1).atStartOfDay(),
+                        LocalDateTime.now());
+            });
+            written += rows != null ? rows : 0;
+        }
+        log.info("Loyalty rollup backfill {} -> {}: {} monthly totals written", from, to, written);
+        YearMonth now = YearMonth.now();
+        if (!from.isAfter(now) && !to.isBefore(now)) {
+            // Tháng hiện tại vừa được dựng lại, bảng xếp hạng trong bộ nhớ phải đọc lại theo
+            loyaltyLeaderboardService.reload();
+        }
+        return written;
+    }
+}
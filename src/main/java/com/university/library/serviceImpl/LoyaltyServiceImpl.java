@@ -7,20 +7,34 @@ import com.university.library.dto.response.loyalty.LoyaltyTopResponse;
 import com.university.library.entity.Book;
 import com.university.library.entity.BookCopy;
 import com.university.library.entity.LoyaltyHistory;
+import com.university.library.entity.LoyaltyMonthlyTotal;
 import com.university.library.entity.User;
 import com.university.library.repository.BookCopyRepository;
 import com.university.library.repository.BookRepository;
 import com.university.library.repository.LoyaltyHistoryRepository;
+import com.university.library.repository.LoyaltyMonthlyTotalRepository;
 import com.university.library.repository.UserRepository;
+import com.university.library.service.LoyaltyLeaderboardService;
 import com.university.library.service.LoyaltyService;
+import com.university.library.utils.TransactionCallbacks;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
 import java.util.UUID;
+import java.util.stream.Collectors;
 @Slf4j
 @Service
 @RequiredArgsConstructor
@@ -29,11 +43,28 @@ public class LoyaltyServiceImpl implements LoyaltyService {
     private final LoyaltyHistoryRepository loyaltyHistoryRepository;
     private final BookCopyRepository bookCopyRepository;
    private final BookRepository bookRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final LoyaltyMonthlyTotalRepository loyaltyMonthlyTotalRepository;
+    private final LoyaltyLeaderboardService loyaltyLeaderboardService;
+
+    private static final int TOP_LIMIT = 5;
+
+    private static final String MONTHLY_TOTAL_UPSERT = """
+            INSERT INTO loyalty_monthly_totals (user_id, year_month, campus_id, department, points,
+                                                borrow_count, return_count, donation_count, updated_at)
+            VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)
+            ON CONFLICT (user_id, year_month) DO UPDATE SET
+                campus_id = EXCLUDED.campus_id,
+                department = EXCLUDED.department,
+                points = loyalty_monthly_totals.points + EXCLUDED.points,
+                borrow_count = loyalty_monthly_totals.borrow_count + EXCLUDED.borrow_count,
+                return_count = loyalty_monthly_totals.return_count + EXCLUDED.return_count,
+                donation_count = loyalty_monthly_totals.donation_count + EXCLUDED.donation_count,
+                updated_at = EXCLUDED.updated_at
+            """;
     @Override
     @Transactional
     public LoyaltyHistoryResponse updateLoyaltyPoint(LoyaltyRequest request) {
-        int points;
-        String note;
         User user = userRepository.findById(request.getUserId())
                 .orElseThrow(() -> new RuntimeException("User not found with id: " + request.getUserId()));
 
@@ -56,7 +87,72 @@ public class LoyaltyServiceImpl implements LoyaltyService {
         }
         log.info("Updating loyalty for user: {} , action: {}", user.getUsername(), request.getLoyaltyAction());
 
-        switch (request.getLoyaltyAction()) {
+        LoyaltyHistory history = buildLoyaltyHistory(user, request.getLoyaltyAction(), title);
+        LoyaltyHistory saved = loyaltyHistoryRepository.save(history);
+        userRepository.addLoyaltyPoints(user.getUserId(), history.getLoyaltyPoint());
+        applyMonthlyTotals(List.of(saved));
+
+        log.info("User {} received {} points", user.getUsername(), history.getLoyaltyPoint());
+        return LoyaltyHistoryResponse.fromEntity(saved);
+    }
+
+    /**
+     * Cộng/trừ điểm cho nhiều request trong một transaction: user và bản sao được nạp bằng truy vấn IN,
+     * lịch sử được insert theo JDBC batch, số dư cộng dồn bằng UPDATE ... + delta cho mỗi user
+     * (dùng cho các job quét định kỳ và outbox relay)
+     */
+    @Override
+    @Transactional
+    public int updateLoyaltyPoints(List<LoyaltyRequest> requests) {
+        if (requests == null || requests.isEmpty()) {
+            return 0;
+        }
+        Map<UUID, User> users = userRepository.findAllById(requests.stream()
+                        .map(LoyaltyRequest::getUserId)
+                        .collect(Collectors.toSet()))
+                .stream()
+                .collect(Collectors.toMap(User::getUserId, u -> u));
+        Map<UUID, BookCopy> bookCopies = bookCopyRepository.findWithBookAndCampusByBookCopyIdIn(requests.stream()
+                        .map(LoyaltyRequest::getBookCopyId)
+                        .filter(Objects::nonNull)
+                        .collect(Collectors.toSet()))
+                .stream()
+                .collect(Collectors.toMap(BookCopy::getBookCopyId, bc -> bc));
+        Map<UUID, Book> books = bookRepository.findAllById(requests.stream()
+                        .filter(r -> r.getBookCopyId() == null)
+                        .map(LoyaltyRequest::getBookId)
+                        .filter(Objects::nonNull)
+                        .collect(Collectors.toSet()))
+                .stream()
+                .collect(Collectors.toMap(Book::getBookId, book -> book));
+
+        List<LoyaltyHistory> histories = new ArrayList<>();
+        Map<UUID, Integer> deltas = new TreeMap<>();
+        for (LoyaltyRequest request : requests) {
+            User user = users.get(request.getUserId());
+            if (user == null) {
+                log.warn("Skip loyalty {}: user {} not found", request.getLoyaltyAction(), request.getUserId());
+                continue;
+            }
+            BookCopy bookCopy = bookCopies.get(request.getBookCopyId());
+            Book book = bookCopy != null ? bookCopy.getBook() : books.get(request.getBookId());
+            String title = book != null ? book.getTitle() : null;
+            LoyaltyHistory history = buildLoyaltyHistory(user, request.getLoyaltyAction(), title);
+            deltas.merge(user.getUserId(), history.getLoyaltyPoint(), Integer::sum);
+            histories.add(history);
+        }
+
+        loyaltyHistoryRepository.saveAll(histories);
+        applyBalanceDeltas(deltas);
+        applyMonthlyTotals(histories);
+        log.info("Applied {} loyalty updates in bulk", histories.size());
+        return histories.size();
+    }
+
+    private LoyaltyHistory buildLoyaltyHistory(User user, LoyaltyHistory.LoyaltyAction action, String title) {
+        int points;
+        String note;
+        switch (action) {
             case BORROWED :
                 points = 5;
                 note = user.getFullName() + " borrowed a book: " + title;
@@ -82,14 +178,10 @@ public class LoyaltyServiceImpl implements LoyaltyService {
                 note =  user.getFullName() + " donated a book: " + title;
                 break;
             default:
-                throw new IllegalArgumentException("Invalid loyalty action: " + request.getLoyaltyAction());
+                throw new IllegalArgumentException("Invalid loyalty action: " + action);
         }
 
-        LoyaltyHistory history = createLoyaltyHistory(user, request.getLoyaltyAction(), points, note);
-        updateUserPoints(user, points);
-
-        log.info("User {}  has {} points", user.getUsername(), user.getTotalLoyaltyPoints());
-        return LoyaltyHistoryResponse.fromEntity(loyaltyHistoryRepository.save(history));
+        return createLoyaltyHistory(user, action, points, note);
     }
 
     private LoyaltyHistory createLoyaltyHistory(User user, LoyaltyHistory.LoyaltyAction action, int points, String note) {
@@ -101,27 +193,84 @@ public class LoyaltyServiceImpl implements LoyaltyService {
         return history;
     }
 
-    private void updateUserPoints(User user, int points) {
-        if (user.getTotalLoyaltyPoints() == null) {
-            user.setTotalLoyaltyPoints(0);
+    /**
+     * Cộng số dư trực tiếp trong DB thay vì đọc-cộng-ghi cả entity User, nên hai giao dịch đồng thời
+     * không ghi đè nhau. Sắp theo userId để các relay chạy song song khóa dòng theo cùng thứ tự
+     */
+    private void applyBalanceDeltas(Map<UUID, Integer> deltas) {
+        List<Object[]> args = deltas.entrySet().stream()
+                .filter(e -> e.getValue() != 0)
+                .map(e -> new Object[]{e.getValue(), e.getKey()})
+                .toList();
+        if (args.isEmpty()) {
+            return;
         }
-        user.setTotalLoyaltyPoints(user.getTotalLoyaltyPoints() + points);
-        userRepository.save(user);
+        jdbcTemplate.batchUpdate(
+                "UPDATE accounts SET loyalty_points = COALESCE(loyalty_points, 0) + ? WHERE user_id = ?", args);
     }
 
-// service cho viết xóa log 6 tháng 1 lần xóa toàn bộ log về điểm
-//
-//    @Override
-//    @Transactional
-//    public void deleteOldLoyaltyHistories() {
-//        LocalDateTime sixMonths = LocalDateTime.now().minusMonths(6);
-//        int deletedLoyaltyHistory= loyaltyHistoryRepository.deleteByCreatedAtBefore(sixMonths);
-//        log.info("Deleted loyalty history for user with quantity: {}", deletedLoyaltyHistory);
-//    }
+    /**
+     * Cộng dồn vào loyalty_monthly_totals theo (user, tháng) trong cùng transaction với lịch sử.
+     * Gom trước theo khóa để mỗi cặp chỉ một câu upsert, sắp theo khóa để thứ tự khóa dòng ổn định
+     */
+    private void applyMonthlyTotals(List<LoyaltyHistory> histories) {
+        Map<LoyaltyMonthlyTotal.Key, LoyaltyMonthlyTotal> totals = new HashMap<>();
+        LocalDateTime now = LocalDateTime.now();
+        for (LoyaltyHistory history : histories) {
+            User user = history.getUser();
+            LocalDateTime createdAt = history.getCreatedAt() != null ? history.getCreatedAt() : now;
+            LoyaltyMonthlyTotal total = totals.computeIfAbsent(
+                    new LoyaltyMonthlyTotal.Key(user.getUserId(), LoyaltyMonthlyTotal.yearMonthOf(createdAt)),
+                    key -> LoyaltyMonthlyTotal.builder()
+                            .userId(key.getUserId())
+                            .yearMonth(key.getYearMonth())
+                            .campusId(user.getCampus() != null ? user.getCampus().getCampusId() : null)
+                            .department(user.getDepartment())
+                            .points(0)
+                            .borrowCount(0)
+                            .returnCount(0)
+                            .donationCount(0)
+                            .build());
+            total.setPoints(total.getPoints() + Math.max(history.getLoyaltyPoint(), 0));
+            switch (history.getAction()) {
+                case BORROWED -> total.setBorrowCount(total.getBorrowCount() + 1);
+                case RETURNED -> total.setReturnCount(total.getReturnCount() + 1);
+                case DONATE_BOOK -> total.setDonationCount(total.getDonationCount() + 1);
+                default -> {
+                }
+            }
+        }
+
+        List<Object[]> args = totals.values().stream()
+                .sorted(Comparator.comparing(LoyaltyMonthlyTotal::getUserId)
+                        .thenComparing(LoyaltyMonthlyTotal::getYearMonth))
+                .map(t -> new Object[]{t.getUserId(), t.getYearMonth(), t.getCampusId(), t.getDepartment(),
+                        t.getPoints(), t.getBorrowCount(), t.getReturnCount(), t.getDonationCount(), now})
+                .toList();
+        if (!args.isEmpty()) {
+            jdbcTemplate.batchUpdate(MONTHLY_TOTAL_UPSERT, args);
+        }
+
+        int currentMonth = LoyaltyMonthlyTotal.yearMonthOf(now);
+        Set<UUID> changedUsers = totals.keySet().stream()
+                .filter(key -> key.getYearMonth() == currentMonth)
+                .map(LoyaltyMonthlyTotal.Key::getUserId)
+                .collect(Collectors.toSet());
+        TransactionCallbacks.afterCommit(() -> loyaltyLeaderboardService.refresh(changedUsers));
+    }
 
     @Override
-    public List<LoyaltyTopResponse> getTop5LoyaltyUsersByMonth(int month, int year) {
-        List<Object[]> results = loyaltyHistoryRepository.findTopUsersByMonth(month, year);
+    public List<LoyaltyTopResponse> getTop5LoyaltyUsersByMonth(int month, int year, UUID campusId, String department) {
+        // Đọc bảng tổng theo tháng theo thứ tự index thay vì gom cả tháng loyalty_history mỗi lần gọi
+        int yearMonth = LoyaltyMonthlyTotal.yearMonthOf(year, month);
+        List<Object[]> results;
+        if (campusId != null) {
+            results = loyaltyMonthlyTotalRepository.findTopByMonthAndCampus(yearMonth, campusId, TOP_LIMIT);
+        } else if (department != null && !department.isBlank()) {
+            results = loyaltyMonthlyTotalRepository.findTopByMonthAndDepartment(yearMonth, department, TOP_LIMIT);
+        } else {
+            results = loyaltyMonthlyTotalRepository.findTopByMonth(yearMonth, TOP_LIMIT);
+        }
 
         return results.stream()
                 .map(obj -> new LoyaltyTopResponse(
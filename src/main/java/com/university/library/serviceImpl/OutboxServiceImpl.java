@@ -0,0 +1,208 @@
+package com.university.library.serviceImpl;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.university.library.dto.response.event.DomainEvent;
+import com.university.library.entity.OutboxEvent;
+import com.university.library.repository.OutboxEventRepository;
+import com.university.library.service.OutboxEventConsumer;
+import com.university.library.service.OutboxService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+
+@Slf4j
+@Service
+public class OutboxServiceImpl implements OutboxService {
+
+    private static final int MAX_ERROR_LENGTH = 1000;
+    /**
+     * Khóa advisory của relay: mỗi lô giữ ở chế độ shared, người chụp snapshot giữ exclusive
+     */
+    private static final long RELAY_LOCK_KEY = 0x6f7574626f78L;
+
+    private final OutboxEventRepository outboxEventRepository;
+    private final List<OutboxEventConsumer> consumers;
+    private final ObjectMapper objectMapper;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final int batchSize;
+    private final int maxAttempts;
+    private final int retentionDays;
+
+    public OutboxServiceImpl(OutboxEventRepository outboxEventRepository,
+                             List<OutboxEventConsumer> consumers,
+                             ObjectMapper objectMapper,
+                             JdbcTemplate jdbcTemplate,
+                             PlatformTransactionManager transactionManager,
+                             @Value("${app.outbox.batch-size:200}") int batchSize,
+                             @Value("${app.outbox.max-attempts:10}") int maxAttempts,
+                             @Value("${app.outbox.retention-days:7}") int retentionDays) {
+        this.outboxEventRepository = outboxEventRepository;
+        this.consumers = consumers;
+        this.objectMapper = objectMapper;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.batchSize = batchSize;
+        this.maxAttempts = maxAttempts;
+        this.retentionDays = retentionDays;
+    }
+
+    @Override
+    @Transactional
+    public void publish(DomainEvent event) {
+        if (event.getEventId() == null) {
+            event.setEventId(UUID.randomUUID());
+        }
+        if (event.getOccurredAt() == null) {
+            event.setOccurredAt(LocalDateTime.now());
+        }
+        try {
+            outboxEventRepository.save(OutboxEvent.builder()
+                    .eventType(event.getType())
+                    .aggregateId(event.getBookCopyId() != null ? event.getBookCopyId() : event.getBookId())
+                    .payload(objectMapper.writeValueAsString(event))
+                    .createdAt(event.getOccurredAt())
+                    .build());
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Cannot serialize domain event " + event.getType(), e);
+        }
+    }
+
+    /**
+     * Mỗi lô một transaction: khóa, gọi consumer, đánh dấu đã xử lý cùng lúc. Lô lỗi được tách ra xử lý
+     * từng sự kiện để một sự kiện hỏng không chặn cả hàng đợi
+     */
+    @Override
+    public int relay() {
+        int relayed = 0;
+        int drained;
+        do {
+            drained = drainBatch();
+            relayed += drained;
+        } while (drained == batchSize);
+
+        if (relayed > 0) {
+            log.debug("Outbox relay: {} events delivered", relayed);
+        }
+        return relayed;
+    }
+
+    @Override
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void pauseRelay() {
+        jdbcTemplate.execute("SELECT pg_advisory_xact_lock(" + RELAY_LOCK_KEY + ")");
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<DomainEvent> findPending(Collection<DomainEvent.EventType> types) {
+        return outboxEventRepository.findPending(types, maxAttempts).stream()
+                .map(this::toDomainEvent)
+                .toList();
+    }
+
+    @Override
+    @Transactional
+    public int purgeProcessed() {
+        int deleted = outboxEventRepository.deleteProcessedBefore(LocalDateTime.now().minusDays(retentionDays));
+        log.info("Outbox purge: deleted {} processed events", deleted);
+        return deleted;
+    }
+
+    private int drainBatch() {
+        try {
+            Integer count = transactionTemplate.execute(status -> {
+                holdRelayLock();
+                List<OutboxEvent> batch = outboxEventRepository.lockPending(batchSize, maxAttempts);
+                if (batch.isEmpty()) {
+                    return 0;
+                }
+                dispatch(batch);
+                outboxEventRepository.markProcessed(batch.stream().map(OutboxEvent::getEventId).toList(),
+                        LocalDateTime.now());
+                return batch.size();
+            });
+            return count != null ? count : 0;
+        } catch (Exception e) {
+            log.warn("Outbox batch failed, retrying events one by one: {}", e.getMessage());
+            return drainOneByOne();
+        }
+    }
+
+    /**
+     * Trả về số sự kiện thành công; có lỗi thì luôn nhỏ hơn batchSize nên relay dừng tới lượt sau
+     */
+    private int drainOneByOne() {
+        List<UUID> eventIds = transactionTemplate.execute(status ->
+                outboxEventRepository.lockPending(batchSize, maxAttempts).stream()
+                        .map(OutboxEvent::getEventId)
+                        .toList());
+        if (eventIds == null) {
+            return 0;
+        }
+
+        int delivered = 0;
+        for (UUID eventId : eventIds) {
+            try {
+                Boolean done = transactionTemplate.execute(status -> {
+                    holdRelayLock();
+                    List<OutboxEvent> event = outboxEventRepository.lockPendingById(eventId);
+                    if (event.isEmpty()) {
+                        return false;
+                    }
+                    dispatch(event);
+                    outboxEventRepository.markProcessed(List.of(eventId), LocalDateTime.now());
+                    return true;
+                });
+                if (Boolean.TRUE.equals(done)) {
+                    delivered++;
+                }
+            } catch (Exception e) {
+                log.error("Outbox event {} failed: {}", eventId, e.getMessage(), e);
+                String error = String.valueOf(e.getMessage());
+                transactionTemplate.executeWithoutResult(status -> outboxEventRepository.recordFailure(eventId,
+                        error.length() > MAX_ERROR_LENGTH ? error.substring(0, MAX_ERROR_LENGTH) : error));
+            }
+        }
+        return Math.min(delivered, batchSize - 1);
+    }
+
+    /**
+     * Các relay chạy song song với nhau, chỉ chờ khi có người đang giữ pauseRelay
+     */
+    private void holdRelayLock() {
+        jdbcTemplate.execute("SELECT pg_advisory_xact_lock_shared(" + RELAY_LOCK_KEY + ")");
+    }
+
+    private void dispatch(List<OutboxEvent> batch) {
+        List<DomainEvent> events = batch.stream().map(this::toDomainEvent).toList();
+        for (OutboxEventConsumer consumer : consumers) {
+            try {
+                consumer.handle(events);
+            } catch (RuntimeException e) {
+                throw e;
+            } catch (Exception e) {
+                throw new IllegalStateException("Consumer " + consumer.getName() + " failed: " + e.getMessage(), e);
+            }
+        }
+    }
+
+    private DomainEvent toDomainEvent(OutboxEvent outboxEvent) {
+        try {
+            return objectMapper.readValue(outboxEvent.getPayload(), DomainEvent.class);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Cannot read outbox event " + outboxEvent.getEventId(), e);
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package com.university.library.serviceImpl;
+
+import com.university.library.dto.request.loyalty.LoyaltyRequest;
+import com.university.library.dto.response.event.DomainEvent;
+import com.university.library.entity.Borrowing;
+import com.university.library.entity.LoyaltyHistory;
+import com.university.library.entity.User;
+import com.university.library.repository.BorrowingRepository;
+import com.university.library.repository.UserRepository;
+import com.university.library.service.LoyaltyService;
+import com.university.library.service.OutboxService;
+import com.university.library.service.OverdueSweepService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+@Slf4j
+@Service
+public class OverdueSweepServiceImpl implements OverdueSweepService {
+
+    private final BorrowingRepository borrowingRepository;
+    private final UserRepository userRepository;
+    private final LoyaltyService loyaltyService;
+    private final OutboxService outboxService;
+    private final TransactionTemplate transactionTemplate;
+    private final int chunkSize;
+
+    public OverdueSweepServiceImpl(BorrowingRepository borrowingRepository,
+                                   UserRepository userRepository,
+                                   LoyaltyService loyaltyService,
+                                   OutboxService outboxService,
+                                   PlatformTransactionManager transactionManager,
+                                   @Value("${app.overdue.chunk-size:500}") int chunkSize) {
+        this.borrowingRepository = borrowingRepository;
+        this.userRepository = userRepository;
+        this.loyaltyService = loyaltyService;
+        this.outboxService = outboxService;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * Mỗi chunk một transaction để lock ngắn; dòng đã đánh dấu không còn khớp điều kiện nên không cần cursor
+     */
+    @Override
+    public int sweep() {
+        LocalDateTime now = LocalDateTime.now();
+        int flagged = 0;
+        int size;
+        do {
+            size = transactionTemplate.execute(status -> flagChunk(now));
+            flagged += size;
+        } while (size == chunkSize);
+
+        Integer accrued = transactionTemplate.execute(status ->
+                borrowingRepository.accrueOverdueFines(now, Borrowing.DAILY_FINE, Borrowing.MAX_FINE_DAYS));
+        log.info("Overdue sweep: {} newly overdue, fines refreshed for {} borrowings", flagged, accrued);
+        return flagged;
+    }
+
+    /**
+     * Chỉ phạt điểm và phát sự kiện cho các dòng mà câu UPDATE thực sự chuyển cờ
+     */
+    private int flagChunk(LocalDateTime now) {
+        List<FlaggedBorrowing> chunk = borrowingRepository.flagNewlyOverdue(now, Borrowing.DAILY_FINE,
+                        Borrowing.MAX_FINE_DAYS, chunkSize)
+                .stream()
+                .map(row -> new FlaggedBorrowing((UUID) row[0], (String) row[1], (UUID) row[2]))
+                .toList();
+        if (chunk.isEmpty()) {
+            return 0;
+        }
+
+        Map<String, User> borrowers = userRepository.findByCompanyAccountIn(chunk.stream()
+                        .map(FlaggedBorrowing::companyAccount)
+                        .filter(Objects::nonNull)
+                        .collect(Collectors.toSet()))
+                .stream()
+                .collect(Collectors.toMap(User::getCompanyAccount, u -> u, (a, b) -> a));
+        List<LoyaltyRequest> penalties = chunk.stream()
+                .filter(b -> b.companyAccount() != null && borrowers.containsKey(b.companyAccount()))
+                .map(b -> LoyaltyRequest.builder()
+                        .bookCopyId(b.bookCopyId())
+                        .loyaltyAction(LoyaltyHistory.LoyaltyAction.OVERDUE)
+                        .userId(borrowers.get(b.companyAccount()).getUserId())
+                        .build())
+                .toList();
+        loyaltyService.updateLoyaltyPoints(penalties);
+
+        // Điểm phạt đã trừ trực tiếp ở trên, sự kiện chỉ phục vụ thống kê nên không mang loyaltyAction
+        chunk.forEach(b -> outboxService.publish(DomainEvent.builder()
+                .type(DomainEvent.EventType.BOOK_OVERDUE)
+                .companyAccount(b.companyAccount())
+                .bookCopyId(b.bookCopyId())
+                .borrowingId(b.borrowingId())
+                .build()));
+        return chunk.size();
+    }
+
+    private record FlaggedBorrowing(UUID borrowingId, String companyAccount, UUID bookCopyId) {
+    }
+}
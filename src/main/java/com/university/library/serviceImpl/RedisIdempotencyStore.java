@@ -0,0 +1,99 @@
+package com.university.library.serviceImpl;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.university.library.dto.response.idempotency.IdempotentResponse;
+import com.university.library.service.IdempotencyStore;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Dùng chung giữa các instance: SET NX giữ key trong lúc xử lý, sau đó ghi đè bằng response với TTL đầy đủ
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(prefix = "app.idempotency", name = "store", havingValue = "redis")
+public class RedisIdempotencyStore implements IdempotencyStore {
+
+    private static final String KEY_PREFIX = "idempotency:";
+    // Chỉ gia hạn khi giá trị vẫn là bản ghi đang xử lý, không rút ngắn TTL của response đã hoàn tất
+    private static final RedisScript<Long> RENEW_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('get', KEYS[1]) == ARGV[1] then return redis.call('pexpire', KEYS[1], ARGV[2]) end return 0",
+            Long.class);
+
+    private final StringRedisTemplate redisTemplate;
+    private final ObjectMapper objectMapper;
+    private final Duration ttl;
+    private final Duration lockTtl;
+
+    public RedisIdempotencyStore(StringRedisTemplate redisTemplate,
+                                 ObjectMapper objectMapper,
+                                 @Value("${app.idempotency.ttl-hours:24}") long ttlHours,
+                                 @Value("${app.idempotency.lock-seconds:60}") long lockSeconds) {
+        this.redisTemplate = redisTemplate;
+        this.objectMapper = objectMapper;
+        this.ttl = Duration.ofHours(ttlHours);
+        this.lockTtl = Duration.ofSeconds(lockSeconds);
+    }
+
+    @Override
+    public Optional<IdempotentResponse> reserve(String key, String fingerprint) {
+        String inProgressValue;
+        try {
+            inProgressValue = objectMapper.writeValueAsString(IdempotentResponse.inProgress(fingerprint));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Cannot serialize idempotency lock", e);
+        }
+        Boolean reserved = redisTemplate.opsForValue().setIfAbsent(KEY_PREFIX + key, inProgressValue, lockTtl);
+        if (Boolean.TRUE.equals(reserved)) {
+            return Optional.empty();
+        }
+        String stored = redisTemplate.opsForValue().get(KEY_PREFIX + key);
+        if (stored == null) {
+            // Key vừa hết hạn giữa hai lệnh, coi như đang xử lý để client thử lại sau
+            return Optional.of(IdempotentResponse.inProgress(null));
+        }
+        try {
+            return Optional.of(objectMapper.readValue(stored, IdempotentResponse.class));
+        } catch (JsonProcessingException e) {
+            log.warn("Discarding unreadable idempotency entry {}: {}", key, e.getMessage());
+            redisTemplate.delete(KEY_PREFIX + key);
+            return Optional.of(IdempotentResponse.inProgress(null));
+        }
+    }
+
+    @Override
+    public void renew(String key, String fingerprint) {
+        try {
+            redisTemplate.execute(RENEW_SCRIPT, List.of(KEY_PREFIX + key),
+                    objectMapper.writeValueAsString(IdempotentResponse.inProgress(fingerprint)),
+                    String.valueOf(lockTtl.toMillis()));
+        } catch (JsonProcessingException e) {
+            log.warn("Cannot renew idempotency lock for {}: {}", key, e.getMessage());
+        }
+    }
+
+    @Override
+    public void complete(String key, IdempotentResponse response) {
+        try {
+            redisTemplate.opsForValue().set(KEY_PREFIX + key, objectMapper.writeValueAsString(response), ttl);
+        } catch (JsonProcessingException e) {
+            log.warn("Cannot store idempotent response for {}: {}", key, e.getMessage());
+            release(key);
+        }
+    }
+
+    @Override
+    public void release(String key) {
+        redisTemplate.delete(KEY_PREFIX + key);
+    }
+}
@@ -2,6 +2,7 @@ package com.university.library.specification;
 
 import com.university.library.dto.request.bookCopy.BookCopySearchParams;
 import com.university.library.entity.BookCopy;
+import com.university.library.utils.VietnameseTextNormalizer;
 import org.springframework.data.jpa.domain.Specification;
 import org.springframework.util.StringUtils;
 
@@ -23,8 +24,11 @@ public class BookCopySpecification {
                 Predicate shelfPredicate = criteriaBuilder.like(
                         criteriaBuilder.lower(root.get("shelfLocation")), searchTerm);
 
-                Predicate titlePredicate = criteriaBuilder.like(
-                        criteriaBuilder.lower(root.join("book", JoinType.LEFT).get("title")), searchTerm);
+                var bookJoin = root.join("book", JoinType.LEFT);
+                Predicate titlePredicate = criteriaBuilder.or(
+                        criteriaBuilder.like(criteriaBuilder.lower(bookJoin.get("title")), searchTerm),
+                        criteriaBuilder.like(bookJoin.get("searchText"),
+                                "%" + VietnameseTextNormalizer.normalize(params.getQuery()) + "%"));
 
                 Predicate libraryPredicate = criteriaBuilder.like(
                         criteriaBuilder.lower(root.join("campus", JoinType.LEFT).get("name")), searchTerm);
@@ -2,6 +2,7 @@ package com.university.library.specification;
 
 import com.university.library.dto.request.book.BookSearchParams;
 import com.university.library.entity.Book;
+import com.university.library.utils.VietnameseTextNormalizer;
 import org.springframework.data.jpa.domain.Specification;
 import org.springframework.util.StringUtils;
 
@@ -26,8 +27,11 @@ public class BookSpecification {
                         criteriaBuilder.lower(root.get("author")), searchTerm);
                 Predicate publisherPredicate = criteriaBuilder.like(
                         criteriaBuilder.lower(root.get("publisher")), searchTerm);
+                // Tìm không dấu: "truyen kieu" khớp "Truyện Kiều"
+                Predicate foldedPredicate = criteriaBuilder.like(
+                        root.get("searchText"), "%" + VietnameseTextNormalizer.normalize(params.getQuery()) + "%");
                 predicates.add(criteriaBuilder.or(
-                        titlePredicate, authorPredicate, publisherPredicate));
+                        titlePredicate, authorPredicate, publisherPredicate, foldedPredicate));
             }
 
             // Filter by category
@@ -0,0 +1,19 @@
+package com.university.library.utils;
+
+import org.springframework.web.util.UriComponentsBuilder;
+
+import java.util.UUID;
+
+/**
+ * Liên kết tới trang bản sao trên frontend, dùng chung cho QR cũ (theo UUID) và chuyển hướng mã ngắn
+ */
+public class BookCopyLinks {
+    private static final String BOOK_COPY_PATH = "/app/v1/book-copies/{bookCopyId}";
+
+    public static String frontendUrl(String frontendBaseUrl, UUID bookCopyId) {
+        return UriComponentsBuilder.fromHttpUrl(frontendBaseUrl)
+                .path(BOOK_COPY_PATH)
+                .buildAndExpand(bookCopyId)
+                .toUriString();
+    }
+}
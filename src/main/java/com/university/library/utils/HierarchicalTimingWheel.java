@@ -0,0 +1,145 @@
+package com.university.library.utils;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Timing wheel phân cấp: tầng gốc có tick nhỏ, mỗi tầng tràn (overflow) có tick bằng chu kỳ của tầng dưới.
+ * Thêm/hủy O(1), advanceTo chỉ đụng tới các bucket vừa đến hạn thay vì quét toàn bộ timer.
+ * Độ chính xác bằng tick của tầng gốc. Các method đều synchronized.
+ */
+public class HierarchicalTimingWheel<K, T> {
+
+    private final Level<K, T> root;
+    private final Map<K, Entry<K, T>> entries = new HashMap<>();
+
+    public HierarchicalTimingWheel(long tickMs, int wheelSize, long startMs) {
+        if (tickMs <= 0 || wheelSize <= 1) {
+            throw new IllegalArgumentException("tickMs must be > 0 and wheelSize > 1");
+        }
+        this.root = new Level<>(tickMs, wheelSize, startMs);
+    }
+
+    /**
+     * Đặt (hoặc đặt lại) timer theo key. Trả về false nếu deadline đã qua, khi đó timer không được thêm
+     */
+    public synchronized boolean schedule(K key, long deadlineMs, T payload) {
+        cancel(key);
+        Entry<K, T> entry = new Entry<>(key, deadlineMs, payload);
+        if (!root.add(entry)) {
+            return false;
+        }
+        entries.put(key, entry);
+        return true;
+    }
+
+    public synchronized boolean cancel(K key) {
+        Entry<K, T> entry = entries.remove(key);
+        if (entry == null) {
+            return false;
+        }
+        entry.cancelled = true;
+        return true;
+    }
+
+    /**
+     * Tiến đồng hồ tới nowMs, trả về payload của các timer đã đến hạn theo thứ tự bucket
+     */
+    public synchronized List<T> advanceTo(long nowMs) {
+        List<T> expired = new ArrayList<>();
+        root.advance(nowMs, entry -> {
+            if (entry.cancelled) {
+                return;
+            }
+            if (!root.add(entry)) {
+                entries.remove(entry.key);
+                expired.add(entry.payload);
+            }
+        });
+        return expired;
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public synchronized void clear() {
+        entries.values().forEach(entry -> entry.cancelled = true);
+        entries.clear();
+    }
+
+    private static final class Entry<K, T> {
+        private final K key;
+        private final long expirationMs;
+        private final T payload;
+        private boolean cancelled;
+
+        private Entry(K key, long expirationMs, T payload) {
+            this.key = key;
+            this.expirationMs = expirationMs;
+            this.payload = payload;
+        }
+    }
+
+    private interface Reinsert<K, T> {
+        void accept(Entry<K, T> entry);
+    }
+
+    private static final class Level<K, T> {
+        private final long tickMs;
+        private final int wheelSize;
+        private final long intervalMs;
+        private final List<ArrayDeque<Entry<K, T>>> buckets;
+        private long currentTime;
+        private Level<K, T> overflow;
+
+        private Level(long tickMs, int wheelSize, long startMs) {
+            this.tickMs = tickMs;
+            this.wheelSize = wheelSize;
+            this.intervalMs = tickMs * wheelSize;
+            this.currentTime = startMs - (startMs % tickMs);
+            this.buckets = new ArrayList<>(wheelSize);
+            for (int i = 0; i < wheelSize; i++) {
+                buckets.add(new ArrayDeque<>());
+            }
+        }
+
+        /**
+         * false nghĩa là timer đã rơi vào tick hiện tại (đến hạn)
+         */
+        private boolean add(Entry<K, T> entry) {
+            if (entry.expirationMs < currentTime + tickMs) {
+                return false;
+            }
+            if (entry.expirationMs < currentTime + intervalMs) {
+                buckets.get((int) ((entry.expirationMs / tickMs) % wheelSize)).addLast(entry);
+                return true;
+            }
+            if (overflow == null) {
+                overflow = new Level<>(intervalMs, wheelSize, currentTime);
+            }
+            return overflow.add(entry);
+        }
+
+        /**
+         * Mỗi tick vừa bắt đầu: đổ bucket tương ứng về tầng gốc để xếp lại hoặc bắn ra
+         */
+        private void advance(long nowMs, Reinsert<K, T> reinsert) {
+            while (nowMs >= currentTime + tickMs) {
+                currentTime += tickMs;
+                ArrayDeque<Entry<K, T>> bucket = buckets.get((int) ((currentTime / tickMs) % wheelSize));
+                Entry<K, T> entry;
+                while ((entry = bucket.pollFirst()) != null) {
+                    reinsert.accept(entry);
+                }
+                // Tầng trên chỉ cần tiến khi tầng này vừa hết một vòng
+                if (overflow != null && currentTime % intervalMs == 0) {
+                    overflow.advance(currentTime, reinsert);
+                }
+            }
+        }
+    }
+}
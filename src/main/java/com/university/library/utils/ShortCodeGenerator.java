@@ -0,0 +1,31 @@
+package com.university.library.utils;
+
+import java.security.SecureRandom;
+
+/**
+ * Sinh mã ngắn base-62 cho QR, 8 ký tự (~47 bit) đủ cho số lượng bản sao của thư viện
+ */
+public class ShortCodeGenerator {
+    private static final char[] ALPHABET =
+            "0123456789ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz".toCharArray();
+    public static final int LENGTH = 8;
+    private static final SecureRandom RANDOM = new SecureRandom();
+
+    public static String generate() {
+        char[] code = new char[LENGTH];
+        for (int i = 0; i < LENGTH; i++) {
+            code[i] = ALPHABET[RANDOM.nextInt(ALPHABET.length)];
+        }
+        return new String(code);
+    }
+
+    public static boolean isValid(String code) {
+        if (code == null || code.length() != LENGTH) return false;
+        for (int i = 0; i < code.length(); i++) {
+            char c = code.charAt(i);
+            boolean base62 = (c >= '0' && c <= '9') || (c >= 'A' && c <= 'Z') || (c >= 'a' && c <= 'z');
+            if (!base62) return false;
+        }
+        return true;
+    }
+}
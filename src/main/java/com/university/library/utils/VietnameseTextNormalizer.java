@@ -0,0 +1,97 @@
+package com.university.library.utils;
+
+/**
+ * Chuẩn hoá tiếng Việt bằng bảng tra char[] dựng sẵn, một lượt duyệt, không regex.
+ * Dùng chung cho khoá tìm kiếm, khử trùng lặp khi import và fallback ASCII khi in PDF.
+ */
+public final class VietnameseTextNormalizer {
+    private static final char SKIP = '\u0000';
+    private static final char SPACE = ' ';
+    // Phủ hết Latin-1, Latin Extended A/B và Latin Extended Additional (U+1EA0..U+1EF9)
+    private static final char[] TABLE = new char[0x1F00];
+
+    static {
+        for (int c = 0; c < TABLE.length; c++) {
+            TABLE[c] = Character.isWhitespace(c) || Character.isSpaceChar(c) ? SPACE : (char) c;
+        }
+        map("àáạảãâầấậẩẫăằắặẳẵ", 'a');
+        map("ÀÁẠẢÃÂẦẤẬẨẪĂẰẮẶẲẴ", 'A');
+        map("èéẹẻẽêềếệểễ", 'e');
+        map("ÈÉẸẺẼÊỀẾỆỂỄ", 'E');
+        map("ìíịỉĩ", 'i');
+        map("ÌÍỊỈĨ", 'I');
+        map("òóọỏõôồốộổỗơờớợởỡ", 'o');
+        map("ÒÓỌỎÕÔỒỐỘỔỖƠỜỚỢỞỠ", 'O');
+        map("ùúụủũưừứựửữ", 'u');
+        map("ÙÚỤỦŨƯỪỨỰỬỮ", 'U');
+        map("ỳýỵỷỹ", 'y');
+        map("ỲÝỴỶỸ", 'Y');
+        map("đ", 'd');
+        map("Đ", 'D');
+        // Dấu tổ hợp (chuỗi dạng NFD) thì bỏ đi
+        for (int c = 0x0300; c <= 0x036F; c++) {
+            TABLE[c] = SKIP;
+        }
+        for (int c = 0; c < 0x20; c++) {
+            if (TABLE[c] != SPACE) TABLE[c] = SKIP;
+        }
+    }
+
+    private VietnameseTextNormalizer() {
+    }
+
+    private static void map(String chars, char target) {
+        for (int i = 0; i < chars.length(); i++) {
+            TABLE[chars.charAt(i)] = target;
+        }
+    }
+
+    private static char fold(char c) {
+        return c < TABLE.length ? TABLE[c] : c;
+    }
+
+    /**
+     * Bỏ dấu nhưng giữ hoa/thường, dùng khi font PDF không hiển thị được tiếng Việt
+     */
+    public static String toAscii(String text) {
+        if (text == null) return null;
+        int length = text.length();
+        char[] out = new char[length];
+        int n = 0;
+        for (int i = 0; i < length; i++) {
+            char c = fold(text.charAt(i));
+            if (c != SKIP) out[n++] = c;
+        }
+        return new String(out, 0, n);
+    }
+
+    /**
+     * Khoá so sánh: bỏ dấu, chữ thường, gộp khoảng trắng và trim trong cùng một lượt
+     */
+    public static String normalize(String text) {
+        if (text == null) return null;
+        int length = text.length();
+        char[] out = new char[length];
+        int n = 0;
+        boolean pendingSpace = false;
+        for (int i = 0; i < length; i++) {
+            char c = fold(text.charAt(i));
+            if (c == SKIP) continue;
+            if (c == SPACE) {
+                pendingSpace = n > 0;
+                continue;
+            }
+            if (pendingSpace) {
+                out[n++] = SPACE;
+                pendingSpace = false;
+            }
+            if (c >= 'A' && c <= 'Z') {
+                c = (char) (c + ('a' - 'A'));
+            } else if (c >= 0x80) {
+                c = Character.toLowerCase(c);
+            }
+            out[n++] = c;
+        }
+        return new String(out, 0, n);
+    }
+}
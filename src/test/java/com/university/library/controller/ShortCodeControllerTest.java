@@ -0,0 +1,54 @@
+package com.university.library.controller;
+
+import com.university.library.service.BookCopyShortCodeService;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.util.UUID;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+class ShortCodeControllerTest {
+
+    private static final UUID BOOK_COPY_ID = UUID.fromString("7b0d4f6e-2a51-4c3e-9a8b-1f2d3c4b5a69");
+
+    private final BookCopyShortCodeService shortCodeService = mock(BookCopyShortCodeService.class);
+
+    private MockMvc mockMvc(String frontendUrl) {
+        return MockMvcBuilders.standaloneSetup(new ShortCodeController(shortCodeService, frontendUrl)).build();
+    }
+
+    @Test
+    void redirectsToBookCopyPageOnFrontend() throws Exception {
+        when(shortCodeService.resolve("aB3dE5gH")).thenReturn(BOOK_COPY_ID);
+
+        mockMvc("https://libraryfsoft.ddns.net").perform(get("/c/aB3dE5gH"))
+                .andExpect(status().isFound())
+                .andExpect(header().string("Location",
+                        "https://libraryfsoft.ddns.net/app/v1/book-copies/7b0d4f6e-2a51-4c3e-9a8b-1f2d3c4b5a69"));
+    }
+
+    @Test
+    void trailingSlashOnFrontendUrlDoesNotDoubleTheSeparator() throws Exception {
+        when(shortCodeService.resolve("aB3dE5gH")).thenReturn(BOOK_COPY_ID);
+
+        mockMvc("http://localhost:8081/").perform(get("/c/aB3dE5gH"))
+                .andExpect(status().isFound())
+                .andExpect(header().string("Location",
+                        "http://localhost:8081/app/v1/book-copies/7b0d4f6e-2a51-4c3e-9a8b-1f2d3c4b5a69"));
+    }
+
+    @Test
+    void unknownCodeReturnsNotFoundWithoutLocation() throws Exception {
+        when(shortCodeService.resolve("zzzzzzzz")).thenReturn(null);
+
+        mockMvc("https://libraryfsoft.ddns.net").perform(get("/c/zzzzzzzz"))
+                .andExpect(status().isNotFound())
+                .andExpect(header().doesNotExist("Location"));
+    }
+}
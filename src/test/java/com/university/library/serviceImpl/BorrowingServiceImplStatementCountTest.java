@@ -0,0 +1,121 @@
+package com.university.library.serviceImpl;
+
+import com.university.library.entity.Book;
+import com.university.library.entity.BookCopy;
+import com.university.library.entity.Borrowing;
+import com.university.library.entity.Campus;
+import com.university.library.service.ActiveLoanService;
+import com.university.library.service.DueDateReminderService;
+import com.university.library.service.HoldService;
+import com.university.library.service.OutboxService;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Đếm số câu lệnh JDBC của đường trả sách/báo mất. Các service ngoài DB (outbox, bộ đếm, hold, nhắc hạn)
+ * được mock nên con số chỉ gồm phần của BorrowingServiceImpl
+ */
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Testcontainers(disabledWithoutDocker = true)
+@Import(BorrowingServiceImpl.class)
+class BorrowingServiceImplStatementCountTest {
+
+    @Container
+    static final PostgreSQLContainer<?> POSTGRES = new PostgreSQLContainer<>("postgres:16-alpine");
+
+    @DynamicPropertySource
+    static void datasource(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", POSTGRES::getJdbcUrl);
+        registry.add("spring.datasource.username", POSTGRES::getUsername);
+        registry.add("spring.datasource.password", POSTGRES::getPassword);
+    }
+
+    @MockBean
+    private OutboxService outboxService;
+    @MockBean
+    private ActiveLoanService activeLoanService;
+    @MockBean
+    private HoldService holdService;
+    @MockBean
+    private DueDateReminderService dueDateReminderService;
+
+    @Autowired
+    private BorrowingServiceImpl borrowingService;
+    @Autowired
+    private TestEntityManager entityManager;
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private UUID bookCopyId;
+    private Statistics statistics;
+
+    @BeforeEach
+    void setUp() {
+        Campus campus = entityManager.persist(Campus.builder()
+                .name("Campus A")
+                .code("CA-" + UUID.randomUUID().toString().substring(0, 8))
+                .address("1 Street")
+                .build());
+        Book book = entityManager.persist(Book.builder()
+                .title("Lập trình Java")
+                .author("Tác giả")
+                .build());
+        BookCopy bookCopy = entityManager.persist(BookCopy.builder()
+                .book(book)
+                .campus(campus)
+                .status(BookCopy.BookStatus.BORROWED)
+                .build());
+        LocalDateTime borrowedDate = LocalDateTime.now().minusDays(3);
+        entityManager.persist(Borrowing.builder()
+                .bookCopy(bookCopy)
+                .companyAccount("reader01")
+                .borrowedDate(borrowedDate)
+                .dueDate(borrowedDate.plusDays(30))
+                .status(Borrowing.BorrowingStatus.BORROWED)
+                .build());
+        entityManager.flush();
+        entityManager.clear();
+        bookCopyId = bookCopy.getBookCopyId();
+
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+    }
+
+    @Test
+    void returnBookRunsFourStatements() {
+        borrowingService.returnBook(bookCopyId, "reader01");
+        entityManager.flush();
+
+        // UPDATE có điều kiện của bản sao, SELECT fetch-join borrowing/bản sao/đầu sách/campus,
+        // danh sách bản sao của đầu sách cho BookResponse, UPDATE borrowing khi flush
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(4);
+    }
+
+    @Test
+    void reportLostRunsFourStatements() {
+        borrowingService.reportLost(bookCopyId);
+        entityManager.flush();
+
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(4);
+    }
+}
@@ -0,0 +1,234 @@
+package com.university.library.serviceImpl;
+
+import com.university.library.dto.response.borrowing.DueDateReminder;
+import com.university.library.entity.Borrowing;
+import com.university.library.repository.BorrowingRepository;
+import com.university.library.repository.ReminderDeliveryRepository;
+import com.university.library.service.ReminderChannel;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class DueDateReminderServiceImplTest {
+
+    private static final int BATCH_SIZE = 50;
+
+    private final MutableClock clock = new MutableClock(Instant.parse("2026-01-10T08:00:00Z"));
+    private final ReminderDeliveryRepository deliveryRepository = mock(ReminderDeliveryRepository.class);
+    // Lượt mượn đã đóng hoặc do instance khác gửi: claim trả về rỗng
+    private final Set<UUID> claimedElsewhere = new HashSet<>();
+
+    @BeforeEach
+    void stubClaims() {
+        when(deliveryRepository.claim(any(), anyInt(), any(), any(), any(), any())).thenAnswer(invocation -> {
+            UUID borrowingId = invocation.getArgument(0);
+            return claimedElsewhere.contains(borrowingId) ? Optional.empty() : Optional.of(borrowingId);
+        });
+    }
+
+    @Test
+    void sendsFiredRemindersInBatchesOfBatchSize() {
+        RecordingChannel log = new RecordingChannel("log", 0);
+        DueDateReminderServiceImpl service = service(log);
+        borrowDueSoon(service, 120);
+
+        clock.advance(Duration.ofMinutes(6));
+        assertThat(service.fireDueReminders()).isEqualTo(120);
+
+        assertThat(service.dispatchPending()).isEqualTo(50);
+        assertThat(service.dispatchPending()).isEqualTo(50);
+        assertThat(service.dispatchPending()).isEqualTo(20);
+        assertThat(service.dispatchPending()).isZero();
+        assertThat(log.batchSizes()).containsExactly(50, 50, 20);
+    }
+
+    @Test
+    void sendsAtMostOneBatchPerDispatch() {
+        RecordingChannel log = new RecordingChannel("log", 0);
+        DueDateReminderServiceImpl service = service(log);
+        borrowDueSoon(service, BATCH_SIZE * 3);
+
+        clock.advance(Duration.ofMinutes(6));
+        service.fireDueReminders();
+        service.dispatchPending();
+
+        // Phần còn lại chờ lượt dispatch sau (theo dispatch-interval-ms) thay vì dội kênh gửi một lúc
+        assertThat(log.batchSizes()).containsExactly(BATCH_SIZE);
+        assertThat(log.sentCount()).isEqualTo(BATCH_SIZE);
+    }
+
+    @Test
+    void requeuesOnlyToTheChannelThatFailed() {
+        RecordingChannel log = new RecordingChannel("log", 0);
+        RecordingChannel email = new RecordingChannel("email", 1);
+        DueDateReminderServiceImpl service = service(log, email);
+        borrowDueSoon(service, 3);
+
+        clock.advance(Duration.ofMinutes(6));
+        service.fireDueReminders();
+
+        assertThat(service.dispatchPending()).isZero();
+        verify(deliveryRepository, times(1)).release(any());
+
+        assertThat(service.dispatchPending()).isEqualTo(3);
+        assertThat(log.batchSizes()).containsExactly(3);
+        assertThat(email.batchSizes()).containsExactly(3, 3);
+        assertThat(email.sentCount()).isEqualTo(3);
+        verify(deliveryRepository, times(2)).markSent(any(), any());
+        assertThat(service.dispatchPending()).isZero();
+    }
+
+    @Test
+    void dropsReminderAfterMaxAttempts() {
+        RecordingChannel email = new RecordingChannel("email", Integer.MAX_VALUE);
+        DueDateReminderServiceImpl service = service(email);
+        borrowDueSoon(service, 1);
+
+        clock.advance(Duration.ofMinutes(6));
+        service.fireDueReminders();
+        for (int i = 0; i < 5; i++) {
+            service.dispatchPending();
+        }
+
+        assertThat(email.batchSizes()).containsExactly(1, 1, 1);
+    }
+
+    @Test
+    void cancelledReminderIsNotSent() {
+        RecordingChannel log = new RecordingChannel("log", 0);
+        DueDateReminderServiceImpl service = service(log);
+        List<UUID> borrowingIds = borrowDueSoon(service, 2);
+
+        service.cancelReminders(borrowingIds.get(0));
+        clock.advance(Duration.ofMinutes(6));
+
+        assertThat(service.fireDueReminders()).isEqualTo(1);
+        service.dispatchPending();
+        assertThat(log.sentBorrowingIds()).containsExactly(borrowingIds.get(1));
+    }
+
+    @Test
+    void skipsReminderReturnedOrSentByAnotherInstance() {
+        RecordingChannel log = new RecordingChannel("log", 0);
+        DueDateReminderServiceImpl service = service(log);
+        List<UUID> borrowingIds = borrowDueSoon(service, 2);
+        claimedElsewhere.add(borrowingIds.get(0));
+
+        clock.advance(Duration.ofMinutes(6));
+        service.fireDueReminders();
+
+        assertThat(service.dispatchPending()).isEqualTo(2);
+        assertThat(log.sentBorrowingIds()).containsExactly(borrowingIds.get(1));
+        assertThat(service.dispatchPending()).isZero();
+    }
+
+    private DueDateReminderServiceImpl service(ReminderChannel... channels) {
+        return new DueDateReminderServiceImpl(mock(BorrowingRepository.class), deliveryRepository, List.of(channels),
+                mock(PlatformTransactionManager.class), new int[]{1}, BATCH_SIZE, 10, clock);
+    }
+
+    /**
+     * Các lượt mượn đến hạn sau 1 ngày 5 phút, mốc nhắc trước 1 ngày rơi vào 5 phút tới
+     */
+    private List<UUID> borrowDueSoon(DueDateReminderServiceImpl service, int count) {
+        LocalDateTime dueDate = LocalDateTime.now(clock).plusDays(1).plusMinutes(5);
+        List<UUID> borrowingIds = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            Borrowing borrowing = Borrowing.builder()
+                    .borrowingId(UUID.randomUUID())
+                    .companyAccount("user" + i)
+                    .dueDate(dueDate)
+                    .build();
+            service.scheduleReminders(borrowing);
+            borrowingIds.add(borrowing.getBorrowingId());
+        }
+        return borrowingIds;
+    }
+
+    private static final class RecordingChannel implements ReminderChannel {
+        private final String name;
+        private int failuresLeft;
+        private final List<List<DueDateReminder>> batches = new ArrayList<>();
+        private final List<DueDateReminder> sent = new ArrayList<>();
+
+        private RecordingChannel(String name, int failures) {
+            this.name = name;
+            this.failuresLeft = failures;
+        }
+
+        @Override
+        public String getName() {
+            return name;
+        }
+
+        @Override
+        public void send(List<DueDateReminder> reminders) throws Exception {
+            batches.add(List.copyOf(reminders));
+            if (failuresLeft > 0) {
+                failuresLeft--;
+                throw new IllegalStateException(name + " is down");
+            }
+            sent.addAll(reminders);
+        }
+
+        private List<Integer> batchSizes() {
+            return batches.stream().map(List::size).toList();
+        }
+
+        private int sentCount() {
+            return sent.size();
+        }
+
+        private List<UUID> sentBorrowingIds() {
+            return sent.stream().map(DueDateReminder::getBorrowingId).toList();
+        }
+    }
+
+    private static final class MutableClock extends Clock {
+        private Instant now;
+
+        private MutableClock(Instant now) {
+            this.now = now;
+        }
+
+        private void advance(Duration duration) {
+            now = now.plus(duration);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package com.university.library.utils;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class HierarchicalTimingWheelTest {
+
+    // Tầng gốc: tick 10ms x 4 bucket = 40ms, tầng tràn đầu tiên: tick 40ms x 4 = 160ms
+    private static final long TICK_MS = 10;
+    private static final int WHEEL_SIZE = 4;
+
+    @Test
+    void firesTimerOnRootLevelTick() {
+        HierarchicalTimingWheel<String, String> wheel = new HierarchicalTimingWheel<>(TICK_MS, WHEEL_SIZE, 0);
+
+        assertThat(wheel.schedule("a", 25, "A")).isTrue();
+
+        assertThat(wheel.advanceTo(19)).isEmpty();
+        assertThat(wheel.advanceTo(20)).containsExactly("A");
+        assertThat(wheel.size()).isZero();
+    }
+
+    @Test
+    void cascadesTimerFromOverflowLevelBeforeFiring() {
+        HierarchicalTimingWheel<String, String> wheel = new HierarchicalTimingWheel<>(TICK_MS, WHEEL_SIZE, 0);
+
+        assertThat(wheel.schedule("near", 35, "near")).isTrue();
+        assertThat(wheel.schedule("far", 100, "far")).isTrue();
+        assertThat(wheel.schedule("farther", 600, "farther")).isTrue();
+
+        assertThat(wheel.advanceTo(30)).containsExactly("near");
+        // Tầng tràn đổ bucket [80, 120) về tầng gốc ở mốc 80, chưa đến hạn
+        assertThat(wheel.advanceTo(80)).isEmpty();
+        assertThat(wheel.advanceTo(99)).isEmpty();
+        assertThat(wheel.advanceTo(100)).containsExactly("far");
+        // Timer ở tầng thứ ba phải đi qua hai lần cascade
+        assertThat(wheel.advanceTo(599)).isEmpty();
+        assertThat(wheel.advanceTo(600)).containsExactly("farther");
+        assertThat(wheel.size()).isZero();
+    }
+
+    @Test
+    void firesTimersDueInTheSameAdvanceInBucketOrder() {
+        HierarchicalTimingWheel<String, String> wheel = new HierarchicalTimingWheel<>(TICK_MS, WHEEL_SIZE, 0);
+
+        wheel.schedule("late", 150, "late");
+        wheel.schedule("early", 15, "early");
+        wheel.schedule("middle", 70, "middle");
+
+        assertThat(wheel.advanceTo(1_000)).containsExactly("early", "middle", "late");
+    }
+
+    @Test
+    void cancelledAndRescheduledTimersFireOnlyOnce() {
+        HierarchicalTimingWheel<String, String> wheel = new HierarchicalTimingWheel<>(TICK_MS, WHEEL_SIZE, 0);
+
+        wheel.schedule("cancelled", 50, "cancelled");
+        wheel.schedule("moved", 50, "old");
+        assertThat(wheel.cancel("cancelled")).isTrue();
+        assertThat(wheel.cancel("missing")).isFalse();
+        wheel.schedule("moved", 200, "new");
+
+        assertThat(wheel.size()).isEqualTo(1);
+        assertThat(wheel.advanceTo(100)).isEmpty();
+        assertThat(wheel.advanceTo(200)).containsExactly("new");
+    }
+
+    @Test
+    void rejectsDeadlineInCurrentTick() {
+        HierarchicalTimingWheel<String, String> wheel = new HierarchicalTimingWheel<>(TICK_MS, WHEEL_SIZE, 1_005);
+
+        assertThat(wheel.schedule("past", 1_000, "past")).isFalse();
+        assertThat(wheel.schedule("same-tick", 1_009, "same-tick")).isFalse();
+        assertThat(wheel.schedule("next-tick", 1_010, "next-tick")).isTrue();
+        assertThat(wheel.size()).isEqualTo(1);
+    }
+}